@@ -14,6 +14,8 @@
  */
 package ch.dvbern.oss.datatypes;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.regex.Pattern;
 
@@ -36,11 +38,30 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	private static final long serialVersionUID = 2480682944154690382L;
 	protected static final Pattern NON_DIGIT = Pattern.compile("\\D");
+	/**
+	 * Ergebnis von {@link #digitsOf(CharSequence)} fuer Eingaben, die der String-Konstruktor ablehnen wuerde.
+	 */
+	static final long NO_NUMBER = -1;
+	/**
+	 * Markiert eine noch nicht berechnete Pruefziffer, siehe {@link #AbstractPruefzifferNummer(long, int)}.
+	 */
+	protected static final int PRUEFZIFFER_UNBEKANNT = -1;
 
 	private final long nummer;
 
+	/**
+	 * Die Pruefziffer oder {@link #PRUEFZIFFER_UNBEKANNT} bei vertrauenswuerdigen Nummern, siehe
+	 * {@link #berechnetePruefziffer}.
+	 */
 	private final int pruefziffer;
 
+	/**
+	 * Nur fuer {@link #PRUEFZIFFER_UNBEKANNT}: die beim ersten Zugriff berechnete Pruefziffer plus 1, 0 solange
+	 * noch nicht berechnet. Da 0 dem Default-Wert entspricht, sieht ein anderer Thread hoechstens "noch nicht
+	 * berechnet" und rechnet nochmals, nie einen falschen Wert (wie bei {@link String#hashCode()}).
+	 */
+	private transient int berechnetePruefziffer;
+
 	@SuppressWarnings("NonBooleanMethodNameMayNotStartWithQuestion")
 	private static void checkRange(final long nummerToCheck, @Nullable final RangeCheck rangeCheck) {
 
@@ -65,7 +86,10 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	protected AbstractPruefzifferNummer(final long nummer, final long minValue, final long maxValue) {
 
-		checkRange(nummer, new MinMaxRangeCheck(minValue, maxValue));
+		if (nummer < minValue || nummer > maxValue) {
+			throw new IllegalArgumentException("Argument " + nummer + " not in range: "
+				+ new MinMaxRangeCheck(minValue, maxValue));
+		}
 		this.nummer = nummer;
 		this.pruefziffer = berechnePruefziffer(nummer);
 	}
@@ -82,15 +106,27 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 		this.pruefziffer = berechnePruefziffer(nummer);
 	}
 
+	/**
+	 * Konstruktor fuer bereits gepruefte Nummern (z.B. aus der Datenbank): ohne Bereichspruefung.
+	 *
+	 * @param pruefziffer die bekannte Pruefziffer oder {@link #PRUEFZIFFER_UNBEKANNT}, dann wird sie erst beim
+	 * ersten Zugriff berechnet
+	 */
+	protected AbstractPruefzifferNummer(final long nummer, final int pruefziffer) {
+
+		this.nummer = nummer;
+		this.pruefziffer = pruefziffer;
+	}
+
 	/**
 	 * Konstruktor einer Pruefziffernummer anhand eines Strings.
 	 *
 	 * @throws NumberFormatException wenn beim Parsen des Strings ein Fehler
-	 *                               auftritt, @see {@link Long#parseLong(String)}
+	 *                               auftritt, @see {@link #parse(CharSequence, int, int)}
 	 */
 	protected AbstractPruefzifferNummer(@Nonnull final String nummer, final long minValue, final long maxValue) {
 
-		this(Long.parseLong(NON_DIGIT.matcher(nummer).replaceAll("")), minValue, maxValue);
+		this(parse(nummer, 0, nummer.length()), minValue, maxValue);
 	}
 
 	/**
@@ -100,7 +136,57 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	protected AbstractPruefzifferNummer(@Nonnull final String nummer, @Nullable final RangeCheck rangeCheck) {
 
-		this(Long.parseLong(NON_DIGIT.matcher(nummer).replaceAll("")), rangeCheck);
+		this(parse(nummer, 0, nummer.length()), rangeCheck);
+	}
+
+	/**
+	 * Liest alle Ziffern im Bereich {@code start} bis {@code end} (exklusiv) in einem Durchgang zu einer Nummer,
+	 * alle anderen Zeichen (Trennzeichen) werden ignoriert. Ersetzt das Entfernen der Nicht-Ziffern per Regex mit
+	 * anschliessendem {@link Long#parseLong(String)}, ohne Zwischen-Strings.
+	 *
+	 * @throws NumberFormatException wenn der Bereich keine Ziffer enthaelt oder die Nummer nicht in einen long
+	 * passt
+	 * @throws IndexOutOfBoundsException wenn der Bereich ausserhalb von {@code nummer} liegt
+	 */
+	protected static long parse(@Nonnull final CharSequence nummer, final int start, final int end) {
+		long result = digitsOf(nummer, start, end);
+		if (result == NO_NUMBER) {
+			throw new NumberFormatException("For input string: \"" + nummer.subSequence(start, end) + '"');
+		}
+		return result;
+	}
+
+	/**
+	 * Wie {@link #parse(CharSequence, int, int)} ueber die ganze Eingabe, aber ohne Exception.
+	 *
+	 * @return die Nummer oder {@link #NO_NUMBER}, wenn keine Ziffer vorkommt oder die Nummer nicht in einen long
+	 * passt
+	 */
+	static long digitsOf(@Nonnull final CharSequence nummer) {
+		return digitsOf(nummer, 0, nummer.length());
+	}
+
+	/**
+	 * Wie {@link #digitsOf(CharSequence)} fuer den Bereich {@code start} bis {@code end} (exklusiv).
+	 */
+	static long digitsOf(@Nonnull final CharSequence nummer, final int start, final int end) {
+		if (start < 0 || end > nummer.length() || start > end) {
+			throw new IndexOutOfBoundsException("Bereich " + start + '-' + end + " bei Laenge " + nummer.length());
+		}
+		long result = 0;
+		boolean digits = false;
+		for (int i = start; i < end; i++) {
+			char c = nummer.charAt(i);
+			if (c >= '0' && c <= '9') {
+				int ziffer = c - '0';
+				if (result > (Long.MAX_VALUE - ziffer) / 10) {
+					return NO_NUMBER;
+				}
+				result = result * 10 + ziffer;
+				digits = true;
+			}
+		}
+		return digits ? result : NO_NUMBER;
 	}
 
 	/**
@@ -111,6 +197,33 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	protected abstract int berechnePruefziffer(long nummerToCalculate);
 
+	/**
+	 * @return wie die Nummer in {@link #formatTo(Appendable)} gruppiert wird, ungruppiert falls nicht
+	 * ueberschrieben
+	 */
+	@Nonnull
+	GroupFormatter getFormatter() {
+		return GroupFormatter.PLAIN;
+	}
+
+	/**
+	 * Schreibt die formatierte Nummer (wie {@link #toString()} der Subklassen) ohne Zwischen-Strings.
+	 */
+	public void formatTo(@Nonnull final Appendable out) throws IOException {
+		getFormatter().format(nummer, out);
+	}
+
+	/**
+	 * Schreibt die formatierte Nummer (wie {@link #toString()} der Subklassen) ab {@code offset} in
+	 * {@code dest}.
+	 *
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	public int formatTo(@Nonnull final char[] dest, final int offset) {
+		return getFormatter().format(nummer, dest, offset);
+	}
+
 	/**
 	 * @return Returns the nummer.
 	 * @deprecated since 0.0.6, use {@link #getNummerAsLong()} instead.
@@ -134,7 +247,15 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	public int getPruefziffer() {
 
-		return pruefziffer;
+		if (pruefziffer != PRUEFZIFFER_UNBEKANNT) {
+			return pruefziffer;
+		}
+		int result = berechnetePruefziffer;
+		if (result == 0) {
+			result = berechnePruefziffer(nummer) + 1;
+			berechnetePruefziffer = result;
+		}
+		return result - 1;
 	}
 
 	/**
@@ -146,7 +267,7 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	 */
 	public boolean isValid() {
 
-		return nummer % 10 == pruefziffer;
+		return nummer % 10 == getPruefziffer();
 	}
 
 	/**
@@ -195,7 +316,7 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 		if (nummer != that.nummer) {
 			return false;
 		}
-		return pruefziffer == that.pruefziffer;
+		return getPruefziffer() == that.getPruefziffer();
 
 	}
 
@@ -203,7 +324,17 @@ public abstract class AbstractPruefzifferNummer implements Serializable {
 	public int hashCode() {
 
 		int result = (int) (nummer ^ nummer >>> 32);
-		result = 31 * result + pruefziffer;
+		result = 31 * result + getPruefziffer();
 		return result;
 	}
+
+	/**
+	 * Schreibt immer die berechnete Pruefziffer, damit der Stream dem bisherigen Format entspricht.
+	 */
+	private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+		ObjectOutputStream.PutField fields = out.putFields();
+		fields.put("nummer", nummer);
+		fields.put("pruefziffer", getPruefziffer());
+		out.writeFields();
+	}
 }
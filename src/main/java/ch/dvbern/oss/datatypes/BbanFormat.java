@@ -0,0 +1,133 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Kompilierte BBAN-Struktur eines Landes (z.B. "5!n12!c").
+ * <p>
+ * Statt einer Regex werden zwei Bitmasken ueber die (maximal 30) Positionen der BBAN gefuehrt: an welchen
+ * Positionen Ziffern und an welchen Buchstaben erlaubt sind. Der Validator muss so waehrend seines ohnehin
+ * noetigen Durchgangs nur die Positionen der Buchstaben in einem int sammeln; die Pruefung am Schluss ist
+ * dann ein einziger Vergleich von Bitmasken.
+ */
+final class BbanFormat implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Format fuer Laender ohne bekannte Struktur: jede Position erlaubt Ziffern und Buchstaben.
+	 */
+	static final BbanFormat ANY = new BbanFormat(0, -1, -1);
+
+	/**
+	 * Anzahl Zeichen, 0 wenn unbekannt.
+	 */
+	private final int length;
+	private final int digitPositions;
+	private final int letterPositions;
+
+	private BbanFormat(final int length, final int digitPositions, final int letterPositions) {
+		this.length = length;
+		this.digitPositions = digitPositions;
+		this.letterPositions = letterPositions;
+	}
+
+	/**
+	 * Kompiliert eine BBAN-Struktur in der Notation der SWIFT IBAN Registry. Unterstuetzt werden die
+	 * Zeichenklassen n (Ziffern), a (Buchstaben), c (Ziffern und Buchstaben) sowie e (Leerzeichen, welches
+	 * wie c behandelt wird, da Trennzeichen ohnehin ignoriert werden). '!', ',' und Leerzeichen werden ignoriert.
+	 *
+	 * @param structure z.B. "4!a6!n8!n"; leer fuer {@link #ANY}
+	 * @throws IllegalArgumentException wenn die Struktur ungueltig oder laenger als 30 Zeichen ist
+	 */
+	@Nonnull
+	static BbanFormat compile(@Nonnull final String structure) {
+		if (structure.isEmpty()) {
+			return ANY;
+		}
+		int position = 0;
+		int digits = 0;
+		int letters = 0;
+		int groupLength = 0;
+		for (int i = 0; i < structure.length(); i++) {
+			char c = structure.charAt(i);
+			if (c >= '0' && c <= '9') {
+				groupLength = groupLength * 10 + c - '0';
+				continue;
+			}
+			if (c == '!' || c == ',' || c == ' ') {
+				continue;
+			}
+			boolean digitAllowed = c == 'n' || c == 'c' || c == 'e';
+			boolean letterAllowed = c == 'a' || c == 'c' || c == 'e';
+			if (!digitAllowed && !letterAllowed) {
+				throw new IllegalArgumentException("Ungueltiges Zeichen in BBAN-Struktur: " + structure);
+			}
+			if (groupLength == 0) {
+				throw new IllegalArgumentException("Gruppe ohne Laenge in BBAN-Struktur: " + structure);
+			}
+			if (position + groupLength > PackedIBAN.MAX_BBAN_LENGTH) {
+				throw new IllegalArgumentException("BBAN-Struktur zu lang: " + structure);
+			}
+			int mask = ((1 << groupLength) - 1) << position;
+			if (digitAllowed) {
+				digits |= mask;
+			}
+			if (letterAllowed) {
+				letters |= mask;
+			}
+			position += groupLength;
+			groupLength = 0;
+		}
+		if (groupLength != 0) {
+			throw new IllegalArgumentException("Gruppe ohne Zeichenklasse in BBAN-Struktur: " + structure);
+		}
+		return new BbanFormat(position, digits, letters);
+	}
+
+	/**
+	 * @return Anzahl Zeichen der BBAN, 0 wenn die Struktur unbekannt ist
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Prueft eine einzelne Position, fuer die Validierung waehrend der Eingabe.
+	 *
+	 * @param position 0-basierte Position in der BBAN, kleiner als {@link PackedIBAN#MAX_BBAN_LENGTH}
+	 * @return true, wenn an dieser Position ein Buchstabe bzw. eine Ziffer erlaubt ist
+	 */
+	boolean allows(final int position, final boolean letter) {
+		return ((letter ? letterPositions : digitPositions) & 1 << position) != 0;
+	}
+
+	/**
+	 * @param bbanLength Anzahl Zeichen der BBAN (bereits auf die Laenge des Landes geprueft)
+	 * @param letters Bit i gesetzt, wenn an Position i der BBAN ein Buchstabe steht (alle anderen Positionen
+	 * sind Ziffern)
+	 * @return true, wenn jede Position eine erlaubte Zeichenklasse hat
+	 */
+	boolean matches(final int bbanLength, final int letters) {
+		int all = bbanLength >= Integer.SIZE ? -1 : (1 << bbanLength) - 1;
+		int digits = all & ~letters;
+		return (letters & ~letterPositions) == 0 && (digits & ~digitPositions) == 0;
+	}
+}
@@ -0,0 +1,378 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Bloom-Filter als Vorfilter fuer Zugehoerigkeits-Pruefungen (z.B. gegen Betrugslisten), spezialisiert auf
+ * {@link IBAN} und {@link AbstractPruefzifferNummer}: {@code false} von {@code mightContain} ist sicher, nur bei
+ * {@code true} muss die eigentliche (entfernte) Liste befragt werden.
+ * <p>
+ * Blocked Bloom-Filter: jeder Schluessel setzt alle seine Bits innerhalb eines Blocks von 512 Bit (eine
+ * Cache-Line), eine Abfrage kostet also hoechstens einen Cache-Miss. Gehasht wird direkt die kanonische
+ * primitive Form: die Zeichenwerte der IBAN ohne Trennzeichen (Gross-/Kleinschreibung egal) bzw. die Nummer
+ * als long zusammen mit dem Typ. Abfragen erzeugen keine Objekte.
+ * <p>
+ * Die Bits liegen in einem {@link ByteBuffer}, der mit {@link #write(Path)} gespeichert und mit
+ * {@link #open(Path)} memory-mapped (read-only) geoeffnet werden kann. Abfragen sind thread-safe, Einfuegen
+ * nicht.
+ */
+public final class BlockedBloomFilter implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final int MAGIC = 0x424C4D46; // "BLMF"
+	/**
+	 * 2: Nummern werden mit einem festen Typ-Tag statt dem Klassennamen gehasht.
+	 */
+	private static final int VERSION = 2;
+	/**
+	 * Eine Cache-Line, damit die Bloecke auch in einer gemappten Datei ausgerichtet sind.
+	 */
+	private static final int HEADER_SIZE = 64;
+	private static final int BLOCK_BITS = 512;
+	private static final int BLOCK_BYTES = BLOCK_BITS / Byte.SIZE;
+	private static final int MAX_HASHES = 16;
+	private static final long MAX_BLOCKS = (Integer.MAX_VALUE - HEADER_SIZE) / BLOCK_BYTES;
+	private static final double LN2 = Math.log(2);
+
+	private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+	/**
+	 * Die Nummern sind viel kleiner als 2^56, der Tag in den obersten Bits kollidiert also nie mit der Nummer.
+	 */
+	private static final int TAG_SHIFT = 56;
+
+	private final int blocks;
+	private final int hashes;
+	@Nonnull
+	private transient ByteBuffer buffer;
+
+	private BlockedBloomFilter(@Nonnull final ByteBuffer buffer) {
+		if (buffer.capacity() < HEADER_SIZE
+			|| buffer.getInt(0) != MAGIC
+			|| buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IllegalArgumentException("Kein BlockedBloomFilter (Version " + VERSION + ')');
+		}
+		int blockCount = buffer.getInt(2 * Integer.BYTES);
+		int hashCount = buffer.getInt(3 * Integer.BYTES);
+		if (blockCount <= 0 || hashCount <= 0 || hashCount > MAX_HASHES
+			|| buffer.capacity() != HEADER_SIZE + (long) blockCount * BLOCK_BYTES) {
+			throw new IllegalArgumentException("BlockedBloomFilter ist unvollstaendig oder beschaedigt");
+		}
+		this.buffer = buffer;
+		this.blocks = blockCount;
+		this.hashes = hashCount;
+	}
+
+	/**
+	 * Erstellt einen leeren Filter in einem Direct-Buffer.
+	 *
+	 * @param expectedInsertions erwartete Anzahl Eintraege
+	 * @param falsePositiveRate gewuenschte Rate falscher Treffer, z.B. 0.01. Durch die Bloecke liegt die
+	 * tatsaechliche Rate etwas hoeher.
+	 */
+	@Nonnull
+	public static BlockedBloomFilter create(final long expectedInsertions, final double falsePositiveRate) {
+		if (expectedInsertions <= 0 || !(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+			throw new IllegalArgumentException("Ungueltige Parameter: " + expectedInsertions + ", "
+				+ falsePositiveRate);
+		}
+		double bits = -expectedInsertions * Math.log(falsePositiveRate) / (LN2 * LN2);
+		long blockCount = Math.max(1, (long) Math.ceil(bits / BLOCK_BITS));
+		if (blockCount > MAX_BLOCKS) {
+			throw new IllegalArgumentException("Filter zu gross: " + expectedInsertions + " Eintraege mit Rate "
+				+ falsePositiveRate);
+		}
+		long hashCount = Math.round(blockCount * BLOCK_BITS / (double) expectedInsertions * LN2);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + (int) blockCount * BLOCK_BYTES);
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(Integer.BYTES, VERSION);
+		buffer.putInt(2 * Integer.BYTES, (int) blockCount);
+		buffer.putInt(3 * Integer.BYTES, (int) Math.max(1, Math.min(MAX_HASHES, hashCount)));
+		return new BlockedBloomFilter(buffer);
+	}
+
+	/**
+	 * Oeffnet eine mit {@link #write(Path)} geschriebene Datei memory-mapped (read-only). Einfuegen ist dann nicht
+	 * moeglich.
+	 */
+	@Nonnull
+	public static BlockedBloomFilter open(@Nonnull final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Filter zu gross: " + file);
+			}
+			return new BlockedBloomFilter(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @param buffer Inhalt einer mit {@link #write(Path)} geschriebenen Datei, ab Index 0
+	 */
+	@Nonnull
+	public static BlockedBloomFilter wrap(@Nonnull final ByteBuffer buffer) {
+		return new BlockedBloomFilter(buffer);
+	}
+
+	public void write(@Nonnull final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer source = buffer.duplicate();
+			((Buffer) source).clear();
+			long written = 0;
+			while (written < source.capacity()) {
+				written += channel.write(source, written);
+			}
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn die Eingabe keine Buchstaben oder Ziffern bzw. ein '_' enthaelt
+	 */
+	public void putIban(@Nonnull final CharSequence iban) {
+		long hash = hashIban(iban);
+		if (hash == 0) {
+			throw new IllegalArgumentException("Keine IBAN: " + iban);
+		}
+		put(hash);
+	}
+
+	public void put(@Nonnull final IBAN iban) {
+		putIban(iban.getIbannummer());
+	}
+
+	/**
+	 * @throws IllegalArgumentException fuer andere Typen als AHV-, ZPV- und Postkonto-Nummern (inkl. Subklassen)
+	 */
+	public void put(@Nonnull final AbstractPruefzifferNummer nummer) {
+		put(hashNummer(nummer.getClass(), nummer.getNummerAsLong()));
+	}
+
+	/**
+	 * Wie {@link #put(AbstractPruefzifferNummer)}, ohne Instanz.
+	 */
+	public void put(@Nonnull final Class<? extends AbstractPruefzifferNummer> type, final long nummer) {
+		put(hashNummer(type, nummer));
+	}
+
+	/**
+	 * @return false, wenn die IBAN sicher nicht eingefuegt wurde. Trennzeichen und Gross-/Kleinschreibung werden
+	 * ignoriert.
+	 */
+	public boolean mightContainIban(@Nonnull final CharSequence iban) {
+		long hash = hashIban(iban);
+		return hash != 0 && mightContain(hash);
+	}
+
+	public boolean mightContain(@Nonnull final IBAN iban) {
+		return mightContainIban(iban.getIbannummer());
+	}
+
+	public boolean mightContain(@Nonnull final AbstractPruefzifferNummer nummer) {
+		return mightContain(hashNummer(nummer.getClass(), nummer.getNummerAsLong()));
+	}
+
+	/**
+	 * Wie {@link #mightContain(AbstractPruefzifferNummer)}, ohne Instanz.
+	 */
+	public boolean mightContain(@Nonnull final Class<? extends AbstractPruefzifferNummer> type, final long nummer) {
+		return mightContain(hashNummer(type, nummer));
+	}
+
+	public int getBlockCount() {
+		return blocks;
+	}
+
+	public int getHashCount() {
+		return hashes;
+	}
+
+	/**
+	 * @return Anteil gesetzter Bits, 0-1. Eine hohe Auslastung bedeutet mehr falsche Treffer.
+	 */
+	public double getLoad() {
+		long set = 0;
+		for (int offset = HEADER_SIZE; offset < buffer.capacity(); offset += Long.BYTES) {
+			set += Long.bitCount(buffer.getLong(offset));
+		}
+		return set / ((double) blocks * BLOCK_BITS);
+	}
+
+	private void put(final long hash) {
+		int offset = blockOffset(hash);
+		long g = hash * GOLDEN;
+		//noinspection NumericCastThatLosesPrecision
+		int h1 = (int) g;
+		//noinspection NumericCastThatLosesPrecision
+		int h2 = (int) (g >>> 32);
+		for (int i = 0; i < hashes; i++) {
+			int bit = h1 + i * h2 & BLOCK_BITS - 1;
+			int wordOffset = offset + (bit >>> 6) * Long.BYTES;
+			buffer.putLong(wordOffset, buffer.getLong(wordOffset) | 1L << bit);
+		}
+	}
+
+	private boolean mightContain(final long hash) {
+		int offset = blockOffset(hash);
+		long g = hash * GOLDEN;
+		//noinspection NumericCastThatLosesPrecision
+		int h1 = (int) g;
+		//noinspection NumericCastThatLosesPrecision
+		int h2 = (int) (g >>> 32);
+		for (int i = 0; i < hashes; i++) {
+			int bit = h1 + i * h2 & BLOCK_BITS - 1;
+			if ((buffer.getLong(offset + (bit >>> 6) * Long.BYTES) & 1L << bit) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Waehlt den Block mit den oberen 32 Bit des Hashes (Multiplikation statt Modulo).
+	 */
+	private int blockOffset(final long hash) {
+		//noinspection NumericCastThatLosesPrecision
+		int block = (int) ((hash >>> 32) * blocks >>> 32);
+		return HEADER_SIZE + block * BLOCK_BYTES;
+	}
+
+	/**
+	 * FNV-1a ueber die Zeichenwerte (0-35) ohne Trennzeichen, danach durchmischt.
+	 *
+	 * @return 0, wenn die Eingabe keine IBAN sein kann
+	 */
+	static long hashIban(@Nonnull final CharSequence iban) {
+		long hash = FNV_OFFSET;
+		int length = 0;
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					return 0;
+				}
+				continue;
+			}
+			hash = (hash ^ value) * FNV_PRIME;
+			length++;
+		}
+		if (length == 0) {
+			return 0;
+		}
+		long result = mix(hash ^ length);
+		return result == 0 ? 1 : result;
+	}
+
+	static long hashNummer(@Nonnull final Class<?> type, final long nummer) {
+		return mix((nummer ^ (long) tagOf(type) << TAG_SHIFT) * GOLDEN);
+	}
+
+	/**
+	 * Fester Tag pro Nummern-Typ (dieselben Werte wie im {@link DatatypeCodec}), unabhaengig vom Klassennamen.
+	 * Subklassen erhalten den Tag ihres Basistyps.
+	 *
+	 * @throws IllegalArgumentException fuer andere Typen
+	 */
+	private static int tagOf(@Nonnull final Class<?> type) {
+		if (SozialversicherungsNummer.class.isAssignableFrom(type)) {
+			return DatatypeCodec.TAG_AHV;
+		}
+		if (ZpvNummer.class.isAssignableFrom(type)) {
+			return DatatypeCodec.TAG_ZPV;
+		}
+		if (PostkontoNummer.class.isAssignableFrom(type)) {
+			return DatatypeCodec.TAG_POSTKONTO;
+		}
+		throw new IllegalArgumentException("Nicht unterstuetzter Typ: " + type.getName());
+	}
+
+	/**
+	 * Finalizer von MurmurHash3.
+	 */
+	private static long mix(final long value) {
+		long h = value;
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	private void writeObject(@Nonnull final ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		byte[] bytes = new byte[buffer.capacity()];
+		ByteBuffer source = buffer.duplicate();
+		((Buffer) source).clear();
+		source.get(bytes);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private void readObject(@Nonnull final ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		int length = in.readInt();
+		if (blocks <= 0 || blocks > MAX_BLOCKS || length != HEADER_SIZE + blocks * BLOCK_BYTES) {
+			throw new InvalidObjectException("BlockedBloomFilter ist beschaedigt");
+		}
+		byte[] bytes = new byte[length];
+		in.readFully(bytes);
+		BlockedBloomFilter check;
+		try {
+			check = new BlockedBloomFilter(ByteBuffer.wrap(bytes));
+		} catch (IllegalArgumentException e) {
+			InvalidObjectException ex = new InvalidObjectException(e.getMessage());
+			ex.initCause(e);
+			throw ex;
+		}
+		if (check.blocks != blocks || check.hashes != hashes) {
+			throw new InvalidObjectException("BlockedBloomFilter ist beschaedigt");
+		}
+		buffer = check.buffer;
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "BlockedBloomFilter[blocks=" + blocks + ",hashes=" + hashes + ']';
+	}
+
+	@Override
+	public boolean equals(@Nullable final Object o) {
+		return this == o;
+	}
+
+	@Override
+	public int hashCode() {
+		return System.identityHashCode(this);
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Ergebnis von {@link BulkFileValidator}: Anzahl Zeilen und abgelehnte Zeilen pro Grund.
+ */
+public final class BulkFileResult {
+
+	private final long lines;
+	@Nonnull
+	private final long[] counts;
+
+	BulkFileResult(final long lines, @Nonnull final long[] counts) {
+		this.lines = lines;
+		this.counts = counts;
+	}
+
+	/**
+	 * @return Anzahl gepruefter Zeilen (ohne Titelzeile)
+	 */
+	public long getLines() {
+		return lines;
+	}
+
+	public long getRejected() {
+		long rejected = 0;
+		for (long count : counts) {
+			rejected += count;
+		}
+		return rejected;
+	}
+
+	public long getValid() {
+		return lines - getRejected();
+	}
+
+	/**
+	 * @return wie viele Zeilen aus diesem Grund abgelehnt wurden
+	 */
+	public long getCount(@Nonnull final BulkFileValidator.Reason reason) {
+		return counts[reason.ordinal()];
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		StringBuilder sb = new StringBuilder("BulkFileResult[lines=").append(lines)
+			.append(",rejected=").append(getRejected());
+		for (BulkFileValidator.Reason reason : BulkFileValidator.Reason.values()) {
+			if (counts[reason.ordinal()] > 0) {
+				sb.append(',').append(reason).append('=').append(counts[reason.ordinal()]);
+			}
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,481 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Prueft grosse CSV- oder Fixed-Width-Dateien mit einer IBAN, AHV-, ZPV- oder Postkontonummer pro Zeile und
+ * meldet die abgelehnten Zeilen mit Grund.
+ * <p>
+ * Die Datei wird in Stuecken an Zeilengrenzen memory-mapped und parallel geprueft. Die Felder werden direkt
+ * auf den Bytes geprueft, ohne Strings, Regex oder Instanzen der Datentypen. Ob ein Feld gueltig ist, entscheidet
+ * dasselbe statische {@code isValid} wie bei einzelnen Werten. Die abgelehnten Zeilen werden in der Reihenfolge
+ * der Datei ausgegeben.
+ * <p>
+ * Kommandozeile: siehe {@link BulkFileValidatorCli}.
+ */
+public final class BulkFileValidator {
+
+	/**
+	 * Der Datentyp der gepruefte Spalte.
+	 */
+	public enum Datatype {
+		IBAN,
+		AHV,
+		ZPV,
+		POSTKONTO
+	}
+
+	/**
+	 * Grund fuer eine abgelehnte Zeile. Fuer IBANs entsprechen die Gruende {@link IbanStatus}.
+	 */
+	public enum Reason {
+		/**
+		 * Die Spalte fehlt oder ist leer.
+		 */
+		MISSING_FIELD,
+		TOO_SHORT,
+		/**
+		 * '_' in einer IBAN. In Nummern werden wie im String-Konstruktor alle Nicht-Ziffern ignoriert.
+		 */
+		INVALID_CHARACTER,
+		UNKNOWN_COUNTRY,
+		/**
+		 * Falsche Anzahl Zeichen einer IBAN; Nummer ohne Ziffern, zu lang fuer einen long oder Postkontonummer mit
+		 * weniger als 4 Ziffern.
+		 */
+		INVALID_LENGTH,
+		INVALID_BBAN_FORMAT,
+		/**
+		 * Die Nummer liegt ausserhalb des gueltigen Bereichs des Datentyps.
+		 */
+		OUT_OF_RANGE,
+		INVALID_CHECK_DIGITS
+	}
+
+	private static final Reason[] REASONS = Reason.values();
+	private static final Reason[] IBAN_REASONS = new Reason[IbanStatus.values().length];
+
+	static {
+		for (IbanStatus status : IbanStatus.values()) {
+			if (status != IbanStatus.VALID) {
+				IBAN_REASONS[status.ordinal()] = Reason.valueOf(status.name());
+			}
+		}
+	}
+
+	private static final int VALID = -1;
+	private static final int REASON_BITS = 5;
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	private static final int MAX_CHUNK_SIZE = 1 << 28;
+	private static final int CHUNKS_PER_THREAD = 4;
+	private static final int SCAN_BUFFER_SIZE = 8192;
+
+	@Nonnull
+	private final Datatype datatype;
+	/**
+	 * 0-basierte Spalte oder -1 fuer die ganze Zeile bzw. Fixed-Width.
+	 */
+	private final int column;
+	private final byte separator;
+	/**
+	 * 0-basierte Startposition bei Fixed-Width oder -1.
+	 */
+	private final int fixedStart;
+	private final int fixedLength;
+	private final boolean header;
+	private final int threads;
+	/**
+	 * 0 fuer automatisch.
+	 */
+	private final int chunkSize;
+
+	/**
+	 * Prueft die ganze Zeile, ohne Titelzeile, mit einem Thread pro Prozessor.
+	 */
+	public BulkFileValidator(@Nonnull final Datatype datatype) {
+		this(datatype, -1, (byte) ';', -1, 0, false, Runtime.getRuntime().availableProcessors(), 0);
+	}
+
+	private BulkFileValidator(
+		@Nonnull final Datatype datatype,
+		final int column,
+		final byte separator,
+		final int fixedStart,
+		final int fixedLength,
+		final boolean header,
+		final int threads,
+		final int chunkSize) {
+
+		this.datatype = datatype;
+		this.column = column;
+		this.separator = separator;
+		this.fixedStart = fixedStart;
+		this.fixedLength = fixedLength;
+		this.header = header;
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param columnIndex 0-basierte Spalte
+	 * @param columnSeparator ASCII-Trennzeichen, z.B. ';'. Felder in Anfuehrungszeichen duerfen das Trennzeichen
+	 * nicht enthalten.
+	 */
+	@Nonnull
+	public BulkFileValidator withColumn(final int columnIndex, final char columnSeparator) {
+		if (columnIndex < 0 || columnSeparator > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("Ungueltige Spalte oder Trennzeichen: " + columnIndex + ", "
+				+ columnSeparator);
+		}
+		//noinspection NumericCastThatLosesPrecision
+		return new BulkFileValidator(datatype, columnIndex, (byte) columnSeparator, -1, 0, header, threads,
+			chunkSize);
+	}
+
+	/**
+	 * @param start 0-basierte Position des Feldes in der Zeile
+	 * @param length Laenge des Feldes in Bytes
+	 */
+	@Nonnull
+	public BulkFileValidator withFixedWidth(final int start, final int length) {
+		if (start < 0 || length <= 0) {
+			throw new IllegalArgumentException("Ungueltiges Feld: " + start + ':' + length);
+		}
+		return new BulkFileValidator(datatype, -1, separator, start, length, header, threads, chunkSize);
+	}
+
+	/**
+	 * @param withHeader true, wenn die erste Zeile eine Titelzeile ist und nicht geprueft werden soll
+	 */
+	@Nonnull
+	public BulkFileValidator withHeader(final boolean withHeader) {
+		return new BulkFileValidator(datatype, column, separator, fixedStart, fixedLength, withHeader, threads,
+			chunkSize);
+	}
+
+	@Nonnull
+	public BulkFileValidator withThreads(final int threadCount) {
+		if (threadCount <= 0) {
+			throw new IllegalArgumentException("threads muss positiv sein: " + threadCount);
+		}
+		return new BulkFileValidator(datatype, column, separator, fixedStart, fixedLength, header, threadCount,
+			chunkSize);
+	}
+
+	/**
+	 * Fuer Tests: feste Stueckgroesse statt einer aus Dateigroesse und Anzahl Threads berechneten.
+	 */
+	@Nonnull
+	BulkFileValidator withChunkSize(final int size) {
+		return new BulkFileValidator(datatype, column, separator, fixedStart, fixedLength, header, threads, size);
+	}
+
+	/**
+	 * Prueft die Datei und schreibt fuer jede abgelehnte Zeile "Zeilennummer;Grund" (Zeilen ab 1, in der
+	 * Reihenfolge der Datei) nach {@code rejects}.
+	 */
+	@Nonnull
+	public BulkFileResult validate(@Nonnull final Path input, @Nonnull final Appendable rejects)
+		throws IOException {
+
+		try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+			long[] bounds = split(channel);
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, Math.max(1, bounds.length - 1)));
+			try {
+				List<Future<Chunk>> futures = new ArrayList<>();
+				for (int i = 0; i + 1 < bounds.length; i++) {
+					long start = bounds[i];
+					long end = bounds[i + 1];
+					boolean skipFirst = header && i == 0;
+					futures.add(pool.submit(() -> scan(channel, start, end, skipFirst)));
+				}
+				long lines = 0;
+				long[] counts = new long[REASONS.length];
+				for (Future<Chunk> future : futures) {
+					Chunk chunk = get(future);
+					for (int i = 0; i < chunk.rejectCount; i++) {
+						long reject = chunk.rejects[i];
+						Reason reason = REASONS[(int) (reject & (1 << REASON_BITS) - 1)];
+						counts[reason.ordinal()]++;
+						rejects.append(Long.toString(lines + (reject >>> REASON_BITS) + 1))
+							.append(';')
+							.append(reason.name())
+							.append('\n');
+					}
+					lines += chunk.lines;
+				}
+				return new BulkFileResult(header && lines > 0 ? lines - 1 : lines, counts);
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	@Nonnull
+	private static Chunk get(@Nonnull final Future<Chunk> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Validierung unterbrochen");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * @return Grenzen der Stuecke, jeweils am Anfang einer Zeile; erstes Element 0, letztes die Dateigroesse
+	 */
+	@Nonnull
+	private long[] split(@Nonnull final FileChannel channel) throws IOException {
+		long size = channel.size();
+		long target = chunkSize > 0
+			? chunkSize
+			: Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / ((long) threads * CHUNKS_PER_THREAD)));
+		long[] bounds = new long[16];
+		int count = 1;
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+		long pos = 0;
+		while (pos < size) {
+			long next = pos + target >= size ? size : nextLineStart(channel, pos + target, size, buffer);
+			if (count == bounds.length) {
+				bounds = Arrays.copyOf(bounds, count * 2);
+			}
+			bounds[count++] = next;
+			pos = next;
+		}
+		return Arrays.copyOf(bounds, count);
+	}
+
+	/**
+	 * @return Position nach dem ersten '\n' ab {@code from}, oder {@code size}
+	 */
+	private static long nextLineStart(
+		@Nonnull final FileChannel channel,
+		final long from,
+		final long size,
+		@Nonnull final ByteBuffer buffer) throws IOException {
+
+		long pos = from;
+		while (pos < size) {
+			buffer.clear();
+			int read = channel.read(buffer, pos);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return pos + i + 1;
+				}
+			}
+			pos += read;
+		}
+		return size;
+	}
+
+	@Nonnull
+	private Chunk scan(@Nonnull final FileChannel channel, final long start, final long end, final boolean skipFirst)
+		throws IOException {
+
+		MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+		Chunk chunk = new Chunk();
+		int limit = buffer.limit();
+		int lineStart = 0;
+		while (lineStart < limit) {
+			int lineEnd = lineStart;
+			while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int next = lineEnd + 1;
+			if (lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r') {
+				lineEnd--;
+			}
+			if (!skipFirst || chunk.lines > 0) {
+				int reason = checkLine(buffer, lineStart, lineEnd);
+				if (reason != VALID) {
+					chunk.reject(chunk.lines, reason);
+				}
+			}
+			chunk.lines++;
+			lineStart = next;
+		}
+		return chunk;
+	}
+
+	/**
+	 * @return {@link Reason#ordinal()} oder {@link #VALID}
+	 */
+	int checkLine(@Nonnull final ByteBuffer line, final int lineStart, final int lineEnd) {
+		int start;
+		int end;
+		if (column >= 0) {
+			start = lineStart;
+			for (int found = 0; found < column; found++) {
+				while (start < lineEnd && line.get(start) != separator) {
+					start++;
+				}
+				if (start == lineEnd) {
+					return Reason.MISSING_FIELD.ordinal();
+				}
+				start++;
+			}
+			end = start;
+			while (end < lineEnd && line.get(end) != separator) {
+				end++;
+			}
+		} else if (fixedStart >= 0) {
+			start = lineStart + fixedStart;
+			if (start >= lineEnd) {
+				return Reason.MISSING_FIELD.ordinal();
+			}
+			end = Math.min(lineEnd, start + fixedLength);
+		} else {
+			start = lineStart;
+			end = lineEnd;
+		}
+		while (start < end && isBlank(line.get(start))) {
+			start++;
+		}
+		while (end > start && isBlank(line.get(end - 1))) {
+			end--;
+		}
+		if (end - start >= 2 && line.get(start) == '"' && line.get(end - 1) == '"') {
+			start++;
+			end--;
+		}
+		if (start == end) {
+			return Reason.MISSING_FIELD.ordinal();
+		}
+		return checkField(line, start, end);
+	}
+
+	private static boolean isBlank(final byte b) {
+		return b == ' ' || b == '\t';
+	}
+
+	private int checkField(@Nonnull final ByteBuffer field, final int start, final int end) {
+		if (datatype == Datatype.IBAN) {
+			IbanStatus status = IBAN.checkAscii(field, start, end - start);
+			return status == IbanStatus.VALID ? VALID : IBAN_REASONS[status.ordinal()].ordinal();
+		}
+		long nummer = digitsOf(field, start, end);
+		switch (datatype) {
+		case AHV:
+			return SozialversicherungsNummer.isValid(nummer)
+				? VALID
+				: reason(nummer, SozialversicherungsNummer.MIN_VALUE, SozialversicherungsNummer.MAX_VALUE);
+		case ZPV:
+			return ZpvNummer.isValid(nummer) ? VALID : reason(nummer, ZpvNummer.MIN_VALUE, ZpvNummer.MAX_VALUE);
+		case POSTKONTO:
+			if (nummer != AbstractPruefzifferNummer.NO_NUMBER && firstDigit(field, start, end) == '0') {
+				// fuehrende 0, siehe PostkontoNummer.digitsOfText: wie frueher im Konstruktor ausserhalb des Bereichs
+				return Reason.OUT_OF_RANGE.ordinal();
+			}
+			return PostkontoNummer.isValid(nummer)
+				? VALID
+				: reason(PostkontoNummer.pad(nummer), PostkontoNummer.MIN_VALUE, PostkontoNummer.MAX_VALUE);
+		default:
+			throw new IllegalStateException("Unbekannter Datentyp: " + datatype);
+		}
+	}
+
+	/**
+	 * Grund fuer eine Nummer, welche {@code isValid} des Datentyps abgelehnt hat. Entscheidet nur ueber den
+	 * gemeldeten Grund, nicht ueber die Gueltigkeit.
+	 */
+	private static int reason(final long nummer, final long min, final long max) {
+		if (nummer == AbstractPruefzifferNummer.NO_NUMBER) {
+			return Reason.INVALID_LENGTH.ordinal();
+		}
+		if (nummer < min || nummer > max) {
+			return Reason.OUT_OF_RANGE.ordinal();
+		}
+		return Reason.INVALID_CHECK_DIGITS.ordinal();
+	}
+
+	/**
+	 * Wie {@link AbstractPruefzifferNummer#digitsOf(CharSequence, int, int)}, direkt auf den Bytes des Feldes.
+	 */
+	private static long digitsOf(@Nonnull final ByteBuffer field, final int start, final int end) {
+		long result = 0;
+		boolean digits = false;
+		for (int i = start; i < end; i++) {
+			int ziffer = field.get(i) - '0';
+			if (ziffer >= 0 && ziffer <= 9) {
+				if (result > (Long.MAX_VALUE - ziffer) / 10) {
+					return AbstractPruefzifferNummer.NO_NUMBER;
+				}
+				result = result * 10 + ziffer;
+				digits = true;
+			}
+		}
+		return digits ? result : AbstractPruefzifferNummer.NO_NUMBER;
+	}
+
+	/**
+	 * @return die erste Ziffer im Feld oder 0, wenn es keine gibt
+	 */
+	private static int firstDigit(@Nonnull final ByteBuffer field, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			byte b = field.get(i);
+			if (b >= '0' && b <= '9') {
+				return b;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Ergebnis eines Stuecks: Anzahl Zeilen und abgelehnte Zeilen als {@code lokaleZeile << 5 | Grund}.
+	 */
+	private static final class Chunk {
+		private long lines;
+		@Nonnull
+		private long[] rejects = new long[64];
+		private int rejectCount;
+
+		private void reject(final long line, final int reason) {
+			if (rejectCount == rejects.length) {
+				rejects = Arrays.copyOf(rejects, rejectCount * 2);
+			}
+			rejects[rejectCount++] = line << REASON_BITS | reason;
+		}
+	}
+}
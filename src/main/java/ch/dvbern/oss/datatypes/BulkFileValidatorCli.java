@@ -0,0 +1,166 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import ch.dvbern.oss.datatypes.BulkFileValidator.Datatype;
+
+/**
+ * Kommandozeile fuer {@link BulkFileValidator}, siehe {@link #USAGE}. Spalten werden ab 1 gezaehlt, ebenso die
+ * Startposition von {@code --fixed}. Abgelehnte Zeilen gehen nach stdout bzw. {@code --output}, die
+ * Zusammenfassung nach stderr. Exit-Code 0 wenn alle Zeilen gueltig sind, 1 bei abgelehnten Zeilen, 2 bei
+ * Fehlern.
+ */
+public final class BulkFileValidatorCli {
+
+	static final String USAGE = "Usage: BulkFileValidatorCli <IBAN|AHV|ZPV|POSTKONTO> <file> [--column N] "
+		+ "[--separator C] [--fixed START:LENGTH] [--header] [--threads N] [--output FILE]";
+
+	private BulkFileValidatorCli() {
+		// utility class
+	}
+
+	public static void main(@Nonnull final String[] args) {
+		System.exit(run(args, System.out, System.err));
+	}
+
+	static int run(@Nonnull final String[] args, @Nonnull final PrintStream out, @Nonnull final PrintStream err) {
+		if (args.length < 2) {
+			return usage(err, "Datentyp und Datei fehlen");
+		}
+		Path input;
+		Path output = null;
+		BulkFileValidator validator;
+		try {
+			input = Paths.get(args[1]);
+			validator = new BulkFileValidator(Datatype.valueOf(args[0].toUpperCase(Locale.ENGLISH)));
+			Character columnSeparator = null;
+			int columnIndex = -1;
+			boolean fixed = false;
+			for (int i = 2; i < args.length; i++) {
+				String option = args[i];
+				if ("--header".equals(option)) {
+					validator = validator.withHeader(true);
+					continue;
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Wert fehlt fuer " + option);
+				}
+				String value = args[++i];
+				switch (option) {
+				case "--column":
+					columnIndex = positive(option, value) - 1;
+					break;
+				case "--separator":
+					columnSeparator = separator(value);
+					break;
+				case "--fixed":
+					int colon = value.indexOf(':');
+					if (colon < 0) {
+						throw new IllegalArgumentException("--fixed erwartet START:LENGTH: " + value);
+					}
+					validator = validator.withFixedWidth(positive(option, value.substring(0, colon)) - 1,
+						positive(option, value.substring(colon + 1)));
+					fixed = true;
+					break;
+				case "--threads":
+					validator = validator.withThreads(positive(option, value));
+					break;
+				case "--output":
+					output = Paths.get(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unbekannte Option: " + option);
+				}
+			}
+			if (fixed && columnIndex >= 0) {
+				throw new IllegalArgumentException("--column und --fixed schliessen sich aus");
+			}
+			if (columnSeparator != null && columnIndex < 0) {
+				throw new IllegalArgumentException("--separator nur zusammen mit --column");
+			}
+			if (columnIndex >= 0) {
+				validator = validator.withColumn(columnIndex, columnSeparator == null ? ';' : columnSeparator);
+			}
+		} catch (IllegalArgumentException e) {
+			return usage(err, e.getMessage());
+		}
+		try (Writer writer = createWriter(output, out)) {
+			BulkFileResult result = validator.validate(input, writer);
+			writer.flush();
+			err.println(result);
+			return result.getRejected() == 0 ? 0 : 1;
+		} catch (IOException e) {
+			err.println("Fehler beim Pruefen von " + input + ": " + e);
+			return 2;
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn der Wert keine Zahl groesser 0 ist
+	 */
+	private static int positive(@Nonnull final String option, @Nonnull final String value) {
+		int result = Integer.parseInt(value);
+		if (result < 1) {
+			throw new IllegalArgumentException(option + " muss mindestens 1 sein: " + value);
+		}
+		return result;
+	}
+
+	private static char separator(@Nonnull final String value) {
+		if ("\\t".equals(value) || "tab".equalsIgnoreCase(value)) {
+			return '\t';
+		}
+		if (value.length() != 1 || value.charAt(0) > Byte.MAX_VALUE) {
+			throw new IllegalArgumentException("--separator erwartet ein ASCII-Zeichen: " + value);
+		}
+		return value.charAt(0);
+	}
+
+	private static int usage(@Nonnull final PrintStream err, @Nullable final String message) {
+		err.println(message);
+		err.println(USAGE);
+		return 2;
+	}
+
+	@Nonnull
+	private static Writer createWriter(@Nullable final Path output, @Nonnull final PrintStream out) throws IOException {
+		if (output != null) {
+			return Files.newBufferedWriter(output, StandardCharsets.US_ASCII);
+		}
+		// stdout nicht schliessen
+		return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII)) {
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.io.ObjectStreamException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Serialisierte Form (Serialization Proxy) fuer die von {@link DatatypeCodec} unterstuetzten Typen: statt
+ * Klassenbeschreibung und aller Felder wird nur die kompakte Binaerdarstellung geschrieben.
+ */
+final class CompactForm implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Nullable
+	private Object value;
+
+	// Externalizable requires a public no-arg constructor
+	public CompactForm() {
+		this.value = null;
+	}
+
+	CompactForm(@Nonnull final Object value) {
+		this.value = value;
+	}
+
+	@Override
+	public void writeExternal(@Nonnull final ObjectOutput out) throws IOException {
+		if (value == null) {
+			throw new IllegalStateException("Kein Wert");
+		}
+		DatatypeCodec.write(out, value);
+	}
+
+	@Override
+	public void readExternal(@Nonnull final ObjectInput in) throws IOException {
+		value = DatatypeCodec.read(in);
+	}
+
+	@Nonnull
+	private Object readResolve() throws ObjectStreamException {
+		if (value == null) {
+			throw new InvalidObjectException("Kein Wert gelesen");
+		}
+		return value;
+	}
+}
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Kompakte Binaerdarstellung der Datentypen fuer Massen-Exporte, auch als serialisierte Form verwendet (siehe
+ * {@code writeReplace}).
+ * <p>
+ * Jeder Wert beginnt mit einem Typ-Byte. Pruefziffer-Nummern folgen als Varint (7 Bit pro Byte, hoechstes Bit =
+ * weitere Bytes folgen), die Pruefziffer wird beim Lesen neu berechnet. Eine {@link IBAN} in kanonischer Form
+ * (Grossbuchstaben, ohne Trennzeichen) wird gepackt: 3 Bytes fuer Laendercode, Pruefziffern und BBAN-Laenge,
+ * danach 6 Bit pro BBAN-Zeichen. Alle anderen IBAN-Werte werden als Laenge und UTF-8 geschrieben, hoechstens
+ * {@value #MAX_STRING_BYTES} Bytes.
+ * <p>
+ * {@link DataOutput} und {@link ByteBuffer} ergeben dieselben Bytes. Unterstuetzt werden
+ * {@link SozialversicherungsNummer}, {@link ZpvNummer} und {@link PostkontoNummer}, jeweils ohne Unterklassen.
+ */
+public final class DatatypeCodec {
+
+	static final int TAG_AHV = 1;
+	static final int TAG_ZPV = 2;
+	static final int TAG_POSTKONTO = 3;
+	static final int TAG_IBAN_PACKED = 4;
+	static final int TAG_IBAN_STRING = 5;
+
+	private static final int VARINT_BITS = 7;
+	private static final int VARINT_MORE = 0x80;
+	private static final int VARINT_MASK = 0x7F;
+	private static final int PACKED_HEADER_BYTES = 3;
+	/**
+	 * Obergrenze fuer IBAN-Werte, die nicht gepackt werden koennen. Wird vor dem Allozieren geprueft, damit ein
+	 * manipulierter Stream (auch bei der Deserialisierung) keinen grossen Puffer anfordern kann.
+	 */
+	static final int MAX_STRING_BYTES = 256;
+	private static final int CHAR_MASK = (1 << PackedIBAN.BITS_PER_CHAR) - 1;
+	private static final int MAX_CHAR_VALUE = 35;
+	private static final int BYTE_MASK = 0xFF;
+	/**
+	 * Laendercode (676 Werte) und Pruefziffern (100 Werte) belegen im Kopf die oberen 17 Bit.
+	 */
+	private static final int LENGTH_BITS = 5;
+
+	private DatatypeCodec() {
+		// utility class
+	}
+
+	/**
+	 * Zielfunktion fuer ein einzelnes Byte, damit {@link DataOutput} und {@link ByteBuffer} denselben Encoder
+	 * verwenden.
+	 */
+	@FunctionalInterface
+	private interface ByteSink {
+		void put(int b) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface ByteSource {
+		int next() throws IOException;
+	}
+
+	/**
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen
+	 */
+	public static void writeNummer(
+		@Nonnull final DataOutput out,
+		@Nonnull final AbstractPruefzifferNummer nummer) throws IOException {
+
+		encodeNummer(out::writeByte, nummer);
+	}
+
+	/**
+	 * Schreibt nur, wenn der ganze Wert Platz hat.
+	 *
+	 * @throws java.nio.BufferOverflowException wenn {@link #encodedLength(AbstractPruefzifferNummer)} groesser
+	 * als {@link ByteBuffer#remaining()} ist
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen
+	 */
+	public static void putNummer(@Nonnull final ByteBuffer buffer, @Nonnull final AbstractPruefzifferNummer nummer) {
+		if (buffer.remaining() < encodedLength(nummer)) {
+			throw new BufferOverflowException();
+		}
+		try {
+			encodeNummer(b -> buffer.put((byte) b), nummer);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @throws StreamCorruptedException wenn an dieser Stelle keine Pruefziffer-Nummer steht
+	 */
+	@Nonnull
+	public static AbstractPruefzifferNummer readNummer(@Nonnull final DataInput in) throws IOException {
+		return decodeNummer(in::readUnsignedByte);
+	}
+
+	/**
+	 * @throws StreamCorruptedException wenn an dieser Stelle keine Nummer vom Typ {@code type} steht
+	 */
+	@Nonnull
+	public static <T extends AbstractPruefzifferNummer> T readNummer(
+		@Nonnull final DataInput in,
+		@Nonnull final Class<T> type) throws IOException {
+
+		return cast(readNummer(in), type);
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn an dieser Stelle keine Pruefziffer-Nummer steht
+	 * @throws java.nio.BufferUnderflowException wenn der Wert unvollstaendig ist
+	 */
+	@Nonnull
+	public static AbstractPruefzifferNummer getNummer(@Nonnull final ByteBuffer buffer) {
+		try {
+			return decodeNummer(() -> buffer.get() & BYTE_MASK);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn an dieser Stelle keine Nummer vom Typ {@code type} steht
+	 * @throws java.nio.BufferUnderflowException wenn der Wert unvollstaendig ist
+	 */
+	@Nonnull
+	public static <T extends AbstractPruefzifferNummer> T getNummer(
+		@Nonnull final ByteBuffer buffer,
+		@Nonnull final Class<T> type) {
+
+		try {
+			return cast(getNummer(buffer), type);
+		} catch (StreamCorruptedException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return Anzahl Bytes, welche {@link #writeNummer(DataOutput, AbstractPruefzifferNummer)} schreibt
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen
+	 */
+	public static int encodedLength(@Nonnull final AbstractPruefzifferNummer nummer) {
+		tagOf(nummer);
+		return 1 + varLongLength(nummer.getNummerAsLong());
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn die IBAN nicht gepackt werden kann und in UTF-8 mehr als
+	 * {@value #MAX_STRING_BYTES} Bytes hat
+	 */
+	public static void writeIban(@Nonnull final DataOutput out, @Nonnull final IBAN iban) throws IOException {
+		encodeIban(out::writeByte, iban);
+	}
+
+	/**
+	 * Schreibt nur, wenn der ganze Wert Platz hat.
+	 *
+	 * @throws java.nio.BufferOverflowException wenn {@link #encodedLength(IBAN)} groesser als
+	 * {@link ByteBuffer#remaining()} ist
+	 * @throws IllegalArgumentException wie {@link #writeIban(DataOutput, IBAN)}
+	 */
+	public static void putIban(@Nonnull final ByteBuffer buffer, @Nonnull final IBAN iban) {
+		if (buffer.remaining() < encodedLength(iban)) {
+			throw new BufferOverflowException();
+		}
+		try {
+			encodeIban(b -> buffer.put((byte) b), iban);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @throws StreamCorruptedException wenn an dieser Stelle keine IBAN steht
+	 */
+	@Nonnull
+	public static IBAN readIban(@Nonnull final DataInput in) throws IOException {
+		return decodeIban(in::readUnsignedByte);
+	}
+
+	/**
+	 * @throws IllegalArgumentException wenn an dieser Stelle keine IBAN steht
+	 * @throws java.nio.BufferUnderflowException wenn der Wert unvollstaendig ist
+	 */
+	@Nonnull
+	public static IBAN getIban(@Nonnull final ByteBuffer buffer) {
+		try {
+			return decodeIban(() -> buffer.get() & BYTE_MASK);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * @return Anzahl Bytes, welche {@link #writeIban(DataOutput, IBAN)} schreibt
+	 * @throws IllegalArgumentException wie {@link #writeIban(DataOutput, IBAN)}
+	 */
+	public static int encodedLength(@Nonnull final IBAN iban) {
+		String value = iban.getIbannummer();
+		if (isPackable(value)) {
+			return 1 + PACKED_HEADER_BYTES + packedBbanBytes(value.length() - PackedIBAN.HEADER_LENGTH);
+		}
+		int utf8 = utf8(value).length;
+		return 1 + varLongLength(utf8) + utf8;
+	}
+
+	/**
+	 * Schreibt eine unterstuetzte Nummer oder eine IBAN, fuer {@link CompactForm}.
+	 */
+	static void write(@Nonnull final DataOutput out, @Nonnull final Object value) throws IOException {
+		if (value instanceof IBAN) {
+			writeIban(out, (IBAN) value);
+		} else {
+			writeNummer(out, (AbstractPruefzifferNummer) value);
+		}
+	}
+
+	@Nonnull
+	static Object read(@Nonnull final DataInput in) throws IOException {
+		ByteSource source = in::readUnsignedByte;
+		int tag = source.next();
+		return isIbanTag(tag) ? decodeIban(source, tag) : decodeNummer(source, tag);
+	}
+
+	private static int tagOf(@Nonnull final AbstractPruefzifferNummer nummer) {
+		Class<?> type = nummer.getClass();
+		if (type == SozialversicherungsNummer.class) {
+			return TAG_AHV;
+		}
+		if (type == ZpvNummer.class) {
+			return TAG_ZPV;
+		}
+		if (type == PostkontoNummer.class) {
+			return TAG_POSTKONTO;
+		}
+		throw new IllegalArgumentException("Nicht unterstuetzter Typ: " + type.getName());
+	}
+
+	private static boolean isIbanTag(final int tag) {
+		return tag == TAG_IBAN_PACKED || tag == TAG_IBAN_STRING;
+	}
+
+	@Nonnull
+	private static <T extends AbstractPruefzifferNummer> T cast(
+		@Nonnull final AbstractPruefzifferNummer nummer,
+		@Nonnull final Class<T> type) throws StreamCorruptedException {
+
+		if (nummer.getClass() != type) {
+			throw new StreamCorruptedException("Erwartet " + type.getName() + ", gelesen " + nummer.getClass().getName());
+		}
+		return type.cast(nummer);
+	}
+
+	private static void encodeNummer(
+		@Nonnull final ByteSink sink,
+		@Nonnull final AbstractPruefzifferNummer nummer) throws IOException {
+
+		sink.put(tagOf(nummer));
+		writeVarLong(sink, nummer.getNummerAsLong());
+	}
+
+	@Nonnull
+	private static AbstractPruefzifferNummer decodeNummer(@Nonnull final ByteSource source) throws IOException {
+		return decodeNummer(source, source.next());
+	}
+
+	@Nonnull
+	private static AbstractPruefzifferNummer decodeNummer(
+		@Nonnull final ByteSource source,
+		final int tag) throws IOException {
+
+		switch (tag) {
+		case TAG_AHV:
+			return SozialversicherungsNummer.ofTrusted(readVarLong(source));
+		case TAG_ZPV:
+			return ZpvNummer.ofTrusted(readVarLong(source));
+		case TAG_POSTKONTO:
+			return PostkontoNummer.ofTrusted(readVarLong(source));
+		default:
+			throw new StreamCorruptedException("Keine Pruefziffer-Nummer, Typ-Byte: " + tag);
+		}
+	}
+
+	private static void encodeIban(@Nonnull final ByteSink sink, @Nonnull final IBAN iban) throws IOException {
+		String value = iban.getIbannummer();
+		if (!isPackable(value)) {
+			byte[] utf8 = utf8(value);
+			sink.put(TAG_IBAN_STRING);
+			writeVarLong(sink, utf8.length);
+			for (byte b : utf8) {
+				sink.put(b);
+			}
+			return;
+		}
+		int bbanLength = value.length() - PackedIBAN.HEADER_LENGTH;
+		int country = IbanRegistry.countryIndex(
+			Mod97.numericValue(value.charAt(0)),
+			Mod97.numericValue(value.charAt(1)));
+		int checkDigits = (value.charAt(2) - '0') * 10 + value.charAt(3) - '0';
+		int header = ((country * 100 + checkDigits) << LENGTH_BITS) | (bbanLength - 1);
+		sink.put(TAG_IBAN_PACKED);
+		sink.put(header >>> 16);
+		sink.put(header >>> 8);
+		sink.put(header);
+
+		int bits = 0;
+		int pending = 0;
+		for (int i = PackedIBAN.HEADER_LENGTH; i < value.length(); i++) {
+			bits = (bits << PackedIBAN.BITS_PER_CHAR) | Mod97.numericValue(value.charAt(i));
+			pending += PackedIBAN.BITS_PER_CHAR;
+			if (pending >= Byte.SIZE) {
+				pending -= Byte.SIZE;
+				sink.put(bits >>> pending);
+			}
+		}
+		if (pending > 0) {
+			sink.put(bits << (Byte.SIZE - pending));
+		}
+	}
+
+	@Nonnull
+	private static byte[] utf8(@Nonnull final String value) {
+		byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+		if (utf8.length > MAX_STRING_BYTES) {
+			throw new IllegalArgumentException("IBAN zu lang (" + utf8.length + " Bytes): " + value.substring(0, 34)
+				+ "...");
+		}
+		return utf8;
+	}
+
+	@Nonnull
+	private static IBAN decodeIban(@Nonnull final ByteSource source) throws IOException {
+		return decodeIban(source, source.next());
+	}
+
+	@Nonnull
+	private static IBAN decodeIban(@Nonnull final ByteSource source, final int tag) throws IOException {
+		if (tag == TAG_IBAN_STRING) {
+			long length = readVarLong(source);
+			if (length < 0 || length > MAX_STRING_BYTES) {
+				throw new StreamCorruptedException("Ungueltige Laenge: " + length);
+			}
+			byte[] utf8 = new byte[(int) length];
+			for (int i = 0; i < utf8.length; i++) {
+				//noinspection NumericCastThatLosesPrecision
+				utf8[i] = (byte) source.next();
+			}
+			return IBAN.fromCompact(new String(utf8, StandardCharsets.UTF_8));
+		}
+		if (tag != TAG_IBAN_PACKED) {
+			throw new StreamCorruptedException("Keine IBAN, Typ-Byte: " + tag);
+		}
+		int header = source.next() << 16 | source.next() << 8 | source.next();
+		int bbanLength = (header & ((1 << LENGTH_BITS) - 1)) + 1;
+		int country = (header >>> LENGTH_BITS) / 100;
+		int checkDigits = (header >>> LENGTH_BITS) % 100;
+		if (country >= IbanRegistry.COUNTRY_COUNT || bbanLength > PackedIBAN.MAX_BBAN_LENGTH) {
+			throw new StreamCorruptedException("Ungueltiger IBAN-Kopf: " + header);
+		}
+		char[] chars = new char[PackedIBAN.HEADER_LENGTH + bbanLength];
+		chars[0] = (char) ('A' + country / IbanRegistry.COUNTRY_LETTERS);
+		chars[1] = (char) ('A' + country % IbanRegistry.COUNTRY_LETTERS);
+		chars[2] = (char) ('0' + checkDigits / 10);
+		chars[3] = (char) ('0' + checkDigits % 10);
+
+		int bits = 0;
+		int available = 0;
+		for (int i = PackedIBAN.HEADER_LENGTH; i < chars.length; i++) {
+			if (available < PackedIBAN.BITS_PER_CHAR) {
+				bits = (bits << Byte.SIZE) | source.next();
+				available += Byte.SIZE;
+			}
+			available -= PackedIBAN.BITS_PER_CHAR;
+			int value = (bits >>> available) & CHAR_MASK;
+			if (value > MAX_CHAR_VALUE) {
+				throw new StreamCorruptedException("Ungueltiges BBAN-Zeichen: " + value);
+			}
+			chars[i] = (char) (value < 10 ? '0' + value : 'A' + value - 10);
+		}
+		return IBAN.fromCompact(new String(chars));
+	}
+
+	/**
+	 * @return false, wenn {@link #writeIban(DataOutput, IBAN)} die IBAN ablehnen wuerde (mehr als
+	 * {@value #MAX_STRING_BYTES} Bytes)
+	 */
+	static boolean isEncodable(@Nonnull final IBAN iban) {
+		String value = iban.getIbannummer();
+		// ein char ergibt hoechstens 3 Bytes UTF-8
+		return value.length() <= MAX_STRING_BYTES / 3
+			|| value.getBytes(StandardCharsets.UTF_8).length <= MAX_STRING_BYTES;
+	}
+
+	/**
+	 * @return true, wenn der Wert Laendercode, zwei Ziffern und 1-30 Ziffern oder Grossbuchstaben enthaelt, also
+	 * ohne Verlust gepackt werden kann
+	 */
+	static boolean isPackable(@Nonnull final String iban) {
+		int length = iban.length();
+		if (length <= PackedIBAN.HEADER_LENGTH || length > PackedIBAN.MAX_LENGTH
+			|| !isUpper(iban.charAt(0)) || !isUpper(iban.charAt(1))
+			|| !isDigit(iban.charAt(2)) || !isDigit(iban.charAt(3))) {
+			return false;
+		}
+		for (int i = PackedIBAN.HEADER_LENGTH; i < length; i++) {
+			char c = iban.charAt(i);
+			if (!isUpper(c) && !isDigit(c)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isUpper(final char c) {
+		return c >= 'A' && c <= 'Z';
+	}
+
+	private static boolean isDigit(final char c) {
+		return c >= '0' && c <= '9';
+	}
+
+	private static int packedBbanBytes(final int bbanLength) {
+		return (bbanLength * PackedIBAN.BITS_PER_CHAR + Byte.SIZE - 1) / Byte.SIZE;
+	}
+
+	static int varLongLength(final long value) {
+		int bits = Long.SIZE - Long.numberOfLeadingZeros(value);
+		return Math.max(1, (bits + VARINT_BITS - 1) / VARINT_BITS);
+	}
+
+	private static void writeVarLong(@Nonnull final ByteSink sink, final long value) throws IOException {
+		long rest = value;
+		while ((rest & ~VARINT_MASK) != 0) {
+			//noinspection NumericCastThatLosesPrecision
+			sink.put((int) (rest & VARINT_MASK) | VARINT_MORE);
+			rest >>>= VARINT_BITS;
+		}
+		//noinspection NumericCastThatLosesPrecision
+		sink.put((int) rest);
+	}
+
+	private static long readVarLong(@Nonnull final ByteSource source) throws IOException {
+		long result = 0;
+		for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+			int b = source.next();
+			result |= (long) (b & VARINT_MASK) << shift;
+			if ((b & VARINT_MORE) == 0) {
+				return result;
+			}
+		}
+		throw new StreamCorruptedException("Varint zu lang");
+	}
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Schreibt Ziffern oder Zeichen gruppiert mit einem Trennzeichen, direkt in ein char[] oder einen
+ * {@link Appendable}, ohne Zwischen-Strings oder {@link StringBuilder#insert(int, char)}.
+ * <p>
+ * Die Gruppen werden entweder mit festen Laengen von links angegeben (z.B. 3, 4, 4 fuer 756.1234.5678.97),
+ * optional gefolgt von sich wiederholenden Gruppen, oder als sich wiederholende Gruppe von rechts (z.B.
+ * Tausender-Trennzeichen).
+ */
+final class GroupFormatter {
+
+	/**
+	 * Keine Trennzeichen.
+	 */
+	static final GroupFormatter PLAIN = new GroupFormatter(' ', new int[0], 0, false);
+
+	private final char separator;
+	@Nonnull
+	private final int[] groups;
+	private final int repeat;
+	private final boolean fromRight;
+
+	private GroupFormatter(final char separator, @Nonnull final int[] groups, final int repeat, final boolean fromRight) {
+		this.separator = separator;
+		this.groups = groups;
+		this.repeat = repeat;
+		this.fromRight = fromRight;
+	}
+
+	/**
+	 * Trennzeichen nach jeder der angegebenen Gruppen von links, danach keine mehr.
+	 */
+	@Nonnull
+	static GroupFormatter fromLeft(final char separator, @Nonnull final int... groups) {
+		return new GroupFormatter(separator, groups.clone(), 0, false);
+	}
+
+	/**
+	 * Trennzeichen nach je {@code group} Zeichen von links.
+	 */
+	@Nonnull
+	static GroupFormatter everyFromLeft(final char separator, final int group) {
+		return new GroupFormatter(separator, new int[0], group, false);
+	}
+
+	/**
+	 * Trennzeichen vor je {@code group} Zeichen von rechts.
+	 */
+	@Nonnull
+	static GroupFormatter everyFromRight(final char separator, final int group) {
+		return new GroupFormatter(separator, new int[0], group, true);
+	}
+
+	/**
+	 * @return true, wenn vor dem Zeichen {@code index} (von {@code length}) ein Trennzeichen steht
+	 */
+	boolean isBoundary(final int index, final int length) {
+		if (index <= 0 || index >= length) {
+			return false;
+		}
+		if (fromRight) {
+			return (length - index) % repeat == 0;
+		}
+		int pos = 0;
+		for (int group : groups) {
+			pos += group;
+			if (index <= pos) {
+				return index == pos;
+			}
+		}
+		return repeat > 0 && (index - pos) % repeat == 0;
+	}
+
+	/**
+	 * @return Laenge inklusive Trennzeichen fuer eine Eingabe mit {@code length} Zeichen
+	 */
+	int formattedLength(final int length) {
+		int result = length;
+		for (int i = 1; i < length; i++) {
+			if (isBoundary(i, length)) {
+				result++;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	int format(@Nonnull final CharSequence value, @Nonnull final char[] dest, final int offset) {
+		int length = value.length();
+		int end = checkBounds(dest, offset, formattedLength(length));
+		int pos = offset;
+		for (int i = 0; i < length; i++) {
+			if (isBoundary(i, length)) {
+				dest[pos++] = separator;
+			}
+			dest[pos++] = value.charAt(i);
+		}
+		return end;
+	}
+
+	void format(@Nonnull final CharSequence value, @Nonnull final Appendable out) throws IOException {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			if (isBoundary(i, length)) {
+				out.append(separator);
+			}
+			out.append(value.charAt(i));
+		}
+	}
+
+	/**
+	 * Schreibt die Dezimalziffern von {@code value}. Negative Werte (z.B. aus {@code ofTrusted}) erhalten ein
+	 * fuehrendes '-', die Gruppen zaehlen nur die Ziffern.
+	 *
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	int format(final long value, @Nonnull final char[] dest, final int offset) {
+		int length = digitCount(value);
+		int end = checkBounds(dest, offset, formattedLength(value, length));
+		if (value < 0) {
+			dest[offset] = '-';
+		}
+		// negativ gerechnet, damit auch Long.MIN_VALUE geht
+		long rest = value < 0 ? value : -value;
+		int pos = end;
+		for (int i = length - 1; i >= 0; i--) {
+			//noinspection NumericCastThatLosesPrecision
+			dest[--pos] = (char) ('0' - rest % 10);
+			rest /= 10;
+			if (isBoundary(i, length)) {
+				dest[--pos] = separator;
+			}
+		}
+		return end;
+	}
+
+	void format(final long value, @Nonnull final Appendable out) throws IOException {
+		int length = digitCount(value);
+		long divisor = 1;
+		for (int i = 1; i < length; i++) {
+			divisor *= 10;
+		}
+		if (value < 0) {
+			out.append('-');
+		}
+		long rest = value < 0 ? value : -value;
+		for (int i = 0; i < length; i++, divisor /= 10) {
+			if (isBoundary(i, length)) {
+				out.append(separator);
+			}
+			//noinspection NumericCastThatLosesPrecision
+			int digit = (int) -(rest / divisor);
+			out.append((char) ('0' + digit));
+			rest += digit * divisor;
+		}
+	}
+
+	@Nonnull
+	String toString(final long value) {
+		char[] chars = new char[formattedLength(value, digitCount(value))];
+		format(value, chars, 0);
+		return new String(chars);
+	}
+
+	@Nonnull
+	String toString(@Nonnull final CharSequence value) {
+		char[] chars = new char[formattedLength(value.length())];
+		format(value, chars, 0);
+		return new String(chars);
+	}
+
+	private int formattedLength(final long value, final int digits) {
+		return value < 0 ? formattedLength(digits) + 1 : formattedLength(digits);
+	}
+
+	/**
+	 * @return Anzahl Dezimalstellen ohne Vorzeichen, mindestens 1
+	 */
+	static int digitCount(final long value) {
+		long rest = value < 0 ? value : -value;
+		int digits = 1;
+		while (rest <= -10) {
+			rest /= 10;
+			digits++;
+		}
+		return digits;
+	}
+
+	private static int checkBounds(@Nonnull final char[] dest, final int offset, final int length) {
+		if (offset < 0 || offset > dest.length - length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", capacity: "
+				+ dest.length);
+		}
+		return offset + length;
+	}
+}
@@ -15,11 +15,9 @@
 
 package ch.dvbern.oss.datatypes;
 
+import java.io.IOException;
 import java.io.Serializable;
-import java.math.BigInteger;
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
+import java.nio.ByteBuffer;
 import java.util.regex.Pattern;
 
 import javax.annotation.Nonnull;
@@ -34,105 +32,89 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 	private static final long serialVersionUID = 1L;
 	private static final Pattern NON_WORD = Pattern.compile("\\W");
 
-	@Nonnull
-	private final String ibannummer;
-
-	private static class IbanInfo implements Serializable {
-
-		private static final long serialVersionUID = 1L;
-
-		private final int allowedLength;
-		private final int clearingNrLength;
-
-		IbanInfo(final int allowedLength, final int clearingNrLength) {
-
-			this.allowedLength = allowedLength;
-			this.clearingNrLength = clearingNrLength;
-		}
+	/**
+	 * Bereich der QR-IIDs: eine CH/LI-IBAN mit einer IID in diesem Bereich ist eine QR-IBAN.
+	 */
+	public static final int QR_IID_MIN = 30000;
+	public static final int QR_IID_MAX = 31999;
+	private static final int IID_LENGTH = 5;
 
-		IbanInfo(final int allowedLength) {
+	static final GroupFormatter FORMATTER = GroupFormatter.everyFromLeft(' ', 4);
 
-			this.allowedLength = allowedLength;
-			this.clearingNrLength = 0;
-		}
+	private static final int STATUS_BITS = 4;
+	private static final IbanStatus[] STATUSES = IbanStatus.values();
 
-		// Serializable Class requires a no-arg constructor
-		protected IbanInfo() {
-			allowedLength = 0;
-			clearingNrLength = 0;
-		}
+	@Nonnull
+	private final String ibannummer;
 
-		public int getClearingNrLength() {
+	/**
+	 * Zwischengespeichertes Ergebnis von {@link #check()}: Generation der {@link IbanRegistry} in den oberen Bits,
+	 * {@code ordinal() + 1} des {@link IbanStatus} in den unteren {@value #STATUS_BITS} Bits, 0 wenn noch nicht
+	 * berechnet. Ein int wird atomar geschrieben, daher genuegt das Racy-Single-Check-Idiom.
+	 */
+	private transient int validation;
 
-			return clearingNrLength;
-		}
+	// Serializable Class requires a no-arg constructor
+	public IBAN() {
+		ibannummer = "";
+	}
 
-		public int getAllowedLength() {
+	/**
+	 * Constructs IBAN
+	 */
+	public IBAN(@Nonnull final String iban) {
+		this.ibannummer = NON_WORD.matcher(iban).replaceAll("");
+	}
 
-			return allowedLength;
-		}
+	/**
+	 * Ohne Regex, nur fuer {@link #fromCompact(String)}. Der Parametertyp unterscheidet ihn von
+	 * {@link #IBAN(String)}; bei einem String ist {@code toString()} keine Kopie.
+	 */
+	private IBAN(@Nonnull final CharSequence compact) {
+		this.ibannummer = compact.toString();
+	}
 
+	/**
+	 * Gibt eine geteilte Instanz aus dem {@link IbanInternCache#getDefault() Standard-Cache} zurueck, deren
+	 * Gueltigkeit bereits berechnet ist. Fuer Eingaben, die immer wieder vorkommen (z.B. Kreditoren-IBANs).
+	 *
+	 * @see IbanInternCache#intern(CharSequence)
+	 */
+	@Nonnull
+	public static IBAN intern(@Nonnull final CharSequence iban) {
+		return IbanInternCache.getDefault().intern(iban);
 	}
 
-	private static final Map<String, IbanInfo> IBAN_INFOS = new HashMap<String, IbanInfo>();
-
-	static {
-		IBAN_INFOS.put("AD", new IbanInfo(24, 4));
-		IBAN_INFOS.put("AT", new IbanInfo(20, 5));
-		IBAN_INFOS.put("BE", new IbanInfo(16, 3));
-		IBAN_INFOS.put("BA", new IbanInfo(20, 3));
-		IBAN_INFOS.put("BG", new IbanInfo(22, 4));
-		IBAN_INFOS.put("CH", new IbanInfo(21, 5));
-		IBAN_INFOS.put("CY", new IbanInfo(28, 3));
-		IBAN_INFOS.put("CZ", new IbanInfo(24, 4));
-		IBAN_INFOS.put("DE", new IbanInfo(22, 8));
-		IBAN_INFOS.put("DK", new IbanInfo(18, 4));
-		IBAN_INFOS.put("EE", new IbanInfo(20, 2));
-		IBAN_INFOS.put("ES", new IbanInfo(24, 4));
-		IBAN_INFOS.put("FO", new IbanInfo(18));
-		IBAN_INFOS.put("FI", new IbanInfo(18, 6));
-		IBAN_INFOS.put("FR", new IbanInfo(27, 5));
-		IBAN_INFOS.put("GB", new IbanInfo(22, 4));
-		IBAN_INFOS.put("GI", new IbanInfo(23, 4));
-		IBAN_INFOS.put("GL", new IbanInfo(18));
-		IBAN_INFOS.put("GR", new IbanInfo(27, 8));
-		IBAN_INFOS.put("HU", new IbanInfo(28, 7));
-		IBAN_INFOS.put("HR", new IbanInfo(21, 7));
-		IBAN_INFOS.put("IE", new IbanInfo(22, 4));
-		IBAN_INFOS.put("IS", new IbanInfo(26, 4));
-		IBAN_INFOS.put("IT", new IbanInfo(27));
-		IBAN_INFOS.put("LI", new IbanInfo(21, 5));
-		IBAN_INFOS.put("LT", new IbanInfo(20, 5));
-		IBAN_INFOS.put("LU", new IbanInfo(20, 3));
-		IBAN_INFOS.put("LV", new IbanInfo(21, 4));
-		IBAN_INFOS.put("MA", new IbanInfo(24, 3));
-		IBAN_INFOS.put("MC", new IbanInfo(27, 5));
-		IBAN_INFOS.put("MK", new IbanInfo(19, 3));
-		IBAN_INFOS.put("MT", new IbanInfo(31, 4));
-		IBAN_INFOS.put("NL", new IbanInfo(18, 4));
-		IBAN_INFOS.put("NO", new IbanInfo(15, 4));
-		IBAN_INFOS.put("PL", new IbanInfo(28, 7));
-		IBAN_INFOS.put("PT", new IbanInfo(25, 8));
-		IBAN_INFOS.put("RO", new IbanInfo(24, 4));
-		IBAN_INFOS.put("RS", new IbanInfo(22, 3));
-		IBAN_INFOS.put("SE", new IbanInfo(24, 3));
-		IBAN_INFOS.put("SI", new IbanInfo(19, 5));
-		IBAN_INFOS.put("SK", new IbanInfo(24, 4));
-		IBAN_INFOS.put("SM", new IbanInfo(27));
-		IBAN_INFOS.put("TN", new IbanInfo(24, 5));
-		IBAN_INFOS.put("TR", new IbanInfo(26, 5));
+	/**
+	 * Entfernt alle Trennzeichen wie {@link #IBAN(String)}, aber ohne Regex.
+	 */
+	@Nonnull
+	static String compact(@Nonnull final CharSequence iban) {
+		char[] chars = new char[iban.length()];
+		int length = 0;
+		for (int i = 0; i < chars.length; i++) {
+			char c = iban.charAt(i);
+			if (isWordChar(c)) {
+				chars[length++] = c;
+			}
+		}
+		return new String(chars, 0, length);
 	}
 
-	// Serializable Class requires a no-arg constructor
-	public IBAN() {
-		ibannummer = "";
+	/**
+	 * @return true fuer die Zeichen, welche {@link #IBAN(String)} stehen laesst ({@code [a-zA-Z_0-9]})
+	 */
+	static boolean isWordChar(final char c) {
+		return Mod97.numericValue(c) != Mod97.NO_VALUE || c == '_';
 	}
 
 	/**
-	 * Constructs IBAN
+	 * Erstellt eine IBAN aus einem String, der bereits keine Trennzeichen mehr enthaelt (z.B. aus
+	 * {@link PackedIBAN#toCompactString()}), ohne ihn nochmals durch die Regex zu schicken.
 	 */
-	public IBAN(@Nonnull final String iban) {
-		this.ibannummer = NON_WORD.matcher(iban).replaceAll("");
+	@Nonnull
+	static IBAN fromCompact(@Nonnull final String compact) {
+		return new IBAN((CharSequence) compact);
 	}
 
 	/**
@@ -149,76 +131,315 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 	 * @return true, wenn sowohl Format wie auch Prüfziffer korrekt sind
 	 */
 	public boolean isValid() {
-		return isCheckDigitValid();
+		return check() == IbanStatus.VALID;
+	}
+
+	/**
+	 * Wie {@link #isValid()}, gibt aber den Grund zurueck, wenn die IBAN ungueltig ist. Das Ergebnis wird pro
+	 * Instanz zwischengespeichert, bis die {@link IbanRegistry} ausgetauscht wird.
+	 */
+	@Nonnull
+	public IbanStatus check() {
+		IbanRegistry registry = IbanRegistry.getInstance();
+		int cached = validation;
+		if (cached != 0 && cached >>> STATUS_BITS == registry.getGeneration()) {
+			return STATUSES[(cached & (1 << STATUS_BITS) - 1) - 1];
+		}
+		IbanStatus status = check(ibannummer, registry);
+		validation = registry.getGeneration() << STATUS_BITS | status.ordinal() + 1;
+		return status;
 	}
 
 	/**
-	 * Determines if the given IBAN is valid based on the check digit. To
-	 * validate the checksum: 1. Check that the total IBAN length is correct as
-	 * per the country. If not, the IBAN is invalid. 2. Move the four initial
-	 * characters to the end of the string. 3. Replace the letters in the string
-	 * with digits, expanding the string as necessary, such that A=10, B=11 and
-	 * Z=35. 4. Convert the string to an integer and mod-97 the entire number.
-	 * If the remainder is 1 you have a valid IBAN number.
+	 * Validiert eine IBAN, ohne eine Instanz (oder sonst ein Objekt) zu erzeugen. Trennzeichen (alles ausser
+	 * Buchstaben, Ziffern und '_') werden wie im Konstruktor ignoriert.
+	 * <p>
+	 * To validate the checksum: 1. Check that the total IBAN length is correct as per the country. If not, the
+	 * IBAN is invalid. 2. Move the four initial characters to the end of the string. 3. Replace the letters in
+	 * the string with digits, expanding the string as necessary, such that A=10, B=11 and Z=35. 4. Convert the
+	 * string to an integer and mod-97 the entire number. If the remainder is 1 you have a valid IBAN number.
+	 * <p>
+	 * Die Schritte 2-4 werden in einem einzigen Durchgang erledigt: die ersten vier Zeichen werden gemerkt und
+	 * erst am Schluss in den laufenden Rest eingerechnet (siehe {@link Mod97}). Im selben Durchgang werden die
+	 * Positionen der Buchstaben gesammelt und am Schluss gegen die BBAN-Struktur des Landes geprueft (z.B. nur
+	 * Ziffern fuer DE), siehe {@link IbanInfo#getBbanStructure()}.
 	 *
-	 * @return boolean indicating if specific IBAN has a valid check digit
+	 * @return true, wenn sowohl Format wie auch Prüfziffer korrekt sind
+	 * @see #check(CharSequence)
 	 */
-	private boolean isCheckDigitValid() {
-		if (ibannummer.length() < 2) {
-			return false;
+	public static boolean isValid(@Nullable final CharSequence iban) {
+		return check(iban) == IbanStatus.VALID;
+	}
+
+	/**
+	 * Wie {@link #isValid(CharSequence)}, gibt aber den Grund zurueck, wenn die IBAN ungueltig ist. Erzeugt
+	 * ebenfalls keine Objekte.
+	 */
+	@Nonnull
+	public static IbanStatus check(@Nullable final CharSequence iban) {
+		return check(iban, IbanRegistry.getInstance());
+	}
+
+	@Nonnull
+	static IbanStatus check(@Nullable final CharSequence iban, @Nonnull final IbanRegistry registry) {
+		if (iban == null) {
+			return IbanStatus.TOO_SHORT;
 		}
-		if (ibannummer.length() != getValidIBANLength()) {
-			return false;
+		int length = 0;
+		int country0 = 0;
+		int country1 = 0;
+		int check0 = 0;
+		int check1 = 0;
+		int letters = 0;
+		long acc = 0;
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					// '_' ist ein Wort-Zeichen und wuerde im Konstruktor nicht entfernt
+					return IbanStatus.INVALID_CHARACTER;
+				}
+				continue;
+			}
+			switch (length) {
+			case 0:
+				country0 = value;
+				break;
+			case 1:
+				country1 = value;
+				break;
+			case 2:
+				check0 = value;
+				break;
+			case 3:
+				check1 = value;
+				break;
+			default:
+				if (value >= 10) {
+					letters |= 1 << (length - PackedIBAN.HEADER_LENGTH);
+				}
+				acc = Mod97.append(acc, value);
+			}
+			length++;
 		}
+		return evaluate(registry, length, country0, country1, check0, check1, letters, acc);
+	}
 
-		final BigInteger numericIBAN = getNumericIBAN(false);
+	/**
+	 * Wie {@link #check(CharSequence)}, aber direkt auf ASCII-Bytes (z.B. aus einer Zahlungsdatei), ohne
+	 * vorher einen String zu dekodieren. Bytes ausserhalb von ASCII gelten als Trennzeichen.
+	 * <p>
+	 * Die Schleife ist pro Eingabe-Typ bewusst kopiert: ein Zugriff ueber ein Interface bzw. Lambda wuerde pro
+	 * Aufruf ein Objekt erzeugen und das Inlining verhindern. Gemeinsam ist nur {@link #evaluate}.
+	 *
+	 * @throws IndexOutOfBoundsException wenn der Bereich nicht im Array liegt
+	 */
+	@Nonnull
+	public static IbanStatus checkAscii(@Nonnull final byte[] ascii, final int offset, final int length) {
+		checkBounds(offset, length, ascii.length);
+		IbanRegistry registry = IbanRegistry.getInstance();
+		int count = 0;
+		int country0 = 0;
+		int country1 = 0;
+		int check0 = 0;
+		int check1 = 0;
+		int letters = 0;
+		long acc = 0;
+		for (int i = offset; i < offset + length; i++) {
+			int c = ascii[i] & 0xFF;
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					return IbanStatus.INVALID_CHARACTER;
+				}
+				continue;
+			}
+			switch (count) {
+			case 0:
+				country0 = value;
+				break;
+			case 1:
+				country1 = value;
+				break;
+			case 2:
+				check0 = value;
+				break;
+			case 3:
+				check1 = value;
+				break;
+			default:
+				if (value >= 10) {
+					letters |= 1 << (count - PackedIBAN.HEADER_LENGTH);
+				}
+				acc = Mod97.append(acc, value);
+			}
+			count++;
+		}
+		return evaluate(registry, count, country0, country1, check0, check1, letters, acc);
+	}
 
-		final int checkDigit = numericIBAN.mod(new BigInteger("97")).intValue();
-		return checkDigit == 1;
+	/**
+	 * @see #checkAscii(byte[], int, int)
+	 */
+	public static boolean isValidAscii(@Nonnull final byte[] ascii, final int offset, final int length) {
+		return checkAscii(ascii, offset, length) == IbanStatus.VALID;
 	}
 
 	/**
-	 * Get the country IBAN length.
+	 * Wie {@link #checkAscii(byte[], int, int)} fuer die Bytes zwischen {@code position} und {@code limit} eines
+	 * Heap- oder Direct-Buffers. Position und Limit werden nicht veraendert.
 	 */
-	private int getValidIBANLength() {
+	@Nonnull
+	public static IbanStatus checkAscii(@Nonnull final ByteBuffer ascii) {
+		return checkAscii(ascii, ascii.position(), ascii.remaining());
+	}
 
-		final String code = ibannummer.substring(0, 2).toUpperCase(Locale.ENGLISH);
+	/**
+	 * Wie {@link #checkAscii(byte[], int, int)} fuer {@code length} Bytes ab dem absoluten Index {@code index}.
+	 * Position und Limit werden nicht veraendert.
+	 *
+	 * @throws IndexOutOfBoundsException wenn der Bereich nicht innerhalb des Limits liegt
+	 */
+	@Nonnull
+	public static IbanStatus checkAscii(@Nonnull final ByteBuffer ascii, final int index, final int length) {
+		checkBounds(index, length, ascii.limit());
+		if (ascii.hasArray()) {
+			return checkAscii(ascii.array(), ascii.arrayOffset() + index, length);
+		}
+		IbanRegistry registry = IbanRegistry.getInstance();
+		int count = 0;
+		int country0 = 0;
+		int country1 = 0;
+		int check0 = 0;
+		int check1 = 0;
+		int letters = 0;
+		long acc = 0;
+		for (int i = index; i < index + length; i++) {
+			int c = ascii.get(i) & 0xFF;
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					return IbanStatus.INVALID_CHARACTER;
+				}
+				continue;
+			}
+			switch (count) {
+			case 0:
+				country0 = value;
+				break;
+			case 1:
+				country1 = value;
+				break;
+			case 2:
+				check0 = value;
+				break;
+			case 3:
+				check1 = value;
+				break;
+			default:
+				if (value >= 10) {
+					letters |= 1 << (count - PackedIBAN.HEADER_LENGTH);
+				}
+				acc = Mod97.append(acc, value);
+			}
+			count++;
+		}
+		return evaluate(registry, count, country0, country1, check0, check1, letters, acc);
+	}
 
-		IbanInfo info = IBAN_INFOS.get(code);
-		return info == null ? 0 : info.getAllowedLength();
+	/**
+	 * @see #checkAscii(ByteBuffer)
+	 */
+	public static boolean isValidAscii(@Nonnull final ByteBuffer ascii) {
+		return checkAscii(ascii) == IbanStatus.VALID;
 	}
 
 	/**
-	 * Get the country specific length of the clearing number.
+	 * Auswertung nach dem Durchgang ueber alle Zeichen, gemeinsam fuer alle Eingabe-Typen und
+	 * {@link IbanValidatorState}.
+	 *
+	 * @param length Anzahl Zeichen ohne Trennzeichen
+	 * @param acc Akkumulator ueber die BBAN, siehe {@link Mod97}
 	 */
-	private int getClearingNrLength() {
+	@Nonnull
+	static IbanStatus evaluate(
+		@Nonnull final IbanRegistry registry,
+		final int length,
+		final int country0,
+		final int country1,
+		final int check0,
+		final int check1,
+		final int letters,
+		final long acc) {
+
+		if (length < PackedIBAN.HEADER_LENGTH) {
+			return IbanStatus.TOO_SHORT;
+		}
+		IbanInfo info = registry.get(IbanRegistry.countryIndex(country0, country1));
+		if (info == null) {
+			return IbanStatus.UNKNOWN_COUNTRY;
+		}
+		if (info.getAllowedLength() != length) {
+			return IbanStatus.INVALID_LENGTH;
+		}
+		if (!info.getBbanFormat().matches(length - PackedIBAN.HEADER_LENGTH, letters)) {
+			return IbanStatus.INVALID_BBAN_FORMAT;
+		}
+		if (check0 > 9 || check1 > 9) {
+			return IbanStatus.INVALID_CHECK_DIGITS;
+		}
+		long result = Mod97.append(acc, country0);
+		result = Mod97.append(result, country1);
+		result = Mod97.append(result, check0);
+		result = Mod97.append(result, check1);
+		return Mod97.remainder(result) == Mod97.VALID_REMAINDER ? IbanStatus.VALID : IbanStatus.INVALID_CHECK_DIGITS;
+	}
 
-		final String code = ibannummer.substring(0, 2).toUpperCase(Locale.ENGLISH);
-		IbanInfo info = IBAN_INFOS.get(code);
-		return info == null ? 0 : info.getClearingNrLength();
+	/**
+	 * Erstellt eine IBAN aus ASCII-Bytes; Trennzeichen werden wie in {@link #IBAN(String)} entfernt. Es wird nur
+	 * der String fuer die Nummer selbst erzeugt.
+	 *
+	 * @throws IndexOutOfBoundsException wenn der Bereich nicht im Array liegt
+	 */
+	@Nonnull
+	public static IBAN fromAscii(@Nonnull final byte[] ascii, final int offset, final int length) {
+		checkBounds(offset, length, ascii.length);
+		char[] chars = new char[length];
+		int count = 0;
+		for (int i = offset; i < offset + length; i++) {
+			char c = (char) (ascii[i] & 0xFF);
+			if (isWordChar(c)) {
+				chars[count++] = c;
+			}
+		}
+		return fromCompact(new String(chars, 0, count));
 	}
 
+	/**
+	 * Wie {@link #fromAscii(byte[], int, int)} fuer die Bytes zwischen {@code position} und {@code limit}.
+	 * Position und Limit werden nicht veraendert.
+	 */
 	@Nonnull
-	private BigInteger getNumericIBAN(final boolean isCheckDigitAtEnd) {
-		String endCheckDigitIBAN = ibannummer;
-		if (!isCheckDigitAtEnd) {
-			// Move first four characters to end of string to put check digit at end
-			endCheckDigitIBAN = ibannummer.substring(4) + ibannummer.substring(0, 4);
+	public static IBAN fromAscii(@Nonnull final ByteBuffer ascii) {
+		if (ascii.hasArray()) {
+			return fromAscii(ascii.array(), ascii.arrayOffset() + ascii.position(), ascii.remaining());
 		}
-		final StringBuilder numericIBAN = new StringBuilder();
-		for (int i = 0; i < endCheckDigitIBAN.length(); i++) {
-			if (Character.isDigit(endCheckDigitIBAN.charAt(i))) {
-				numericIBAN.append(endCheckDigitIBAN.charAt(i));
-			} else {
-				numericIBAN.append(10 + getAlphabetPosition(endCheckDigitIBAN.charAt(i)));
+		char[] chars = new char[ascii.remaining()];
+		int count = 0;
+		for (int i = ascii.position(); i < ascii.limit(); i++) {
+			char c = (char) (ascii.get(i) & 0xFF);
+			if (isWordChar(c)) {
+				chars[count++] = c;
 			}
 		}
-		return new BigInteger(numericIBAN.toString());
+		return fromCompact(new String(chars, 0, count));
 	}
 
-	private static int getAlphabetPosition(final char letter) {
-
-		return Character.valueOf(Character.toUpperCase(letter)).compareTo('A');
+	private static void checkBounds(final int offset, final int length, final int capacity) {
+		if (offset < 0 || length < 0 || offset > capacity - length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", length: " + length + ", capacity: " + capacity);
+		}
 	}
 
 	/**
@@ -234,7 +455,9 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 				"Methode darf nur mit gültiger IBAN Nr aufgerufen werden "
 					+ getIbannummer());
 		}
-		int clearingNrLength = getClearingNrLength();
+		// nach isValid() ist der Laendercode sicher vorhanden
+		IbanInfo info = IbanRegistry.getInstance().get(ibannummer.subSequence(0, 2));
+		int clearingNrLength = info == null ? 0 : info.getClearingNrLength();
 		if (clearingNrLength == 0) {
 			// keine Angaben der Laenge
 			return null;
@@ -242,6 +465,36 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 		return ibannummer.substring(4, clearingNrLength + 4);
 	}
 
+	/**
+	 * Prueft, ob dies eine QR-IBAN ist: eine gueltige IBAN aus der Schweiz oder Liechtenstein, deren IID
+	 * (siehe {@link #extractClearingNr()}) im Bereich {@value #QR_IID_MIN}-{@value #QR_IID_MAX} liegt.
+	 * Erzeugt keine Objekte.
+	 */
+	public boolean isQrIBAN() {
+		if (!isValid() || !isSwissOrLiechtenstein()) {
+			return false;
+		}
+		// nach isValid() sind die 5 Stellen der IID sicher Ziffern (BBAN-Struktur 5!n12!c)
+		int iid = 0;
+		for (int i = PackedIBAN.HEADER_LENGTH; i < PackedIBAN.HEADER_LENGTH + IID_LENGTH; i++) {
+			iid = iid * 10 + ibannummer.charAt(i) - '0';
+		}
+		return iid >= QR_IID_MIN && iid <= QR_IID_MAX;
+	}
+
+	/**
+	 * @return true, wenn der Laendercode CH oder LI ist (Gross-/Kleinschreibung egal). Die Gueltigkeit wird nicht
+	 * geprueft.
+	 */
+	public boolean isSwissOrLiechtenstein() {
+		if (ibannummer.length() < 2) {
+			return false;
+		}
+		char c0 = Character.toUpperCase(ibannummer.charAt(0));
+		char c1 = Character.toUpperCase(ibannummer.charAt(1));
+		return c0 == 'C' && c1 == 'H' || c0 == 'L' && c1 == 'I';
+	}
+
 	public int compareTo(@Nonnull final IBAN other) {
 		return getIbannummer().compareTo(other.getIbannummer());
 	}
@@ -256,20 +509,24 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 	@Nonnull
 	public String toString() {
 
-		StringBuilder sb = new StringBuilder(getIbannummer());
-		int numberOfSpaces = sb.length() / 4;
-		// ibannummer in 4er gruppen darstellen
-		for (int i = 0; i < numberOfSpaces; i++) {
-			saveInsert((i + 1) * 4 + i, sb);
-		}
-		return sb.toString().trim();
+		return FORMATTER.toString(ibannummer);
 	}
 
-	private void saveInsert(final int offset, @Nonnull final StringBuilder sb) {
+	/**
+	 * Schreibt die IBAN in 4er-Gruppen (wie {@link #toString()}) ohne Zwischen-Strings.
+	 */
+	public void formatTo(@Nonnull final Appendable out) throws IOException {
+		FORMATTER.format(ibannummer, out);
+	}
 
-		if (sb.length() >= offset) {
-			sb.insert(offset, ' ');
-		}
+	/**
+	 * Schreibt die IBAN in 4er-Gruppen (wie {@link #toString()}) ab {@code offset} in {@code dest}.
+	 *
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	public int formatTo(@Nonnull final char[] dest, final int offset) {
+		return FORMATTER.format(ibannummer, dest, offset);
 	}
 
 	@Override
@@ -291,4 +548,14 @@ public class IBAN implements Serializable, Comparable<IBAN> {
 	public int hashCode() {
 		return 31 * getIbannummer().hashCode();
 	}
+
+	/**
+	 * Serialisiert die IBAN gepackt ({@link DatatypeCodec}). Bestehende Streams im bisherigen Format bleiben
+	 * lesbar, Unterklassen verwenden weiterhin die Standard-Serialisierung. Ungepruefte Eingaben, die der Codec
+	 * ablehnt (zu lang), werden ebenfalls im bisherigen Format geschrieben.
+	 */
+	@Nonnull
+	private Object writeReplace() {
+		return DatatypeCodec.isEncodable(this) ? new CompactForm(this) : this;
+	}
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.BitSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Ergebnis von {@link IbanBulkValidator}: welche Positionen gueltig sind und wie oft jeder
+ * {@link IbanStatus} vorkam.
+ */
+public final class IbanBulkResult {
+
+	private final int size;
+	@Nonnull
+	private final BitSet valid;
+	@Nonnull
+	private final int[] counts;
+
+	IbanBulkResult(final int size, @Nonnull final BitSet valid, @Nonnull final int[] counts) {
+		this.size = size;
+		this.valid = valid;
+		this.counts = counts;
+	}
+
+	/**
+	 * @return Anzahl gepruefter Eintraege
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true, wenn der Eintrag an Position {@code index} gueltig ist
+	 */
+	public boolean isValid(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("index: " + index + ", size: " + size);
+		}
+		return valid.get(index);
+	}
+
+	/**
+	 * @return true, wenn alle Eintraege gueltig sind
+	 */
+	public boolean isAllValid() {
+		return getValidCount() == size;
+	}
+
+	/**
+	 * @return Kopie der Positionen der gueltigen Eintraege
+	 */
+	@Nonnull
+	public BitSet getValid() {
+		return (BitSet) valid.clone();
+	}
+
+	/**
+	 * @return die naechste ungueltige Position ab {@code fromIndex} oder -1
+	 */
+	public int nextInvalid(final int fromIndex) {
+		int next = valid.nextClearBit(fromIndex);
+		return next < size ? next : -1;
+	}
+
+	public int getValidCount() {
+		return counts[IbanStatus.VALID.ordinal()];
+	}
+
+	public int getInvalidCount() {
+		return size - getValidCount();
+	}
+
+	/**
+	 * @return wie viele Eintraege diesen Status haben
+	 */
+	public int getCount(@Nonnull final IbanStatus status) {
+		return counts[status.ordinal()];
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		StringBuilder sb = new StringBuilder("IbanBulkResult[size=").append(size);
+		for (IbanStatus status : IbanStatus.values()) {
+			if (counts[status.ordinal()] > 0) {
+				sb.append(',').append(status).append('=').append(counts[status.ordinal()]);
+			}
+		}
+		return sb.append(']').toString();
+	}
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Stream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Validiert grosse Mengen von IBANs parallel, ohne pro Eintrag ein {@link IBAN} zu erzeugen.
+ * <p>
+ * Die Eingabe wird in Bloecke aufgeteilt und in einem {@link ForkJoinPool} mit {@link IBAN#check(CharSequence)}
+ * geprueft; es gilt die aktuelle {@link IbanRegistry}. Die Bloecke sind auf 64 Eintraege ausgerichtet, damit jeder
+ * Task seine eigenen Worte des Ergebnis-{@link BitSet} beschreibt.
+ */
+public final class IbanBulkValidator {
+
+	/**
+	 * Eintraege pro Task, ein Vielfaches von 64.
+	 */
+	static final int BLOCK_SIZE = 4096;
+
+	private IbanBulkValidator() {
+		// utility
+	}
+
+	/**
+	 * Validiert alle Eintraege im {@link ForkJoinPool#commonPool()}.
+	 */
+	@Nonnull
+	public static IbanBulkResult validate(@Nonnull final CharSequence[] ibans) {
+		return validate(ibans, ForkJoinPool.commonPool());
+	}
+
+	@Nonnull
+	public static IbanBulkResult validate(@Nonnull final CharSequence[] ibans, @Nonnull final ForkJoinPool pool) {
+		return run(new Source() {
+			@Override
+			public CharSequence get(final int index) {
+				return ibans[index];
+			}
+		}, ibans.length, pool);
+	}
+
+	/**
+	 * Validiert alle Eintraege im {@link ForkJoinPool#commonPool()}. Listen ohne {@link RandomAccess} werden
+	 * zuerst in ein Array kopiert.
+	 */
+	@Nonnull
+	public static IbanBulkResult validate(@Nonnull final List<? extends CharSequence> ibans) {
+		return validate(ibans, ForkJoinPool.commonPool());
+	}
+
+	@Nonnull
+	public static IbanBulkResult validate(
+		@Nonnull final List<? extends CharSequence> ibans,
+		@Nonnull final ForkJoinPool pool) {
+
+		if (!(ibans instanceof RandomAccess)) {
+			return validate(ibans.toArray(new CharSequence[0]), pool);
+		}
+		return run(ibans::get, ibans.size(), pool);
+	}
+
+	/**
+	 * Validiert alle Eintraege eines (endlichen) Streams im {@link ForkJoinPool#commonPool()}. Die Positionen im
+	 * Ergebnis entsprechen der Reihenfolge des Streams.
+	 */
+	@Nonnull
+	public static IbanBulkResult validate(@Nonnull final Stream<? extends CharSequence> ibans) {
+		return validate(ibans, ForkJoinPool.commonPool());
+	}
+
+	@Nonnull
+	public static IbanBulkResult validate(
+		@Nonnull final Stream<? extends CharSequence> ibans,
+		@Nonnull final ForkJoinPool pool) {
+
+		return validate(ibans.toArray(CharSequence[]::new), pool);
+	}
+
+	@Nonnull
+	private static IbanBulkResult run(@Nonnull final Source source, final int size, @Nonnull final ForkJoinPool pool) {
+		long[] words = new long[(size + Long.SIZE - 1) / Long.SIZE];
+		int[] counts = pool.invoke(new ValidationTask(source, words, 0, size));
+		return new IbanBulkResult(size, BitSet.valueOf(words), counts);
+	}
+
+	@FunctionalInterface
+	private interface Source {
+		CharSequence get(int index);
+	}
+
+	/**
+	 * Validiert {@code [from, to)} und gibt die Anzahl pro {@link IbanStatus} zurueck.
+	 */
+	private static final class ValidationTask extends RecursiveTask<int[]> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Nonnull
+		private final transient Source source;
+		@Nonnull
+		private final long[] words;
+		private final int from;
+		private final int to;
+
+		ValidationTask(@Nonnull final Source source, @Nonnull final long[] words, final int from, final int to) {
+			this.source = source;
+			this.words = words;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (to - from <= BLOCK_SIZE) {
+				return validateBlock();
+			}
+			int blocks = (to - from + BLOCK_SIZE - 1) / BLOCK_SIZE;
+			int middle = from + blocks / 2 * BLOCK_SIZE;
+			ValidationTask right = new ValidationTask(source, words, middle, to);
+			right.fork();
+			int[] counts = new ValidationTask(source, words, from, middle).compute();
+			int[] rightCounts = right.join();
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] += rightCounts[i];
+			}
+			return counts;
+		}
+
+		@Nonnull
+		private int[] validateBlock() {
+			int[] counts = new int[IbanStatus.values().length];
+			for (int i = from; i < to; i++) {
+				IbanStatus status = IBAN.check(source.get(i));
+				counts[status.ordinal()]++;
+				if (status == IbanStatus.VALID) {
+					words[i / Long.SIZE] |= 1L << i;
+				}
+			}
+			return counts;
+		}
+	}
+}
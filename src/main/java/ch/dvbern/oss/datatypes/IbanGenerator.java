@@ -0,0 +1,306 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Erzeugt IBANs eines Landes aus Clearing-Nummer und Kontonummer (bzw. aus der BBAN) und berechnet dabei die
+ * Pruefziffern direkt: {@code 98 - (BBAN + Laendercode + "00") mod 97}, gestreamt wie in {@link Mod97}.
+ * <p>
+ * Fuer Migrationen mit vielen Eintraegen schreibt {@link #generateAll(CharSequence[], CharSequence[], int, int,
+ * char[])} die IBANs ohne Trennzeichen mit fester Schrittweite {@link #getLength()} in einen wiederverwendbaren
+ * Puffer, ohne pro Eintrag Objekte zu erzeugen.
+ * <p>
+ * Instanzen sind unveraenderlich und thread-safe.
+ */
+public final class IbanGenerator {
+
+	private static final int CHECK_DIGITS_BASE = 98;
+
+	@Nonnull
+	private final IbanInfo info;
+	private final int country0;
+	private final int country1;
+
+	private IbanGenerator(@Nonnull final IbanInfo info) {
+		this.info = info;
+		this.country0 = Mod97.numericValue(info.getCountryCode().charAt(0));
+		this.country1 = Mod97.numericValue(info.getCountryCode().charAt(1));
+	}
+
+	/**
+	 * @param countryCode z.B. "CH", gemaess aktueller {@link IbanRegistry#getInstance() Registry}
+	 * @throws IllegalArgumentException wenn das Land nicht in der Registry ist
+	 */
+	@Nonnull
+	public static IbanGenerator forCountry(@Nonnull final CharSequence countryCode) {
+		IbanInfo info = IbanRegistry.getInstance().get(countryCode);
+		if (info == null) {
+			throw new IllegalArgumentException("Unbekanntes Land: " + countryCode);
+		}
+		return new IbanGenerator(info);
+	}
+
+	@Nonnull
+	public static IbanGenerator forCountry(@Nonnull final IbanInfo info) {
+		return new IbanGenerator(info);
+	}
+
+	/**
+	 * Berechnet die beiden Pruefziffern, ohne Objekte zu erzeugen. Trennzeichen in der BBAN werden ignoriert,
+	 * Laenge und Struktur der BBAN werden nicht geprueft.
+	 *
+	 * @param countryCode zwei Buchstaben
+	 * @return die Pruefziffern, 2-98
+	 * @throws IllegalArgumentException bei ungueltigem Laendercode oder '_' in der BBAN
+	 */
+	public static int computeCheckDigits(@Nonnull final CharSequence countryCode, @Nonnull final CharSequence bban) {
+		if (IbanRegistry.countryIndex(countryCode) < 0) {
+			throw new IllegalArgumentException("Ungueltiger Laendercode: " + countryCode);
+		}
+		long acc = 0;
+		for (int i = 0; i < bban.length(); i++) {
+			char c = bban.charAt(i);
+			int value = Mod97.numericValue(c);
+			if (value != Mod97.NO_VALUE) {
+				acc = Mod97.append(acc, value);
+			} else if (c == '_') {
+				throw new IllegalArgumentException("Ungueltiges Zeichen in BBAN: " + bban);
+			}
+		}
+		return checkDigits(acc, Mod97.numericValue(countryCode.charAt(0)), Mod97.numericValue(countryCode.charAt(1)));
+	}
+
+	private static int checkDigits(final long bbanAcc, final int country0, final int country1) {
+		long acc = Mod97.append(bbanAcc, country0);
+		acc = Mod97.append(acc, country1);
+		acc = Mod97.append(acc, 0);
+		acc = Mod97.append(acc, 0);
+		return CHECK_DIGITS_BASE - Mod97.remainder(acc);
+	}
+
+	@Nonnull
+	public IbanInfo getInfo() {
+		return info;
+	}
+
+	/**
+	 * @return Laenge der erzeugten IBANs ohne Trennzeichen, zugleich die Schrittweite im Puffer von
+	 * {@link #generateAll(CharSequence[], CharSequence[], int, int, char[])}
+	 */
+	public int getLength() {
+		return info.getAllowedLength();
+	}
+
+	/**
+	 * Erzeugt eine IBAN aus der vollstaendigen BBAN (Trennzeichen werden ignoriert).
+	 *
+	 * @throws IllegalArgumentException wenn Laenge oder Struktur der BBAN nicht zum Land passen
+	 */
+	@Nonnull
+	public IBAN generate(@Nonnull final CharSequence bban) {
+		char[] chars = new char[getLength()];
+		if (!tryGenerate(bban, chars, 0)) {
+			throw new IllegalArgumentException("BBAN passt nicht zu " + info + ": " + bban);
+		}
+		return IBAN.fromCompact(new String(chars));
+	}
+
+	/**
+	 * Erzeugt eine IBAN aus Clearing-Nummer und Kontonummer. Beide werden links mit '0' auf ihre Laenge
+	 * aufgefuellt ({@link IbanInfo#getClearingNrLength()} bzw. der Rest der BBAN), Trennzeichen werden ignoriert.
+	 * Beispiel: "9000" und "250097798" ergeben fuer CH die IBAN CH63 0900 0000 2500 9779 8.
+	 *
+	 * @throws IllegalArgumentException wenn das Land keine Clearing-Nummer kennt, eine Nummer zu lang ist oder
+	 * die BBAN nicht zur Struktur des Landes passt
+	 */
+	@Nonnull
+	public IBAN generate(@Nonnull final CharSequence clearingNr, @Nonnull final CharSequence accountNr) {
+		char[] chars = new char[getLength()];
+		if (!tryGenerate(clearingNr, accountNr, chars, 0)) {
+			throw new IllegalArgumentException(
+				"Clearing-Nr. " + clearingNr + " / Konto " + accountNr + " passen nicht zu " + info);
+		}
+		return IBAN.fromCompact(new String(chars));
+	}
+
+	/**
+	 * Schreibt die IBAN ohne Trennzeichen ({@link #getLength()} Zeichen) ab {@code offset} in {@code dest}.
+	 *
+	 * @return false, wenn Laenge oder Struktur der BBAN nicht passen; der Inhalt von {@code dest} ist dann
+	 * unbestimmt
+	 */
+	public boolean tryGenerate(@Nonnull final CharSequence bban, @Nonnull final char[] dest, final int offset) {
+		int bbanLength = getLength() - PackedIBAN.HEADER_LENGTH;
+		return valueCount(bban) == bbanLength
+			&& copyPadded(bban, bbanLength, dest, offset + PackedIBAN.HEADER_LENGTH) == bbanLength
+			&& finish(dest, offset);
+	}
+
+	/**
+	 * Schreibt die IBAN aus Clearing-Nummer und Kontonummer ohne Trennzeichen ({@link #getLength()} Zeichen) ab
+	 * {@code offset} in {@code dest}.
+	 *
+	 * @return false, wenn eine Nummer zu lang ist oder die BBAN nicht zur Struktur passt; der Inhalt von
+	 * {@code dest} ist dann unbestimmt
+	 * @throws IllegalArgumentException wenn das Land keine Clearing-Nummer kennt
+	 */
+	public boolean tryGenerate(
+		@Nonnull final CharSequence clearingNr,
+		@Nonnull final CharSequence accountNr,
+		@Nonnull final char[] dest,
+		final int offset) {
+
+		int clearingNrLength = info.getClearingNrLength();
+		if (clearingNrLength == 0) {
+			throw new IllegalArgumentException("Keine Clearing-Nr.-Laenge bekannt fuer " + info);
+		}
+		int accountLength = getLength() - PackedIBAN.HEADER_LENGTH - clearingNrLength;
+		int start = offset + PackedIBAN.HEADER_LENGTH;
+		return copyPadded(clearingNr, clearingNrLength, dest, start) == clearingNrLength
+			&& copyPadded(accountNr, accountLength, dest, start + clearingNrLength) == accountLength
+			&& finish(dest, offset);
+	}
+
+	/**
+	 * Erzeugt viele IBANs in einen wiederverwendbaren Puffer: Eintrag {@code i} steht ab Position
+	 * {@code (i - from) * getLength()}.
+	 *
+	 * @return Positionen {@code i - from} der erfolgreich erzeugten IBANs; die Plaetze der anderen werden mit
+	 * Leerzeichen gefuellt
+	 * @throws IllegalArgumentException wenn die Arrays unterschiedlich lang sind, der Puffer zu klein ist oder das
+	 * Land keine Clearing-Nummer kennt
+	 */
+	@Nonnull
+	public BitSet generateAll(
+		@Nonnull final CharSequence[] clearingNrs,
+		@Nonnull final CharSequence[] accountNrs,
+		final int from,
+		final int to,
+		@Nonnull final char[] buffer) {
+
+		if (clearingNrs.length != accountNrs.length) {
+			throw new IllegalArgumentException(
+				"Anzahl Clearing-Nrn. (" + clearingNrs.length + ") und Konten (" + accountNrs.length + ") verschieden");
+		}
+		if (from < 0 || to > clearingNrs.length || from > to) {
+			throw new IndexOutOfBoundsException("from: " + from + ", to: " + to + ", length: " + clearingNrs.length);
+		}
+		int stride = getLength();
+		if ((long) (to - from) * stride > buffer.length) {
+			throw new IllegalArgumentException(
+				"Puffer zu klein fuer " + (to - from) + " IBANs: " + buffer.length + " < " + (to - from) * stride);
+		}
+		BitSet generated = new BitSet(to - from);
+		for (int i = from; i < to; i++) {
+			int offset = (i - from) * stride;
+			if (tryGenerate(clearingNrs[i], accountNrs[i], buffer, offset)) {
+				generated.set(i - from);
+			} else {
+				Arrays.fill(buffer, offset, offset + stride, ' ');
+			}
+		}
+		return generated;
+	}
+
+	/**
+	 * @see #generateAll(CharSequence[], CharSequence[], int, int, char[])
+	 */
+	@Nonnull
+	public BitSet generateAll(
+		@Nonnull final CharSequence[] clearingNrs,
+		@Nonnull final CharSequence[] accountNrs,
+		@Nonnull final char[] buffer) {
+
+		return generateAll(clearingNrs, accountNrs, 0, clearingNrs.length, buffer);
+	}
+
+	/**
+	 * Kopiert die Zeichen ohne Trennzeichen in Grossbuchstaben, links mit '0' auf {@code length} aufgefuellt.
+	 *
+	 * @return {@code length} bei Erfolg, sonst -1 (zu lang oder '_')
+	 */
+	private static int copyPadded(
+		@Nonnull final CharSequence value,
+		final int length,
+		@Nonnull final char[] dest,
+		final int offset) {
+
+		int count = valueCount(value);
+		if (count < 0 || count > length) {
+			return -1;
+		}
+		int pos = offset;
+		for (int i = count; i < length; i++) {
+			dest[pos++] = '0';
+		}
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (Mod97.numericValue(c) != Mod97.NO_VALUE) {
+				dest[pos++] = Character.toUpperCase(c);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * @return Anzahl Buchstaben und Ziffern, -1 wenn '_' vorkommt
+	 */
+	private static int valueCount(@Nonnull final CharSequence value) {
+		int count = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (Mod97.numericValue(c) != Mod97.NO_VALUE) {
+				count++;
+			} else if (c == '_') {
+				return -1;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Prueft die bereits geschriebene BBAN gegen die Struktur und schreibt Laendercode und Pruefziffern davor.
+	 */
+	private boolean finish(@Nonnull final char[] dest, final int offset) {
+		int bbanLength = getLength() - PackedIBAN.HEADER_LENGTH;
+		int start = offset + PackedIBAN.HEADER_LENGTH;
+		int letters = 0;
+		long acc = 0;
+		for (int i = 0; i < bbanLength; i++) {
+			int value = Mod97.numericValue(dest[start + i]);
+			if (value >= 10) {
+				letters |= 1 << i;
+			}
+			acc = Mod97.append(acc, value);
+		}
+		if (!info.getBbanFormat().matches(bbanLength, letters)) {
+			return false;
+		}
+		int checkDigits = checkDigits(acc, country0, country1);
+		dest[offset] = info.getCountryCode().charAt(0);
+		dest[offset + 1] = info.getCountryCode().charAt(1);
+		//noinspection NumericCastThatLosesPrecision
+		dest[offset + 2] = (char) ('0' + checkDigits / 10);
+		//noinspection NumericCastThatLosesPrecision
+		dest[offset + 3] = (char) ('0' + checkDigits % 10);
+		return true;
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.Serializable;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+
+/**
+ * IBAN-Angaben eines Landes gemaess SWIFT IBAN Registry.
+ */
+public final class IbanInfo implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Nonnull
+	private final String countryCode;
+	private final int allowedLength;
+	private final int clearingNrLength;
+	@Nonnull
+	private final String bbanStructure;
+	@Nonnull
+	private final BbanFormat bbanFormat;
+
+	/**
+	 * @param countryCode zwei Buchstaben, z.B. "CH"
+	 * @param allowedLength Gesamtlaenge der IBAN
+	 * @param clearingNrLength Laenge der Clearing-Nummer (Bank-Identifikation), 0 wenn unbekannt
+	 * @param bbanStructure BBAN-Struktur in der Notation der SWIFT IBAN Registry, z.B. "5!n12!c". Leer, wenn
+	 * nicht bekannt.
+	 * @throws IllegalArgumentException wenn die Angaben nicht zueinander passen
+	 */
+	public IbanInfo(
+		@Nonnull final String countryCode,
+		final int allowedLength,
+		final int clearingNrLength,
+		@Nonnull final String bbanStructure) {
+
+		String code = countryCode.toUpperCase(Locale.ENGLISH);
+		if (IbanRegistry.countryIndex(code) < 0) {
+			throw new IllegalArgumentException("Ungueltiger Laendercode: " + countryCode);
+		}
+		if (allowedLength <= PackedIBAN.HEADER_LENGTH || allowedLength > PackedIBAN.MAX_LENGTH) {
+			throw new IllegalArgumentException("Ungueltige IBAN-Laenge fuer " + code + ": " + allowedLength);
+		}
+		if (clearingNrLength < 0 || clearingNrLength > allowedLength - PackedIBAN.HEADER_LENGTH) {
+			throw new IllegalArgumentException("Ungueltige Clearing-Nr.-Laenge fuer " + code + ": " + clearingNrLength);
+		}
+		BbanFormat format = BbanFormat.compile(bbanStructure);
+		if (format != BbanFormat.ANY && format.getLength() != allowedLength - PackedIBAN.HEADER_LENGTH) {
+			throw new IllegalArgumentException(
+				"BBAN-Struktur " + bbanStructure + " passt nicht zur IBAN-Laenge " + allowedLength + " von " + code);
+		}
+		this.countryCode = code;
+		this.allowedLength = allowedLength;
+		this.clearingNrLength = clearingNrLength;
+		this.bbanStructure = bbanStructure;
+		this.bbanFormat = format;
+	}
+
+	@Nonnull
+	public String getCountryCode() {
+		return countryCode;
+	}
+
+	public int getAllowedLength() {
+		return allowedLength;
+	}
+
+	public int getClearingNrLength() {
+		return clearingNrLength;
+	}
+
+	/**
+	 * @return BBAN-Struktur in der Notation der SWIFT IBAN Registry, leer wenn nicht bekannt
+	 */
+	@Nonnull
+	public String getBbanStructure() {
+		return bbanStructure;
+	}
+
+	/**
+	 * @return die kompilierte {@link #getBbanStructure() BBAN-Struktur}
+	 */
+	@Nonnull
+	BbanFormat getBbanFormat() {
+		return bbanFormat;
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "IbanInfo[" + countryCode + ',' + allowedLength + ',' + clearingNrLength + ',' + bbanStructure + ']';
+	}
+}
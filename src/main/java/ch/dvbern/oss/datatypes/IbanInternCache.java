@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Groessenbeschraenkter Cache, welcher fuer gleiche Eingaben dieselbe {@link IBAN}-Instanz zurueckgibt.
+ * <p>
+ * Der Cache ist in Sets zu je {@value #WAYS} Plaetzen aufgeteilt (set-assoziativ). Ein Treffer setzt nur ein
+ * Referenz-Bit; bei einem Fehlschlag wird innerhalb des Sets nach dem CLOCK-Verfahren der erste Platz ohne
+ * Referenz-Bit ersetzt. Lesen braucht keine Locks und erzeugt bei einem Treffer keine Objekte. Konkurrierende
+ * Schreiber koennen sich gegenseitig einen Eintrag ueberschreiben; das kostet hoechstens einen spaeteren
+ * Fehlschlag, die Groesse bleibt immer beschraenkt.
+ */
+public final class IbanInternCache {
+
+	/**
+	 * System-Property fuer die Groesse des {@link #getDefault() Standard-Caches}.
+	 */
+	public static final String DEFAULT_SIZE_PROPERTY = "ch.dvbern.oss.datatypes.iban.internCacheSize";
+
+	static final int DEFAULT_SIZE = 1 << 16;
+	static final int WAYS = 4;
+	private static final int MAX_SIZE = 1 << 30;
+
+	@Nonnull
+	private final AtomicReferenceArray<IBAN> slots;
+	/**
+	 * Referenz-Bits pro Platz. Gelegentlich verlorene Updates durch Races sind harmlos.
+	 */
+	@Nonnull
+	private final byte[] referenced;
+	/**
+	 * CLOCK-Zeiger pro Set.
+	 */
+	@Nonnull
+	private final byte[] hands;
+	private final int setMask;
+
+	/**
+	 * @param maximumSize maximale Anzahl Eintraege, wird auf eine Zweierpotenz (mindestens {@value #WAYS})
+	 * aufgerundet
+	 */
+	public IbanInternCache(final int maximumSize) {
+		if (maximumSize <= 0) {
+			throw new IllegalArgumentException("maximumSize muss positiv sein: " + maximumSize);
+		}
+		int size = Math.min(Math.max(WAYS, maximumSize), MAX_SIZE);
+		int sets = Integer.highestOneBit(size * 2 - 1) / WAYS;
+		this.slots = new AtomicReferenceArray<>(sets * WAYS);
+		this.referenced = new byte[sets * WAYS];
+		this.hands = new byte[sets];
+		this.setMask = sets - 1;
+	}
+
+	/**
+	 * @return den von {@link IBAN#intern(CharSequence)} verwendeten Cache, Groesse gemaess
+	 * {@value #DEFAULT_SIZE_PROPERTY} (Default {@value #DEFAULT_SIZE})
+	 */
+	@Nonnull
+	public static IbanInternCache getDefault() {
+		return DefaultHolder.INSTANCE;
+	}
+
+	private static final class DefaultHolder {
+		private static final IbanInternCache INSTANCE =
+			new IbanInternCache(Integer.getInteger(DEFAULT_SIZE_PROPERTY, DEFAULT_SIZE));
+	}
+
+	/**
+	 * @return maximale Anzahl Eintraege
+	 */
+	public int capacity() {
+		return slots.length();
+	}
+
+	/**
+	 * Gibt die geteilte Instanz fuer diese Eingabe zurueck oder legt sie an. Trennzeichen werden wie in
+	 * {@link IBAN#IBAN(String)} ignoriert, "CH63 0900..." und "CH6309000..." ergeben also dieselbe Instanz.
+	 * Die Gueltigkeit ({@link IBAN#check()}) ist bei neuen Instanzen bereits berechnet.
+	 */
+	@Nonnull
+	public IBAN intern(@Nonnull final CharSequence iban) {
+		int hash = compactHash(iban);
+		int base = (spread(hash) & setMask) * WAYS;
+		for (int way = 0; way < WAYS; way++) {
+			IBAN candidate = slots.get(base + way);
+			if (candidate != null && matches(candidate.getIbannummer(), hash, iban)) {
+				if (referenced[base + way] == 0) {
+					referenced[base + way] = 1;
+				}
+				return candidate;
+			}
+		}
+		IBAN created = IBAN.fromCompact(IBAN.compact(iban));
+		created.check();
+		int victim = selectVictim(base);
+		slots.set(base + victim, created);
+		return created;
+	}
+
+	/**
+	 * CLOCK innerhalb eines Sets: leere Plaetze zuerst, sonst Referenz-Bits loeschen, bis ein Platz ohne Bit
+	 * gefunden wird.
+	 */
+	private int selectVictim(final int base) {
+		for (int way = 0; way < WAYS; way++) {
+			if (slots.get(base + way) == null) {
+				return way;
+			}
+		}
+		int set = base / WAYS;
+		int hand = hands[set];
+		while (referenced[base + hand] != 0) {
+			referenced[base + hand] = 0;
+			hand = (hand + 1) % WAYS;
+		}
+		//noinspection NumericCastThatLosesPrecision
+		hands[set] = (byte) ((hand + 1) % WAYS);
+		return hand;
+	}
+
+	/**
+	 * Entfernt alle Eintraege.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+			referenced[i] = 0;
+		}
+	}
+
+	/**
+	 * @return {@link String#hashCode()} der Eingabe ohne Trennzeichen, ohne diese zu erzeugen
+	 */
+	static int compactHash(@Nonnull final CharSequence iban) {
+		int hash = 0;
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			if (IBAN.isWordChar(c)) {
+				hash = 31 * hash + c;
+			}
+		}
+		return hash;
+	}
+
+	private static int spread(final int hash) {
+		return hash ^ hash >>> 16;
+	}
+
+	private static boolean matches(@Nonnull final String compact, final int hash, @Nonnull final CharSequence iban) {
+		if (compact.hashCode() != hash) {
+			return false;
+		}
+		int pos = 0;
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			if (IBAN.isWordChar(c)) {
+				if (pos >= compact.length() || compact.charAt(pos) != c) {
+					return false;
+				}
+				pos++;
+			}
+		}
+		return pos == compact.length();
+	}
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Verzeichnis der IBAN-Laender, direkt indexiert ueber die beiden Buchstaben des Laendercodes (26x26 Tabelle).
+ * <p>
+ * Eine Instanz ist unveraenderlich. Die aktuell gueltige Instanz ({@link #getInstance()}) kann zur Laufzeit
+ * atomar ersetzt werden ({@link #install(IbanRegistry)}, {@link #register(IbanInfo...)}); Leser brauchen dafuer
+ * keine Locks.
+ * <p>
+ * Beim Start wird die Registry aus der Datei in der System-Property {@value #REGISTRY_FILE_PROPERTY} geladen,
+ * ohne diese aus der mitgelieferten Datei {@value #DEFAULT_RESOURCE}. Format siehe {@link #load(Reader)}.
+ */
+public final class IbanRegistry {
+
+	/**
+	 * System-Property mit dem Pfad einer lokalen Registry-Datei, welche beim Start anstelle der mitgelieferten
+	 * geladen wird.
+	 */
+	public static final String REGISTRY_FILE_PROPERTY = "ch.dvbern.oss.datatypes.iban.registry";
+
+	static final String DEFAULT_RESOURCE = "iban-registry.txt";
+
+	static final int COUNTRY_LETTERS = 26;
+	static final int COUNTRY_COUNT = COUNTRY_LETTERS * COUNTRY_LETTERS;
+
+	/**
+	 * Zaehler fuer {@link #getGeneration()}, muss vor {@link #CURRENT} initialisiert werden.
+	 */
+	private static final AtomicInteger GENERATIONS = new AtomicInteger();
+
+	private static final AtomicReference<IbanRegistry> CURRENT = new AtomicReference<>(loadInitial());
+
+	@Nonnull
+	private final IbanInfo[] infos;
+
+	private final int generation;
+
+	private IbanRegistry(@Nonnull final IbanInfo[] infos) {
+		this.infos = infos;
+		this.generation = GENERATIONS.incrementAndGet();
+	}
+
+	/**
+	 * @return die aktuell gueltige Registry
+	 */
+	@Nonnull
+	public static IbanRegistry getInstance() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Ersetzt die aktuell gueltige Registry atomar.
+	 */
+	public static void install(@Nonnull final IbanRegistry registry) {
+		CURRENT.set(registry);
+	}
+
+	/**
+	 * Fuegt der aktuell gueltigen Registry Laender hinzu oder ersetzt bestehende (copy-on-write).
+	 *
+	 * @return die neue Registry
+	 */
+	@Nonnull
+	public static IbanRegistry register(@Nonnull final IbanInfo... additionalInfos) {
+		return CURRENT.updateAndGet(registry -> registry.with(additionalInfos));
+	}
+
+	/**
+	 * @return eine Registry ohne Laender
+	 */
+	@Nonnull
+	public static IbanRegistry empty() {
+		return new IbanRegistry(new IbanInfo[COUNTRY_COUNT]);
+	}
+
+	/**
+	 * @return eine Kopie dieser Registry mit den zusaetzlichen (oder ersetzten) Laendern
+	 */
+	@Nonnull
+	public IbanRegistry with(@Nonnull final IbanInfo... additionalInfos) {
+		IbanInfo[] copy = infos.clone();
+		for (IbanInfo info : additionalInfos) {
+			copy[countryIndex(info.getCountryCode())] = info;
+		}
+		return new IbanRegistry(copy);
+	}
+
+	/**
+	 * Liest eine Registry-Datei. Pro Zeile ein Land, Felder durch ';' getrennt:
+	 * <pre>
+	 * Laendercode;IBAN-Laenge;Laenge Clearing-Nr.;BBAN-Struktur
+	 * CH;21;5;5!n12!c
+	 * </pre>
+	 * Leere Zeilen und Zeilen, die mit '#' beginnen, werden ignoriert. Die BBAN-Struktur darf fehlen.
+	 *
+	 * @throws IllegalArgumentException bei einer ungueltigen Zeile
+	 */
+	@Nonnull
+	public static IbanRegistry load(@Nonnull final Reader reader) throws IOException {
+		List<IbanInfo> loaded = new ArrayList<>();
+		BufferedReader r = new BufferedReader(reader);
+		int lineNr = 0;
+		for (String line = r.readLine(); line != null; line = r.readLine()) {
+			lineNr++;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+				continue;
+			}
+			loaded.add(parseLine(trimmed, lineNr));
+		}
+		return empty().with(loaded.toArray(new IbanInfo[0]));
+	}
+
+	/**
+	 * @see #load(Reader)
+	 */
+	@Nonnull
+	public static IbanRegistry load(@Nonnull final Path file) throws IOException {
+		try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return load(reader);
+		}
+	}
+
+	@Nonnull
+	private static IbanInfo parseLine(@Nonnull final String line, final int lineNr) {
+		String[] fields = line.split(";", -1);
+		if (fields.length < 3 || fields.length > 4) {
+			throw new IllegalArgumentException("Ungueltige Zeile " + lineNr + " in IBAN-Registry: " + line);
+		}
+		try {
+			return new IbanInfo(
+				fields[0].trim(),
+				Integer.parseInt(fields[1].trim()),
+				Integer.parseInt(fields[2].trim()),
+				fields.length > 3 ? fields[3].trim() : "");
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Ungueltige Zeile " + lineNr + " in IBAN-Registry: " + line, e);
+		}
+	}
+
+	@Nonnull
+	private static IbanRegistry loadInitial() {
+		try {
+			String file = System.getProperty(REGISTRY_FILE_PROPERTY);
+			if (file != null && !file.isEmpty()) {
+				return load(Paths.get(file));
+			}
+			InputStream in = IbanRegistry.class.getResourceAsStream(DEFAULT_RESOURCE);
+			if (in == null) {
+				throw new IllegalStateException("IBAN-Registry nicht gefunden: " + DEFAULT_RESOURCE);
+			}
+			try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+				return load(reader);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("IBAN-Registry konnte nicht gelesen werden", e);
+		}
+	}
+
+	/**
+	 * @param value0 numerischer Wert des ersten Zeichens, siehe {@link Mod97#numericValue(int)}
+	 * @param value1 numerischer Wert des zweiten Zeichens
+	 * @return Index 0-675 des Laendercodes oder -1, wenn eines der Zeichen kein Buchstabe ist
+	 */
+	static int countryIndex(final int value0, final int value1) {
+		if (value0 < 10 || value1 < 10) {
+			return -1;
+		}
+		return (value0 - 10) * COUNTRY_LETTERS + value1 - 10;
+	}
+
+	/**
+	 * @return Index 0-675 des Laendercodes oder -1, wenn es kein Laendercode aus zwei Buchstaben ist
+	 */
+	static int countryIndex(@Nonnull final CharSequence countryCode) {
+		if (countryCode.length() != 2) {
+			return -1;
+		}
+		return countryIndex(Mod97.numericValue(countryCode.charAt(0)), Mod97.numericValue(countryCode.charAt(1)));
+	}
+
+	/**
+	 * @param countryIndex siehe {@link #countryIndex(int, int)}
+	 * @return die Angaben zum Land oder null
+	 */
+	@Nullable
+	IbanInfo get(final int countryIndex) {
+		return countryIndex < 0 ? null : infos[countryIndex];
+	}
+
+	/**
+	 * @param countryCode zwei Buchstaben, Gross-/Kleinschreibung egal
+	 * @return die Angaben zum Land oder null, wenn das Land unbekannt ist
+	 */
+	@Nullable
+	public IbanInfo get(@Nonnull final CharSequence countryCode) {
+		return get(countryIndex(countryCode));
+	}
+
+	/**
+	 * @return eindeutige, aufsteigende Nummer dieser Instanz. Erlaubt es, Ergebnisse, welche mit einer bestimmten
+	 * Registry berechnet wurden, guenstig als veraltet zu erkennen.
+	 */
+	int getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * @return alle Laender, sortiert nach Laendercode
+	 */
+	@Nonnull
+	public List<IbanInfo> getInfos() {
+		List<IbanInfo> result = new ArrayList<>();
+		for (IbanInfo info : infos) {
+			if (info != null) {
+				result.add(info);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Unveraenderliche Menge von IBANs ausserhalb des Heaps, z.B. fuer Sperrlisten mit Millionen Eintraegen.
+ * <p>
+ * Die IBANs werden gepackt wie in {@link PackedIBAN} (4 longs = 32 Bytes pro Platz) in einer Hashtabelle mit
+ * offener Adressierung (linear probing) in einem Direct- oder memory-mapped {@link ByteBuffer} abgelegt. Die
+ * Tabelle ist hoechstens zu 2/3 gefuellt. {@link #contains(CharSequence)} packt die Eingabe in lokale
+ * Variablen und liest nur mit absoluten Gets, erzeugt also keine Objekte und ist ohne Locks thread-safe.
+ * <p>
+ * Dateiformat ({@link #write(Path)}, {@link #open(Path)}): 16 Bytes Header (Magic, Version, Anzahl Plaetze,
+ * Anzahl Eintraege), danach die Plaetze. Leere Plaetze sind 0.
+ */
+public final class IbanSet {
+
+	private static final int MAGIC = 0x49425354; // "IBST"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int WORDS = 4;
+	private static final int SLOT_SIZE = WORDS * Long.BYTES;
+	private static final int MAX_SLOTS = 1 << 25;
+	private static final int MIN_SLOTS = 16;
+
+	@Nonnull
+	private final ByteBuffer buffer;
+	private final int mask;
+	private final int size;
+
+	private IbanSet(@Nonnull final ByteBuffer buffer) {
+		if (buffer.capacity() < HEADER_SIZE
+			|| buffer.getInt(0) != MAGIC
+			|| buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IllegalArgumentException("Kein IbanSet (Version " + VERSION + ')');
+		}
+		int slots = buffer.getInt(2 * Integer.BYTES);
+		if (Integer.bitCount(slots) != 1 || buffer.capacity() != HEADER_SIZE + (long) slots * SLOT_SIZE) {
+			throw new IllegalArgumentException("IbanSet ist unvollstaendig oder beschaedigt");
+		}
+		this.buffer = buffer;
+		this.mask = slots - 1;
+		this.size = buffer.getInt(3 * Integer.BYTES);
+	}
+
+	/**
+	 * Erstellt die Menge in einem Direct-Buffer. Doppelte Eintraege (auch in anderer Schreibweise) werden nur
+	 * einmal aufgenommen.
+	 *
+	 * @throws IllegalArgumentException wenn ein Eintrag nicht die Struktur einer IBAN hat (siehe
+	 * {@link PackedIBAN#parse(CharSequence)}) oder es zu viele Eintraege sind
+	 */
+	@Nonnull
+	public static IbanSet of(@Nonnull final Iterable<? extends CharSequence> ibans) {
+		Builder builder = new Builder();
+		for (CharSequence iban : ibans) {
+			builder.add(PackedIBAN.parse(iban));
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Erstellt die Menge aus einer Textdatei (UTF-8) mit einer IBAN pro Zeile. Leere Zeilen und Zeilen, die mit
+	 * '#' beginnen, werden ignoriert.
+	 *
+	 * @throws IllegalArgumentException wenn eine Zeile keine IBAN-Struktur hat
+	 */
+	@Nonnull
+	public static IbanSet fromLines(@Nonnull final Path textFile) throws IOException {
+		Builder builder = new Builder();
+		try (BufferedReader reader = Files.newBufferedReader(textFile, StandardCharsets.UTF_8)) {
+			int lineNr = 0;
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				lineNr++;
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.charAt(0) == '#') {
+					continue;
+				}
+				try {
+					builder.add(PackedIBAN.parse(trimmed));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Zeile " + lineNr + " in " + textFile + ": " + e.getMessage(), e);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Oeffnet eine mit {@link #write(Path)} geschriebene Datei memory-mapped (read-only).
+	 */
+	@Nonnull
+	public static IbanSet open(@Nonnull final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("IbanSet zu gross: " + file);
+			}
+			return new IbanSet(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @param buffer Inhalt einer mit {@link #write(Path)} geschriebenen Datei, ab Index 0
+	 */
+	@Nonnull
+	public static IbanSet wrap(@Nonnull final ByteBuffer buffer) {
+		return new IbanSet(buffer);
+	}
+
+	/**
+	 * Schreibt die Menge in eine Datei, welche mit {@link #open(Path)} wieder geoeffnet werden kann.
+	 */
+	public void write(@Nonnull final Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+			StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer source = buffer.duplicate();
+			((Buffer) source).clear();
+			long written = 0;
+			while (written < source.capacity()) {
+				written += channel.write(source, written);
+			}
+		}
+	}
+
+	/**
+	 * @return Anzahl Eintraege
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true, wenn die IBAN in der Menge ist. Trennzeichen und Gross-/Kleinschreibung werden ignoriert.
+	 * Eingaben ohne IBAN-Struktur sind nie enthalten.
+	 */
+	public boolean contains(@Nonnull final CharSequence iban) {
+		int length = 0;
+		int country0 = 0;
+		int check0 = 0;
+		int country = 0;
+		int checkDigits = 0;
+		long word0 = 0;
+		long word1 = 0;
+		long word2 = 0;
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					return false;
+				}
+				continue;
+			}
+			switch (length) {
+			case 0:
+				country0 = value;
+				break;
+			case 1:
+				country = IbanRegistry.countryIndex(country0, value);
+				break;
+			case 2:
+				check0 = value;
+				break;
+			case 3:
+				checkDigits = check0 * 10 + value;
+				if (check0 > 9 || value > 9) {
+					return false;
+				}
+				break;
+			default:
+				int bbanIndex = length - PackedIBAN.HEADER_LENGTH;
+				long bits = PackedIBAN.encode(value) << PackedIBAN.shift(bbanIndex);
+				if (bbanIndex < PackedIBAN.CHARS_PER_WORD) {
+					word0 |= bits;
+				} else if (bbanIndex < 2 * PackedIBAN.CHARS_PER_WORD) {
+					word1 |= bits;
+				} else if (bbanIndex < PackedIBAN.MAX_BBAN_LENGTH) {
+					word2 |= bits;
+				} else {
+					return false;
+				}
+			}
+			length++;
+		}
+		if (length <= PackedIBAN.HEADER_LENGTH || country < 0) {
+			return false;
+		}
+		return contains(PackedIBAN.headerWord(country, checkDigits, length - PackedIBAN.HEADER_LENGTH),
+			word0, word1, word2);
+	}
+
+	public boolean contains(@Nonnull final PackedIBAN iban) {
+		return contains(iban.headerWord(), iban.bbanWord(0), iban.bbanWord(1), iban.bbanWord(2));
+	}
+
+	public boolean contains(@Nonnull final IBAN iban) {
+		return contains(iban.getIbannummer());
+	}
+
+	private boolean contains(final long header, final long word0, final long word1, final long word2) {
+		for (int slot = hash(header, word0, word1, word2) & mask; ; slot = slot + 1 & mask) {
+			int offset = HEADER_SIZE + slot * SLOT_SIZE;
+			long stored = buffer.getLong(offset);
+			if (stored == 0) {
+				return false;
+			}
+			if (stored == header
+				&& buffer.getLong(offset + Long.BYTES) == word0
+				&& buffer.getLong(offset + 2 * Long.BYTES) == word1
+				&& buffer.getLong(offset + 3 * Long.BYTES) == word2) {
+				return true;
+			}
+		}
+	}
+
+	static int hash(final long header, final long word0, final long word1, final long word2) {
+		long h = header * 0x9E3779B97F4A7C15L;
+		h = (h ^ word0) * 0xC2B2AE3D27D4EB4FL;
+		h = (h ^ word1) * 0x165667B19E3779F9L;
+		h = (h ^ word2) * 0x9E3779B97F4A7C15L;
+		//noinspection NumericCastThatLosesPrecision
+		return (int) (h ^ h >>> 32);
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "IbanSet[size=" + size + ",slots=" + (mask + 1) + ']';
+	}
+
+	/**
+	 * Sammelt die gepackten Eintraege in einem long[] (statt in Objekten) und baut daraus die Tabelle.
+	 */
+	private static final class Builder {
+		@Nonnull
+		private long[] entries = new long[WORDS * 1024];
+		private int count;
+
+		private void add(@Nonnull final PackedIBAN iban) {
+			if (count * WORDS == entries.length) {
+				entries = Arrays.copyOf(entries, entries.length * 2);
+			}
+			int offset = count * WORDS;
+			entries[offset] = iban.headerWord();
+			entries[offset + 1] = iban.bbanWord(0);
+			entries[offset + 2] = iban.bbanWord(1);
+			entries[offset + 3] = iban.bbanWord(2);
+			count++;
+		}
+
+		@Nonnull
+		private IbanSet build() {
+			long wanted = Math.max(MIN_SLOTS, (long) count * 3 / 2 + 1);
+			if (wanted > MAX_SLOTS) {
+				throw new IllegalArgumentException("Zu viele Eintraege fuer ein IbanSet: " + count);
+			}
+			int slots = Integer.highestOneBit((int) wanted - 1) << 1;
+			ByteBuffer buffer = ByteBuffer.allocateDirect(HEADER_SIZE + slots * SLOT_SIZE);
+			int mask = slots - 1;
+			int size = 0;
+			for (int i = 0; i < count; i++) {
+				int offset = i * WORDS;
+				if (insert(buffer, mask, entries[offset], entries[offset + 1], entries[offset + 2],
+					entries[offset + 3])) {
+					size++;
+				}
+			}
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(Integer.BYTES, VERSION);
+			buffer.putInt(2 * Integer.BYTES, slots);
+			buffer.putInt(3 * Integer.BYTES, size);
+			return new IbanSet(buffer);
+		}
+
+		/**
+		 * @return false, wenn der Eintrag schon vorhanden war
+		 */
+		private static boolean insert(
+			@Nonnull final ByteBuffer buffer,
+			final int mask,
+			final long header,
+			final long word0,
+			final long word1,
+			final long word2) {
+
+			for (int slot = hash(header, word0, word1, word2) & mask; ; slot = slot + 1 & mask) {
+				int offset = HEADER_SIZE + slot * SLOT_SIZE;
+				long stored = buffer.getLong(offset);
+				if (stored == 0) {
+					buffer.putLong(offset, header);
+					buffer.putLong(offset + Long.BYTES, word0);
+					buffer.putLong(offset + 2 * Long.BYTES, word1);
+					buffer.putLong(offset + 3 * Long.BYTES, word2);
+					return true;
+				}
+				if (stored == header
+					&& buffer.getLong(offset + Long.BYTES) == word0
+					&& buffer.getLong(offset + 2 * Long.BYTES) == word1
+					&& buffer.getLong(offset + 3 * Long.BYTES) == word2) {
+					return false;
+				}
+			}
+		}
+	}
+}
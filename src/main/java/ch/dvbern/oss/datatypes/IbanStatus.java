@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+/**
+ * Ergebnis der Validierung einer IBAN, siehe {@link IBAN#check(CharSequence)}.
+ * <p>
+ * Gemeldet wird der erste Fehler. {@link #INVALID_CHARACTER} wird schon beim Lesen der Zeichen erkannt und hat
+ * daher Vorrang vor allen anderen, auch vor {@link #TOO_SHORT}; die uebrigen Pruefungen laufen nach dem Lesen in
+ * der Reihenfolge der Konstanten ab.
+ */
+public enum IbanStatus {
+
+	/**
+	 * Format und Pruefziffern sind korrekt.
+	 */
+	VALID,
+	/**
+	 * Weniger als vier Zeichen (Laendercode und Pruefziffern), auch fuer null.
+	 */
+	TOO_SHORT,
+	/**
+	 * Ein Zeichen, das weder Trennzeichen noch Buchstabe oder Ziffer ist ('_').
+	 */
+	INVALID_CHARACTER,
+	/**
+	 * Der Laendercode ist nicht in der {@link IbanRegistry}.
+	 */
+	UNKNOWN_COUNTRY,
+	/**
+	 * Die Laenge passt nicht zum Land.
+	 */
+	INVALID_LENGTH,
+	/**
+	 * Die BBAN entspricht nicht der Struktur des Landes, z.B. Buchstaben wo nur Ziffern erlaubt sind.
+	 */
+	INVALID_BBAN_FORMAT,
+	/**
+	 * Die Pruefziffern sind keine Ziffern oder die Pruefsumme (mod 97) stimmt nicht.
+	 */
+	INVALID_CHECK_DIGITS;
+
+	public boolean isValid() {
+		return this == VALID;
+	}
+}
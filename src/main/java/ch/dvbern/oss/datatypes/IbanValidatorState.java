@@ -0,0 +1,267 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Validiert eine IBAN waehrend der Eingabe: Zeichen werden einzeln oder in Stuecken angehaengt, der Zustand
+ * (laufender Rest mod 97, Land, erwartete Laenge, Buchstaben-Positionen der BBAN) wird dabei nachgefuehrt.
+ * Jedes angehaengte Zeichen kostet O(1), {@link #getStatus()} und {@link #getError()} ebenfalls. Es werden
+ * keine Objekte erzeugt.
+ * <p>
+ * Das Ergebnis von {@link #getStatus()} entspricht immer {@link IBAN#check(CharSequence)} ueber alle bisher
+ * angehaengten Zeichen. Zum Loeschen von Zeichen {@link #reset()} aufrufen und neu anhaengen.
+ * <p>
+ * Nicht thread-safe.
+ */
+public final class IbanValidatorState {
+
+	@Nonnull
+	private IbanRegistry registry;
+	@Nullable
+	private IbanInfo info;
+
+	/**
+	 * Anzahl Zeichen ohne Trennzeichen.
+	 */
+	private int length;
+	private int country0;
+	private int country1;
+	private int check0;
+	private int check1;
+	/**
+	 * Bit i gesetzt, wenn an Position i der BBAN ein Buchstabe steht.
+	 */
+	private int letters;
+	private long acc;
+	private boolean invalidCharacter;
+	/**
+	 * false, sobald ein Zeichen der BBAN nicht zur Struktur des Landes passt.
+	 */
+	private boolean bbanFormatOk;
+
+	/**
+	 * Verwendet die aktuelle {@link IbanRegistry#getInstance() Registry}.
+	 */
+	public IbanValidatorState() {
+		this(IbanRegistry.getInstance());
+	}
+
+	public IbanValidatorState(@Nonnull final IbanRegistry registry) {
+		this.registry = registry;
+		this.bbanFormatOk = true;
+	}
+
+	/**
+	 * Setzt den Zustand zurueck und uebernimmt dabei die aktuelle {@link IbanRegistry#getInstance() Registry}.
+	 *
+	 * @return this
+	 */
+	@Nonnull
+	public IbanValidatorState reset() {
+		return reset(IbanRegistry.getInstance());
+	}
+
+	/**
+	 * @return this
+	 */
+	@Nonnull
+	public IbanValidatorState reset(@Nonnull final IbanRegistry newRegistry) {
+		registry = newRegistry;
+		info = null;
+		length = 0;
+		country0 = 0;
+		country1 = 0;
+		check0 = 0;
+		check1 = 0;
+		letters = 0;
+		acc = 0;
+		invalidCharacter = false;
+		bbanFormatOk = true;
+		return this;
+	}
+
+	/**
+	 * Haengt ein Zeichen an. Trennzeichen (alles ausser Buchstaben, Ziffern und '_') werden ignoriert.
+	 *
+	 * @return this
+	 */
+	@Nonnull
+	public IbanValidatorState append(final char c) {
+		int value = Mod97.numericValue(c);
+		if (value == Mod97.NO_VALUE) {
+			if (c == '_') {
+				invalidCharacter = true;
+			}
+			return this;
+		}
+		switch (length) {
+		case 0:
+			country0 = value;
+			break;
+		case 1:
+			country1 = value;
+			info = registry.get(IbanRegistry.countryIndex(country0, value));
+			break;
+		case 2:
+			check0 = value;
+			break;
+		case 3:
+			check1 = value;
+			break;
+		default:
+			appendBban(length - PackedIBAN.HEADER_LENGTH, value);
+		}
+		length++;
+		return this;
+	}
+
+	private void appendBban(final int position, final int value) {
+		if (position >= PackedIBAN.MAX_BBAN_LENGTH) {
+			// in jedem Fall zu lang, weder Struktur noch Rest spielen noch eine Rolle
+			return;
+		}
+		boolean letter = value >= 10;
+		if (letter) {
+			letters |= 1 << position;
+		}
+		if (info != null && position < info.getAllowedLength() - PackedIBAN.HEADER_LENGTH
+			&& !info.getBbanFormat().allows(position, letter)) {
+			bbanFormatOk = false;
+		}
+		acc = Mod97.append(acc, value);
+	}
+
+	/**
+	 * @return this
+	 */
+	@Nonnull
+	public IbanValidatorState append(@Nonnull final CharSequence chars) {
+		return append(chars, 0, chars.length());
+	}
+
+	/**
+	 * Haengt die Zeichen {@code start} (inklusive) bis {@code end} (exklusive) an.
+	 *
+	 * @return this
+	 */
+	@Nonnull
+	public IbanValidatorState append(@Nonnull final CharSequence chars, final int start, final int end) {
+		for (int i = start; i < end; i++) {
+			append(chars.charAt(i));
+		}
+		return this;
+	}
+
+	/**
+	 * @return Anzahl bisher angehaengter Zeichen ohne Trennzeichen
+	 */
+	public int length() {
+		return length;
+	}
+
+	/**
+	 * @return die Angaben zum erkannten Land, null solange weniger als zwei Zeichen angehaengt wurden oder das
+	 * Land unbekannt ist
+	 */
+	@Nullable
+	public IbanInfo getInfo() {
+		return info;
+	}
+
+	/**
+	 * @return erwartete Gesamtlaenge ohne Trennzeichen oder -1, solange das Land nicht bekannt ist
+	 */
+	public int getExpectedLength() {
+		return info == null ? -1 : info.getAllowedLength();
+	}
+
+	/**
+	 * @return wie viele Zeichen noch fehlen (negativ, wenn es zu viele sind) oder -1, solange das Land nicht
+	 * bekannt ist
+	 */
+	public int getRemaining() {
+		return info == null ? -1 : info.getAllowedLength() - length;
+	}
+
+	/**
+	 * @return true, wenn die erwartete Laenge erreicht ist
+	 */
+	public boolean isComplete() {
+		return info != null && length == info.getAllowedLength();
+	}
+
+	/**
+	 * Teilstatus waehrend der Eingabe: ein Fehler, der sich durch weitere Zeichen nicht mehr beheben laesst,
+	 * oder null, solange die bisherige Eingabe noch zu einer gueltigen IBAN ergaenzt werden kann. Eine zu kurze
+	 * Eingabe ist also kein Fehler, ein falscher Rest mod 97 erst bei vollstaendiger Laenge
+	 * (siehe {@link #getStatus()}).
+	 */
+	@Nullable
+	public IbanStatus getError() {
+		if (invalidCharacter) {
+			return IbanStatus.INVALID_CHARACTER;
+		}
+		if (length >= 2 && info == null) {
+			return IbanStatus.UNKNOWN_COUNTRY;
+		}
+		if (info != null && length > info.getAllowedLength()) {
+			return IbanStatus.INVALID_LENGTH;
+		}
+		if (!bbanFormatOk) {
+			return IbanStatus.INVALID_BBAN_FORMAT;
+		}
+		if (length > 2 && check0 > 9 || length > 3 && check1 > 9) {
+			return IbanStatus.INVALID_CHECK_DIGITS;
+		}
+		return null;
+	}
+
+	/**
+	 * @return true, solange die bisherige Eingabe noch zu einer gueltigen IBAN ergaenzt werden kann
+	 */
+	public boolean isValidPrefix() {
+		return getError() == null;
+	}
+
+	/**
+	 * @return der Status der bisherigen Eingabe als vollstaendige IBAN, identisch zu
+	 * {@link IBAN#check(CharSequence)}
+	 */
+	@Nonnull
+	public IbanStatus getStatus() {
+		if (invalidCharacter) {
+			return IbanStatus.INVALID_CHARACTER;
+		}
+		return IBAN.evaluate(registry, length, country0, country1, check0, check1, letters, acc);
+	}
+
+	/**
+	 * @return true, wenn {@link #getStatus()} {@link IbanStatus#VALID} ist
+	 */
+	public boolean isValid() {
+		return getStatus() == IbanStatus.VALID;
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "IbanValidatorState[length=" + length + ",expectedLength=" + getExpectedLength()
+			+ ",status=" + getStatus() + ']';
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+/**
+ * Tabellengesteuerte Berechnung gewichteter Pruefziffern nach Modulo 10: EAN-13 (Gewichte 3/1, AHV-Nummer) und
+ * Luhn (Gewichte 2/1 mit Quersumme, ZPV-Nummer).
+ * <p>
+ * Die Ziffern werden von rechts in Bloecken zu {@value #BLOCK_DIGITS} verarbeitet: die gewichtete Summe eines
+ * Blocks steht direkt in einer Tabelle, pro Block faellt also nur ein Array-Zugriff und eine Division an statt
+ * einer Division und Verzweigung pro Ziffer. Da die Blockgroesse gerade ist, beginnt jeder Block wieder mit dem
+ * Gewicht der rechtesten Ziffer. Es werden keine Objekte erzeugt.
+ */
+final class Mod10Gewichtet {
+
+	static final int BLOCK_DIGITS = 4;
+	private static final int BLOCK_SIZE = 10_000;
+
+	/**
+	 * {@code EAN[block]}: Summe der Ziffern des Blocks, von rechts abwechselnd mal 3 und mal 1.
+	 */
+	private static final byte[] EAN = new byte[BLOCK_SIZE];
+	/**
+	 * {@code LUHN[block]}: Summe der Ziffern des Blocks, von rechts abwechselnd verdoppelt (mit Quersumme) und
+	 * einfach.
+	 */
+	private static final byte[] LUHN = new byte[BLOCK_SIZE];
+
+	static {
+		for (int block = 0; block < BLOCK_SIZE; block++) {
+			int ean = 0;
+			int luhn = 0;
+			boolean ungeradePosition = true;
+			for (int rest = block; rest > 0; rest /= 10) {
+				int ziffer = rest % 10;
+				if (ungeradePosition) {
+					ean += ziffer * 3;
+					luhn += ziffer * 2 >= 10 ? ziffer * 2 - 9 : ziffer * 2;
+				} else {
+					ean += ziffer;
+					luhn += ziffer;
+				}
+				ungeradePosition = !ungeradePosition;
+			}
+			//noinspection NumericCastThatLosesPrecision
+			EAN[block] = (byte) ean;
+			//noinspection NumericCastThatLosesPrecision
+			LUHN[block] = (byte) luhn;
+		}
+	}
+
+	private Mod10Gewichtet() {
+		// utility
+	}
+
+	/**
+	 * Pruefziffer nach EAN-13: die rechteste Ziffer zaehlt dreifach.
+	 *
+	 * @param nummer ohne Pruefziffer; nicht positive Werte ergeben 0
+	 */
+	static int ean(final long nummer) {
+		return pruefziffer(sum(EAN, nummer));
+	}
+
+	/**
+	 * Pruefziffer nach Luhn: die rechteste Ziffer wird verdoppelt.
+	 *
+	 * @param nummer ohne Pruefziffer; nicht positive Werte ergeben 0
+	 */
+	static int luhn(final long nummer) {
+		return pruefziffer(sum(LUHN, nummer));
+	}
+
+	private static int sum(final byte[] table, final long nummer) {
+		int sum = 0;
+		for (long rest = nummer; rest > 0; rest /= BLOCK_SIZE) {
+			//noinspection NumericCastThatLosesPrecision
+			sum += table[(int) (rest % BLOCK_SIZE)];
+		}
+		return sum;
+	}
+
+	private static int pruefziffer(final int sum) {
+		return (10 - sum % 10) % 10;
+	}
+}
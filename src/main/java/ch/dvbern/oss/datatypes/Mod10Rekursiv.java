@@ -0,0 +1,82 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+/**
+ * Tabellengesteuerte Berechnung der Pruefziffer nach Modulo 10 rekursiv (Postkonto, QR-Referenz,
+ * ESR-Referenz).
+ * <p>
+ * Der Uebertrag nach jeder Ziffer steht direkt in {@link #NEXT}, pro Ziffer faellt also nur ein Array-Zugriff
+ * an. Es werden keine Objekte erzeugt.
+ */
+final class Mod10Rekursiv {
+
+	private static final int[] TABELLE = { 0, 9, 4, 6, 8, 2, 7, 1, 3, 5 };
+
+	/**
+	 * {@code NEXT[uebertrag * 10 + ziffer]} ist der neue Uebertrag.
+	 */
+	private static final byte[] NEXT = new byte[100];
+
+	static {
+		for (int uebertrag = 0; uebertrag < 10; uebertrag++) {
+			for (int ziffer = 0; ziffer < 10; ziffer++) {
+				//noinspection NumericCastThatLosesPrecision
+				NEXT[uebertrag * 10 + ziffer] = (byte) TABELLE[(uebertrag + ziffer) % 10];
+			}
+		}
+	}
+
+	private Mod10Rekursiv() {
+		// utility
+	}
+
+	/**
+	 * @param uebertrag bisheriger Uebertrag (0 am Anfang)
+	 * @param ziffer 0-9
+	 * @return neuer Uebertrag
+	 */
+	static int next(final int uebertrag, final int ziffer) {
+		return NEXT[uebertrag * 10 + ziffer];
+	}
+
+	/**
+	 * @return die Pruefziffer zum Uebertrag nach der letzten Ziffer
+	 */
+	static int pruefzifferAusUebertrag(final int uebertrag) {
+		return (10 - uebertrag) % 10;
+	}
+
+	/**
+	 * Berechnet die Pruefziffer ueber die Dezimalziffern von {@code nummer}, von links nach rechts.
+	 *
+	 * @param nummer nicht negativ, ohne Pruefziffer
+	 */
+	static int pruefziffer(final long nummer) {
+		long divisor = 1;
+		while (divisor <= nummer / 10) {
+			divisor *= 10;
+		}
+		int uebertrag = 0;
+		for (long rest = nummer; divisor > 0; divisor /= 10) {
+			//noinspection NumericCastThatLosesPrecision
+			int ziffer = (int) (rest / divisor);
+			rest -= ziffer * divisor;
+			uebertrag = NEXT[uebertrag * 10 + ziffer];
+		}
+		return pruefzifferAusUebertrag(uebertrag);
+	}
+}
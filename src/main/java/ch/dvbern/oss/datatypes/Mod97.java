@@ -0,0 +1,84 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+/**
+ * Streaming-Berechnung des ISO 7064 MOD 97-10 Rests.
+ * <p>
+ * Ziffern und Buchstaben (A=10 ... Z=35) werden der Reihe nach in einen laufenden Akkumulator eingerechnet.
+ * Wie bei der stueckweisen Berechnung nach ISO 7064 wird erst reduziert, wenn der Akkumulator gross genug
+ * geworden ist, damit pro Zeichen meist nur eine Multiplikation anfaellt. Es werden keine Objekte erzeugt.
+ */
+final class Mod97 {
+
+	static final int MODULUS = 97;
+
+	/**
+	 * Der Rest, den eine gueltige IBAN ergeben muss.
+	 */
+	static final int VALID_REMAINDER = 1;
+
+	/**
+	 * Wert von {@link #numericValue(int)} fuer Zeichen, welche weder Ziffer noch Buchstabe sind.
+	 */
+	static final int NO_VALUE = -1;
+
+	/**
+	 * Ab dieser Grenze wird reduziert: {@code CHUNK_LIMIT * 100 + 35} passt noch sicher in einen long.
+	 */
+	private static final long CHUNK_LIMIT = 10_000_000_000_000_000L;
+
+	private Mod97() {
+		// utility
+	}
+
+	/**
+	 * @return 0-9 fuer Ziffern, 10-35 fuer Buchstaben (gross oder klein), sonst {@link #NO_VALUE}
+	 */
+	static int numericValue(final int c) {
+		if (c >= '0' && c <= '9') {
+			return c - '0';
+		}
+		if (c >= 'A' && c <= 'Z') {
+			return c - 'A' + 10;
+		}
+		if (c >= 'a' && c <= 'z') {
+			return c - 'a' + 10;
+		}
+		return NO_VALUE;
+	}
+
+	/**
+	 * Rechnet den numerischen Wert eines Zeichens (siehe {@link #numericValue(int)}) in den Akkumulator ein.
+	 * Buchstaben zaehlen dabei als zwei Ziffern.
+	 *
+	 * @param acc bisheriger Akkumulator (0 am Anfang)
+	 * @param value 0-35
+	 * @return neuer Akkumulator, nicht zwingend schon reduziert
+	 */
+	static long append(final long acc, final int value) {
+		long result = value < 10 ? acc * 10 + value : acc * 100 + value;
+		return result >= CHUNK_LIMIT ? result % MODULUS : result;
+	}
+
+	/**
+	 * @return den Rest modulo 97 des Akkumulators
+	 */
+	static int remainder(final long acc) {
+		//noinspection NumericCastThatLosesPrecision
+		return (int) (acc % MODULUS);
+	}
+}
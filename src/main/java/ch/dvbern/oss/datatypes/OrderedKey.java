@@ -0,0 +1,281 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Schluessel fester Laenge fuer B-Tree/LSM-Speicher: die vorzeichenlose, byteweise Sortierung der Schluessel
+ * entspricht {@code compareTo} der Datentypen.
+ * <p>
+ * Pruefziffer-Nummern werden als {@code MAX_VALUE - nummer} big-endian in so vielen Bytes geschrieben, wie
+ * {@code MAX_VALUE} des Typs braucht (AHV 6, ZPV und Postkonto 4). Damit ergibt sich die absteigende Sortierung
+ * von {@code compareTo}. Schluessel verschiedener Typen sind nicht untereinander vergleichbar.
+ * <p>
+ * Eine {@link IBAN} belegt {@value #IBAN_LENGTH} Bytes: 6 Bit pro Zeichen, aufgefuellt mit 0. Die Codes 1-63
+ * folgen der ASCII-Reihenfolge der moeglichen Zeichen ({@code 0-9 A-Z _ a-z}), daher gilt dieselbe Sortierung
+ * wie {@link String#compareTo(String)}, und auch Kleinbuchstaben bleiben beim Dekodieren erhalten.
+ */
+public final class OrderedKey {
+
+	/**
+	 * Laenge eines IBAN-Schluessels: {@value PackedIBAN#MAX_LENGTH} Zeichen zu 6 Bit.
+	 */
+	public static final int IBAN_LENGTH = (PackedIBAN.MAX_LENGTH * PackedIBAN.BITS_PER_CHAR + Byte.SIZE - 1)
+		/ Byte.SIZE;
+
+	private static final int AHV_LENGTH = byteLength(SozialversicherungsNummer.MAX_VALUE);
+	private static final int ZPV_LENGTH = byteLength(ZpvNummer.MAX_VALUE);
+	private static final int POSTKONTO_LENGTH = byteLength(PostkontoNummer.MAX_VALUE);
+
+	private static final int CHAR_MASK = (1 << PackedIBAN.BITS_PER_CHAR) - 1;
+	private static final int BYTE_MASK = 0xFF;
+	private static final char[] CHARS =
+		"\u00000123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz".toCharArray();
+	/**
+	 * Code pro ASCII-Zeichen, 0 fuer Zeichen ohne Code.
+	 */
+	private static final byte[] CODES = new byte[128];
+
+	static {
+		for (int code = 1; code < CHARS.length; code++) {
+			//noinspection NumericCastThatLosesPrecision
+			CODES[CHARS[code]] = (byte) code;
+		}
+	}
+
+	private OrderedKey() {
+		// utility class
+	}
+
+	/**
+	 * @return Laenge der Schluessel fuer Nummern dieses Typs
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen
+	 */
+	public static int length(@Nonnull final Class<? extends AbstractPruefzifferNummer> type) {
+		if (type == SozialversicherungsNummer.class) {
+			return AHV_LENGTH;
+		}
+		if (type == ZpvNummer.class) {
+			return ZPV_LENGTH;
+		}
+		if (type == PostkontoNummer.class) {
+			return POSTKONTO_LENGTH;
+		}
+		throw new IllegalArgumentException("Nicht unterstuetzter Typ: " + type.getName());
+	}
+
+	private static long maxValue(@Nonnull final Class<? extends AbstractPruefzifferNummer> type) {
+		if (type == SozialversicherungsNummer.class) {
+			return SozialversicherungsNummer.MAX_VALUE;
+		}
+		return type == ZpvNummer.class ? ZpvNummer.MAX_VALUE : PostkontoNummer.MAX_VALUE;
+	}
+
+	private static int byteLength(final long maxValue) {
+		return (Long.SIZE - Long.numberOfLeadingZeros(maxValue) + Byte.SIZE - 1) / Byte.SIZE;
+	}
+
+	@Nonnull
+	public static byte[] toBytes(@Nonnull final AbstractPruefzifferNummer nummer) {
+		ByteBuffer key = ByteBuffer.allocate(length(nummer.getClass()));
+		putNummer(key, nummer);
+		return key.array();
+	}
+
+	/**
+	 * Schreibt den Schluessel ab der aktuellen Position.
+	 *
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen oder Nummern ausserhalb von 0 bis
+	 * {@code MAX_VALUE} des Typs (nur mit {@code ofTrusted} moeglich)
+	 * @throws BufferOverflowException wenn der Schluessel keinen Platz hat
+	 */
+	public static void putNummer(@Nonnull final ByteBuffer key, @Nonnull final AbstractPruefzifferNummer nummer) {
+		Class<? extends AbstractPruefzifferNummer> type = nummer.getClass();
+		int length = length(type);
+		long maxValue = maxValue(type);
+		long value = nummer.getNummerAsLong();
+		if (value < 0 || value > maxValue) {
+			throw new IllegalArgumentException("Nummer ausserhalb des Schluesselbereichs: " + value);
+		}
+		if (key.remaining() < length) {
+			throw new BufferOverflowException();
+		}
+		long inverted = maxValue - value;
+		for (int shift = (length - 1) * Byte.SIZE; shift >= 0; shift -= Byte.SIZE) {
+			//noinspection NumericCastThatLosesPrecision
+			key.put((byte) (inverted >>> shift));
+		}
+	}
+
+	/**
+	 * Liest einen Schluessel ab der aktuellen Position. Die Pruefziffer wird erst bei Bedarf berechnet.
+	 *
+	 * @throws IllegalArgumentException fuer nicht unterstuetzte Typen oder ungueltige Schluessel
+	 * @throws java.nio.BufferUnderflowException wenn der Schluessel unvollstaendig ist
+	 */
+	@Nonnull
+	public static <T extends AbstractPruefzifferNummer> T getNummer(
+		@Nonnull final ByteBuffer key,
+		@Nonnull final Class<T> type) {
+
+		int length = length(type);
+		long inverted = 0;
+		for (int i = 0; i < length; i++) {
+			inverted = (inverted << Byte.SIZE) | (key.get() & BYTE_MASK);
+		}
+		long maxValue = maxValue(type);
+		if (inverted > maxValue) {
+			throw new IllegalArgumentException("Ungueltiger Schluessel: " + inverted);
+		}
+		long value = maxValue - inverted;
+		if (type == SozialversicherungsNummer.class) {
+			return type.cast(SozialversicherungsNummer.ofTrusted(value));
+		}
+		if (type == ZpvNummer.class) {
+			return type.cast(ZpvNummer.ofTrusted(value));
+		}
+		return type.cast(PostkontoNummer.ofTrusted(value));
+	}
+
+	@Nonnull
+	public static byte[] toBytes(@Nonnull final IBAN iban) {
+		ByteBuffer key = ByteBuffer.allocate(IBAN_LENGTH);
+		putIban(key, iban);
+		return key.array();
+	}
+
+	/**
+	 * Schreibt den Schluessel ab der aktuellen Position.
+	 *
+	 * @throws IllegalArgumentException wenn die IBAN laenger als {@value PackedIBAN#MAX_LENGTH} Zeichen ist
+	 * @throws BufferOverflowException wenn der Schluessel keinen Platz hat
+	 */
+	public static void putIban(@Nonnull final ByteBuffer key, @Nonnull final IBAN iban) {
+		String value = iban.getIbannummer();
+		if (value.length() > PackedIBAN.MAX_LENGTH) {
+			throw new IllegalArgumentException("IBAN zu lang fuer Schluessel: " + value);
+		}
+		if (key.remaining() < IBAN_LENGTH) {
+			throw new BufferOverflowException();
+		}
+		int bits = 0;
+		int pending = 0;
+		int written = 0;
+		for (int i = 0; i < value.length(); i++) {
+			bits = (bits << PackedIBAN.BITS_PER_CHAR) | code(value.charAt(i), value);
+			pending += PackedIBAN.BITS_PER_CHAR;
+			if (pending >= Byte.SIZE) {
+				pending -= Byte.SIZE;
+				//noinspection NumericCastThatLosesPrecision
+				key.put((byte) (bits >>> pending));
+				written++;
+			}
+		}
+		if (pending > 0) {
+			//noinspection NumericCastThatLosesPrecision
+			key.put((byte) (bits << (Byte.SIZE - pending)));
+			written++;
+		}
+		for (; written < IBAN_LENGTH; written++) {
+			key.put((byte) 0);
+		}
+	}
+
+	private static int code(final char c, @Nonnull final String iban) {
+		int code = c < CODES.length ? CODES[c] : 0;
+		if (code == 0) {
+			throw new IllegalArgumentException("Zeichen '" + c + "' nicht erlaubt: " + iban);
+		}
+		return code;
+	}
+
+	/**
+	 * Liest einen Schluessel ab der aktuellen Position.
+	 *
+	 * @throws IllegalArgumentException wenn auf die Auffuellung nochmals Zeichen folgen
+	 * @throws java.nio.BufferUnderflowException wenn der Schluessel unvollstaendig ist
+	 */
+	@Nonnull
+	public static IBAN getIban(@Nonnull final ByteBuffer key) {
+		char[] chars = new char[PackedIBAN.MAX_LENGTH];
+		int length = 0;
+		boolean end = false;
+		int bits = 0;
+		int available = 0;
+		for (int i = 0; i < PackedIBAN.MAX_LENGTH; i++) {
+			if (available < PackedIBAN.BITS_PER_CHAR) {
+				bits = (bits << Byte.SIZE) | (key.get() & BYTE_MASK);
+				available += Byte.SIZE;
+			}
+			available -= PackedIBAN.BITS_PER_CHAR;
+			int code = (bits >>> available) & CHAR_MASK;
+			if (code == 0) {
+				end = true;
+			} else if (end) {
+				throw new IllegalArgumentException("Ungueltiger IBAN-Schluessel");
+			} else {
+				chars[length++] = CHARS[code];
+			}
+		}
+		if ((bits & (1 << available) - 1) != 0) {
+			throw new IllegalArgumentException("Ungueltiger IBAN-Schluessel");
+		}
+		return IBAN.fromCompact(new String(chars, 0, length));
+	}
+
+	/**
+	 * Vergleicht die verbleibenden Bytes ({@code position} bis {@code limit}) vorzeichenlos, ohne die Puffer zu
+	 * veraendern oder zu kopieren. Ein Schluessel, der Anfang des anderen ist, kommt zuerst.
+	 */
+	public static int compare(@Nonnull final ByteBuffer a, @Nonnull final ByteBuffer b) {
+		int offsetA = a.position();
+		int offsetB = b.position();
+		int length = Math.min(a.remaining(), b.remaining());
+		int i = 0;
+		for (; i + Long.BYTES <= length; i += Long.BYTES) {
+			long x = bigEndianLong(a, offsetA + i);
+			long y = bigEndianLong(b, offsetB + i);
+			if (x != y) {
+				return Long.compareUnsigned(x, y);
+			}
+		}
+		for (; i < length; i++) {
+			int cmp = Integer.compare(a.get(offsetA + i) & BYTE_MASK, b.get(offsetB + i) & BYTE_MASK);
+			if (cmp != 0) {
+				return cmp;
+			}
+		}
+		return Integer.compare(a.remaining(), b.remaining());
+	}
+
+	/**
+	 * @see #compare(ByteBuffer, ByteBuffer)
+	 */
+	public static int compare(@Nonnull final byte[] a, @Nonnull final byte[] b) {
+		return compare(ByteBuffer.wrap(a), ByteBuffer.wrap(b));
+	}
+
+	private static long bigEndianLong(@Nonnull final ByteBuffer buffer, final int index) {
+		long value = buffer.getLong(index);
+		return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+	}
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Kompakte, kanonische Darstellung einer IBAN fuer grosse Mengen im Speicher.
+ * <p>
+ * Laendercode, Pruefziffern und BBAN werden in primitiven Feldern abgelegt: die BBAN (maximal 30 Zeichen) mit
+ * 6 Bit pro Zeichen in drei longs. Eine Instanz belegt damit 48 Bytes und referenziert keine weiteren Objekte.
+ * Kleinbuchstaben werden beim Packen in Grossbuchstaben umgewandelt, {@link #equals(Object)} und
+ * {@link #hashCode()} sind also unabhaengig von der Schreibweise; der Hash wird einmalig im Konstruktor berechnet.
+ * <p>
+ * Die Sortierung entspricht {@link IBAN#compareTo(IBAN)} auf der kanonischen (grossgeschriebenen) Form.
+ */
+public final class PackedIBAN implements Serializable, Comparable<PackedIBAN> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Maximale Laenge einer IBAN gemaess ISO 13616.
+	 */
+	public static final int MAX_LENGTH = 34;
+
+	static final int HEADER_LENGTH = 4;
+	static final int MAX_BBAN_LENGTH = MAX_LENGTH - HEADER_LENGTH;
+	static final int CHARS_PER_WORD = 10;
+	static final int BITS_PER_CHAR = 6;
+	private static final long CHAR_MASK = (1L << BITS_PER_CHAR) - 1;
+
+	private final short country;
+	private final byte checkDigits;
+	private final byte bbanLength;
+	private final long bban0;
+	private final long bban1;
+	private final long bban2;
+	private final int hash;
+
+	private PackedIBAN(
+		final int country,
+		final int checkDigits,
+		final int bbanLength,
+		final long bban0,
+		final long bban1,
+		final long bban2) {
+
+		//noinspection NumericCastThatLosesPrecision
+		this.country = (short) country;
+		//noinspection NumericCastThatLosesPrecision
+		this.checkDigits = (byte) checkDigits;
+		//noinspection NumericCastThatLosesPrecision
+		this.bbanLength = (byte) bbanLength;
+		this.bban0 = bban0;
+		this.bban1 = bban1;
+		this.bban2 = bban2;
+
+		int result = country * 100 + checkDigits;
+		result = 31 * result + Long.hashCode(bban0);
+		result = 31 * result + Long.hashCode(bban1);
+		result = 31 * result + Long.hashCode(bban2);
+		this.hash = result;
+	}
+
+	/**
+	 * Packt eine IBAN. Trennzeichen werden wie in {@link IBAN#IBAN(String)} ignoriert.
+	 *
+	 * @throws IllegalArgumentException wenn die Eingabe nicht die Struktur einer IBAN hat (zwei Buchstaben,
+	 * zwei Ziffern, 1-30 Buchstaben oder Ziffern). Die Pruefziffern werden <b>nicht</b> validiert, siehe
+	 * {@link #isValid()}.
+	 */
+	@Nonnull
+	public static PackedIBAN parse(@Nonnull final CharSequence iban) {
+		int length = 0;
+		int country0 = 0;
+		int country1 = 0;
+		int check0 = 0;
+		int check1 = 0;
+		long[] words = new long[3];
+		for (int i = 0; i < iban.length(); i++) {
+			char c = iban.charAt(i);
+			int value = Mod97.numericValue(c);
+			if (value == Mod97.NO_VALUE) {
+				if (c == '_') {
+					throw invalid(iban);
+				}
+				continue;
+			}
+			switch (length) {
+			case 0:
+				country0 = value;
+				break;
+			case 1:
+				country1 = value;
+				break;
+			case 2:
+				check0 = value;
+				break;
+			case 3:
+				check1 = value;
+				break;
+			default:
+				int bbanIndex = length - HEADER_LENGTH;
+				if (bbanIndex >= MAX_BBAN_LENGTH) {
+					throw invalid(iban);
+				}
+				words[bbanIndex / CHARS_PER_WORD] |= encode(value) << shift(bbanIndex);
+			}
+			length++;
+		}
+		int countryIndex = IbanRegistry.countryIndex(country0, country1);
+		if (length <= HEADER_LENGTH || countryIndex < 0 || check0 > 9 || check1 > 9) {
+			throw invalid(iban);
+		}
+		return new PackedIBAN(countryIndex, check0 * 10 + check1, length - HEADER_LENGTH, words[0], words[1], words[2]);
+	}
+
+	/**
+	 * @see #parse(CharSequence)
+	 */
+	@Nonnull
+	public static PackedIBAN of(@Nonnull final IBAN iban) {
+		return parse(iban.getIbannummer());
+	}
+
+	@Nonnull
+	private static IllegalArgumentException invalid(@Nonnull final CharSequence iban) {
+		return new IllegalArgumentException("Keine IBAN-Struktur: " + iban);
+	}
+
+	/**
+	 * 0 ist fuer das Auffuellen reserviert, damit kuerzere BBANs vor laengeren mit gleichem Anfang sortiert werden.
+	 */
+	static long encode(final int numericValue) {
+		return numericValue + 1;
+	}
+
+	static int shift(final int bbanIndex) {
+		return (CHARS_PER_WORD - 1 - bbanIndex % CHARS_PER_WORD) * BITS_PER_CHAR;
+	}
+
+	private long word(final int index) {
+		switch (index) {
+		case 0:
+			return bban0;
+		case 1:
+			return bban1;
+		default:
+			return bban2;
+		}
+	}
+
+	/**
+	 * Laendercode, Pruefziffern und Laenge der BBAN in einem long, z.B. als Schluessel in {@link IbanSet}. Bit 63
+	 * ist immer gesetzt, der Wert also nie 0.
+	 */
+	static long headerWord(final int country, final int checkDigits, final int bbanLength) {
+		return Long.MIN_VALUE | (long) country << 16 | checkDigits << 8 | bbanLength;
+	}
+
+	long headerWord() {
+		return headerWord(country, checkDigits, bbanLength);
+	}
+
+	/**
+	 * @param index 0-2
+	 * @return je 10 Zeichen der BBAN, siehe {@link #shift(int)}
+	 */
+	long bbanWord(final int index) {
+		return word(index);
+	}
+
+	/**
+	 * @return Gesamtlaenge der IBAN (ohne Trennzeichen)
+	 */
+	public int length() {
+		return HEADER_LENGTH + bbanLength;
+	}
+
+	/**
+	 * @return das Zeichen an Position {@code index} der kanonischen Form (0 und 1: Laendercode, 2 und 3:
+	 * Pruefziffern, ab 4: BBAN)
+	 */
+	public char charAt(final int index) {
+		switch (index) {
+		case 0:
+			return (char) ('A' + country / IbanRegistry.COUNTRY_LETTERS);
+		case 1:
+			return (char) ('A' + country % IbanRegistry.COUNTRY_LETTERS);
+		case 2:
+			return (char) ('0' + checkDigits / 10);
+		case 3:
+			return (char) ('0' + checkDigits % 10);
+		default:
+			if (index < 0 || index >= length()) {
+				throw new IndexOutOfBoundsException("index: " + index + ", length: " + length());
+			}
+			return toChar(numericValueAt(index - HEADER_LENGTH));
+		}
+	}
+
+	private int numericValueAt(final int bbanIndex) {
+		//noinspection NumericCastThatLosesPrecision
+		return (int) ((word(bbanIndex / CHARS_PER_WORD) >>> shift(bbanIndex)) & CHAR_MASK) - 1;
+	}
+
+	private static char toChar(final int numericValue) {
+		return (char) (numericValue < 10 ? '0' + numericValue : 'A' + numericValue - 10);
+	}
+
+	/**
+	 * @return Laendercode, z.B. "CH"
+	 */
+	@Nonnull
+	public String getCountryCode() {
+		return new String(new char[] { charAt(0), charAt(1) });
+	}
+
+	/**
+	 * @return die beiden Pruefziffern als Zahl (0-99)
+	 */
+	public int getCheckDigits() {
+		return checkDigits;
+	}
+
+	/**
+	 * @return die BBAN in Grossbuchstaben
+	 */
+	@Nonnull
+	public String getBban() {
+		char[] chars = new char[bbanLength];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = toChar(numericValueAt(i));
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Validiert Laenge, BBAN-Struktur und Pruefziffern direkt auf der gepackten Form, analog {@link IBAN#isValid()}.
+	 */
+	public boolean isValid() {
+		IbanInfo info = IbanRegistry.getInstance().get(country);
+		if (info == null || info.getAllowedLength() != length()) {
+			return false;
+		}
+		int letters = 0;
+		long acc = 0;
+		for (int i = 0; i < bbanLength; i++) {
+			int value = numericValueAt(i);
+			if (value >= 10) {
+				letters |= 1 << i;
+			}
+			acc = Mod97.append(acc, value);
+		}
+		if (!info.getBbanFormat().matches(bbanLength, letters)) {
+			return false;
+		}
+		acc = Mod97.append(acc, country / IbanRegistry.COUNTRY_LETTERS + 10);
+		acc = Mod97.append(acc, country % IbanRegistry.COUNTRY_LETTERS + 10);
+		acc = Mod97.append(acc, checkDigits / 10);
+		acc = Mod97.append(acc, checkDigits % 10);
+		return Mod97.remainder(acc) == Mod97.VALID_REMAINDER;
+	}
+
+	/**
+	 * @return die IBAN ohne Trennzeichen in Grossbuchstaben
+	 */
+	@Nonnull
+	public String toCompactString() {
+		char[] chars = new char[length()];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = charAt(i);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return eine {@link IBAN} mit der kanonischen Form als Nummer
+	 */
+	@Nonnull
+	public IBAN toIBAN() {
+		return IBAN.fromCompact(toCompactString());
+	}
+
+	@Override
+	public int compareTo(@Nonnull final PackedIBAN other) {
+		int result = Integer.compare(country, other.country);
+		if (result == 0) {
+			result = Integer.compare(checkDigits, other.checkDigits);
+		}
+		if (result == 0) {
+			result = Long.compare(bban0, other.bban0);
+		}
+		if (result == 0) {
+			result = Long.compare(bban1, other.bban1);
+		}
+		if (result == 0) {
+			result = Long.compare(bban2, other.bban2);
+		}
+		return result;
+	}
+
+	/**
+	 * @return die IBAN in 4er Gruppen, analog {@link IBAN#toString()}
+	 */
+	@Override
+	@Nonnull
+	public String toString() {
+		char[] chars = new char[IBAN.FORMATTER.formattedLength(length())];
+		formatTo(chars, 0);
+		return new String(chars);
+	}
+
+	/**
+	 * Schreibt die IBAN in 4er-Gruppen (wie {@link #toString()}) direkt aus der gepackten Form.
+	 */
+	public void formatTo(@Nonnull final Appendable out) throws IOException {
+		int length = length();
+		for (int i = 0; i < length; i++) {
+			if (IBAN.FORMATTER.isBoundary(i, length)) {
+				out.append(' ');
+			}
+			out.append(charAt(i));
+		}
+	}
+
+	/**
+	 * Schreibt die IBAN in 4er-Gruppen (wie {@link #toString()}) ab {@code offset} in {@code dest}.
+	 *
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	public int formatTo(@Nonnull final char[] dest, final int offset) {
+		int length = length();
+		int end = offset + IBAN.FORMATTER.formattedLength(length);
+		if (offset < 0 || end > dest.length) {
+			throw new IndexOutOfBoundsException("offset: " + offset + ", capacity: " + dest.length);
+		}
+		int pos = offset;
+		for (int i = 0; i < length; i++) {
+			if (IBAN.FORMATTER.isBoundary(i, length)) {
+				dest[pos++] = ' ';
+			}
+			dest[pos++] = charAt(i);
+		}
+		return end;
+	}
+
+	@Override
+	public boolean equals(@Nullable final Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		PackedIBAN that = (PackedIBAN) o;
+
+		return hash == that.hash
+			&& country == that.country
+			&& checkDigits == that.checkDigits
+			&& bban0 == that.bban0
+			&& bban1 == that.bban1
+			&& bban2 == that.bban2;
+	}
+
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+}
@@ -15,6 +15,8 @@
 
 package ch.dvbern.oss.datatypes;
 
+import java.util.BitSet;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -27,46 +29,148 @@ import javax.annotation.Nullable;
 public class PostkontoNummer extends AbstractPruefzifferNummer implements Comparable<PostkontoNummer> {
 
 	private static final long serialVersionUID = 1L;
-	private static final long MAX_VALUE = 999999999L;
-	private static final long MIN_VALUE = 100000000L;
-	private static final int[] TABELLE = { 0, 9, 4, 6, 8, 2, 7, 1, 3, 5 };
+	static final long MAX_VALUE = 999999999L;
+	static final long MIN_VALUE = 100000000L;
+	private static final GroupFormatter FORMATTER = GroupFormatter.fromLeft('-', 2, 6);
+	private static final long GROUP1_FACTOR = 10_000_000L;
+	private static final int MIN_DIGITS = 4;
+
+	public PostkontoNummer() {
+		// Serializable Class requires a no-arg constructor
+	}
+
+	/**
+	 * Konstruktor einer neuen Postkontonummer anhand eines long.
+	 */
+	public PostkontoNummer(final long nummer) {
+
+		super(checkDigits(nummer), MIN_VALUE, MAX_VALUE);
+	}
+
+	/**
+	 * Konstruktor einer Postkontonummer anhand eines Strings.
+	 *
+	 * @throws NumberFormatException wenn die erste Ziffer 0 ist, siehe {@link #digitsOfText(CharSequence, int, int)}
+	 */
+	public PostkontoNummer(@Nonnull final String nummer) {
+
+		super(checkDigits(parseText(nummer)), MIN_VALUE, MAX_VALUE);
+	}
+
+	/**
+	 * Erstellt eine bereits gepruefte Nummer (z.B. aus der Datenbank) ohne Bereichspruefung und ohne
+	 * Auffuellen, die Nummer muss also bereits 9-stellig sein. Die Pruefziffer wird erst bei Bedarf berechnet.
+	 */
+	@Nonnull
+	public static PostkontoNummer ofTrusted(final long nummer) {
+		return new PostkontoNummer(nummer, PRUEFZIFFER_UNBEKANNT);
+	}
+
+	private PostkontoNummer(final long nummer, final int pruefziffer) {
+		super(nummer, pruefziffer);
+	}
+
+	private static long parseText(@Nonnull final String nummer) {
+		long value = parse(nummer, 0, nummer.length());
+		if (digitsOfText(nummer, 0, nummer.length()) == NO_NUMBER) {
+			throw new NumberFormatException("Postkontonummer beginnt mit 0: " + nummer);
+		}
+		return value;
+	}
+
+	/**
+	 * Wie {@link #digitsOf(CharSequence, int, int)}, lehnt aber Text ab, dessen erste Ziffer 0 ist. Aus dem long
+	 * ginge die Null verloren und {@link #pad(long)} wuerde eine andere Nummer bilden (aus 01-23456-7 wuerde
+	 * 12-003456-7).
+	 *
+	 * @return die noch nicht aufgefuellte Nummer oder {@link #NO_NUMBER}
+	 */
+	static long digitsOfText(@Nonnull final CharSequence nummer, final int start, final int end) {
+		long value = digitsOf(nummer, start, end);
+		if (value == NO_NUMBER) {
+			return NO_NUMBER;
+		}
+		for (int i = start; i < end; i++) {
+			char c = nummer.charAt(i);
+			if (c >= '0' && c <= '9') {
+				return c == '0' ? NO_NUMBER : value;
+			}
+		}
+		return value;
+	}
 
 	/**
 	 * Postkontonummern können 8 oder 9-stellig sein: XX-XXXXX-X oder
 	 * XX-XXXXXX-X Im Mittelteil muss also gegebenenfalls eine 0 ergänzt werden.
+	 *
+	 * @throws NumberFormatException wenn die Nummer weniger als {@value #MIN_DIGITS} Ziffern hat
 	 */
 	@SuppressWarnings("NonBooleanMethodNameMayNotStartWithQuestion")
-	private static String checkDigits(final String nummer) {
-
-		// group1: erste 2 Zeichen
-		// group3: letztes Zeichen
-		// group2: Rest weniger eventuelle "-" (5 oder 6-stellig)
-		String group1 = nummer.substring(0, 2);
-		String group3 = nummer.substring(nummer.length() - 1);
-		String group2 = nummer.substring(2, nummer.length() - 1);
-		group2 = NON_DIGIT.matcher(group2).replaceAll("");
-
-		return group1 + String.format("%06d", Integer.parseInt(group2)) + group3;
+	private static long checkDigits(final long nummer) {
+		long padded = pad(nummer);
+		if (padded == NO_NUMBER) {
+			throw new NumberFormatException("Postkontonummer zu kurz: " + nummer);
+		}
+		return padded;
 	}
 
-	public PostkontoNummer() {
-		// Serializable Class requires a no-arg constructor
+	/**
+	 * Wie {@code new PostkontoNummer(nummer).isValid()} (8-stellige Nummern werden aufgefuellt), aber ohne
+	 * Exception und ohne Objekte zu erzeugen.
+	 */
+	public static boolean isValid(final long nummer) {
+		return isValidPadded(pad(nummer));
 	}
 
 	/**
-	 * Konstruktor einer neuen Postkontonummer anhand eines long.
+	 * Wie {@code new PostkontoNummer(nummer).isValid()}, aber ohne Exception und ohne Objekte zu erzeugen. Die
+	 * ersten zwei Ziffern bilden den ersten Teil, die letzte Ziffer die Pruefziffer, alle Nicht-Ziffern werden
+	 * ignoriert. Eine fuehrende 0 ist ungueltig.
 	 */
-	public PostkontoNummer(final long nummer) {
+	public static boolean isValid(@Nonnull final CharSequence nummer) {
+		long value = digitsOfText(nummer, 0, nummer.length());
+		return value != NO_NUMBER && isValid(value);
+	}
 
-		super(checkDigits(String.valueOf(nummer)), MIN_VALUE, MAX_VALUE);
+	/**
+	 * Prueft alle Nummern wie {@link #isValid(long)}: Bit i in {@code out} ist danach genau dann gesetzt, wenn
+	 * {@code in[i]} gueltig ist.
+	 */
+	public static void validateAll(@Nonnull final long[] in, @Nonnull final BitSet out) {
+		out.clear(0, in.length);
+		for (int i = 0; i < in.length; i++) {
+			if (isValid(in[i])) {
+				out.set(i);
+			}
+		}
 	}
 
 	/**
-	 * Konstruktor einer Postkontonummer anhand eines Strings.
+	 * Fuellt den Mittelteil auf 6 Stellen auf: XX-XXXXX-X wird zu XX-0XXXXX-X. Negative und mindestens
+	 * 9-stellige Nummern bleiben unveraendert (und scheitern gegebenenfalls an der Bereichspruefung).
+	 *
+	 * @return die aufgefuellte Nummer oder {@link #NO_NUMBER} bei weniger als {@value #MIN_DIGITS} Ziffern
 	 */
-	public PostkontoNummer(@Nonnull final String nummer) {
+	static long pad(final long nummer) {
+		if (nummer < 0 || nummer >= MIN_VALUE) {
+			return nummer;
+		}
+		long divisor = 1;
+		int digits = 1;
+		for (long rest = nummer; rest >= 10; rest /= 10) {
+			digits++;
+			if (digits > 2) {
+				divisor *= 10;
+			}
+		}
+		if (digits < MIN_DIGITS) {
+			return NO_NUMBER;
+		}
+		return nummer / divisor * GROUP1_FACTOR + nummer % divisor;
+	}
 
-		super(checkDigits(nummer), MIN_VALUE, MAX_VALUE);
+	private static boolean isValidPadded(final long nummer) {
+		return nummer >= MIN_VALUE && nummer <= MAX_VALUE && nummer % 10 == pruefzifferVon(nummer);
 	}
 
 	/**
@@ -75,30 +179,32 @@ public class PostkontoNummer extends AbstractPruefzifferNummer implements Compar
 	@Override
 	protected int berechnePruefziffer(final long nummerToCalculate) {
 		// Entferne die Pruefziffer (ignoriere sie für die Pruefziffer Berechnung)
-		String numberAsString = String.valueOf(nummerToCalculate / 10);
-		int uebertrag = 0;
-
-		for (int i = 0; i < numberAsString.length(); i++) {
-			Integer currentDigit = Integer.valueOf(numberAsString.substring(i, i + 1));
-			uebertrag = TABELLE[(uebertrag + currentDigit) % 10];
-		}
+		return pruefzifferVon(nummerToCalculate);
+	}
 
-		return (10 - uebertrag) % 10;
+	/**
+	 * Wie {@link #berechnePruefziffer(long)}, ohne Instanz.
+	 */
+	static int pruefzifferVon(final long nummerToCalculate) {
+		return Mod10Rekursiv.pruefziffer(nummerToCalculate / 10);
 	}
 
 	@Nonnull
 	@Override
 	public String toString() {
 
-		StringBuilder sb = new StringBuilder(Long.toString(getNummerAsLong()));
-		sb.insert(2, '-');
-		sb.insert(9, '-');
-		return sb.toString();
+		return FORMATTER.toString(getNummerAsLong());
+	}
+
+	@Nonnull
+	@Override
+	GroupFormatter getFormatter() {
+		return FORMATTER;
 	}
 
 	public int compareTo(@Nonnull final PostkontoNummer o) {
 		// invers!
-		return Long.valueOf(o.getNummerAsLong()).compareTo(getNummerAsLong());
+		return Long.compare(o.getNummerAsLong(), getNummerAsLong());
 	}
 
 	protected PostkontoNummer(long nummer, long minValue, long maxValue) {
@@ -116,4 +222,13 @@ public class PostkontoNummer extends AbstractPruefzifferNummer implements Compar
 	public int hashCode() {
 		return super.hashCode();
 	}
+
+	/**
+	 * Siehe {@link CompactForm}, die Nummer wird bereits aufgefuellt gespeichert und beim Lesen nicht mehr
+	 * umgerechnet.
+	 */
+	@Nonnull
+	private Object writeReplace() {
+		return new CompactForm(this);
+	}
 }
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.BiConsumer;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongUnaryOperator;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Spalte von Pruefziffer-Nummern eines Typs, gespeichert als {@code long[]} statt als Objekte (Objekt-Header,
+ * long, int und Referenz pro Eintrag). Instanzen werden erst bei {@link #get(int)} erzeugt, fuer gueltige Eintraege
+ * mit {@code ofTrusted}, also ohne erneute Pruefung.
+ * <p>
+ * Optional wird pro Eintrag die Gueltigkeit ({@code isValid}) in einem {@link BitSet} gefuehrt. Nicht lesbare
+ * Eingaben werden als {@link #NO_NUMBER} (ungueltig) gespeichert, damit Index i immer der i-ten Eingabe entspricht.
+ * {@link #sort()}, {@link #distinct()} und die Mengenoperationen arbeiten direkt auf den long-Werten, siehe
+ * {@link SortedLongs}. Nicht thread-safe.
+ *
+ * @param <T> SozialversicherungsNummer, ZpvNummer (strict) oder PostkontoNummer
+ */
+public final class PruefzifferNummerColumn<T extends AbstractPruefzifferNummer> {
+
+	/**
+	 * Gespeicherter Wert fuer nicht lesbare Eingaben.
+	 */
+	public static final long NO_NUMBER = AbstractPruefzifferNummer.NO_NUMBER;
+
+	private static final int DEFAULT_CAPACITY = 16;
+	private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+	@Nonnull
+	private final Typ<T> typ;
+	@Nullable
+	private final BitSet validity;
+	@Nonnull
+	private long[] values;
+	private int size = 0;
+
+	private PruefzifferNummerColumn(@Nonnull final Typ<T> typ, final boolean trackValidity, final int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity darf nicht negativ sein: " + capacity);
+		}
+		this.typ = typ;
+		this.validity = trackValidity ? new BitSet() : null;
+		this.values = new long[capacity];
+	}
+
+	private PruefzifferNummerColumn(
+		@Nonnull final Typ<T> typ,
+		final boolean trackValidity,
+		@Nonnull final long[] values) {
+
+		this(typ, trackValidity, 0);
+		this.values = values;
+		this.size = values.length;
+		updateValidity();
+	}
+
+	/**
+	 * @see #of(Class, boolean) mit Gueltigkeit
+	 */
+	@Nonnull
+	public static <T extends AbstractPruefzifferNummer> PruefzifferNummerColumn<T> of(@Nonnull final Class<T> type) {
+		return of(type, true);
+	}
+
+	/**
+	 * @param type {@link SozialversicherungsNummer}, {@link ZpvNummer} oder {@link PostkontoNummer}
+	 * @param trackValidity true: die Gueltigkeit wird beim Hinzufuegen berechnet und gespeichert
+	 * @throws IllegalArgumentException fuer andere Typen
+	 */
+	@Nonnull
+	public static <T extends AbstractPruefzifferNummer> PruefzifferNummerColumn<T> of(
+		@Nonnull final Class<T> type,
+		final boolean trackValidity) {
+
+		return new PruefzifferNummerColumn<>(Typ.of(type), trackValidity, DEFAULT_CAPACITY);
+	}
+
+	@Nonnull
+	public Class<T> getType() {
+		return typ.type;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Fuegt eine Nummer hinzu, Postkontonummern werden wie im Konstruktor aufgefuellt. Postkontonummern mit weniger
+	 * als 4 Ziffern, welche der Konstruktor ablehnt, werden als {@link #NO_NUMBER} gespeichert.
+	 */
+	public void add(final long nummer) {
+		ensureCapacity(size + 1);
+		long value = typ.normalize.applyAsLong(nummer);
+		values[size] = value;
+		if (validity != null && typ.valid.test(value)) {
+			validity.set(size);
+		}
+		size++;
+	}
+
+	public void add(@Nonnull final T nummer) {
+		add(nummer.getNummerAsLong());
+	}
+
+	/**
+	 * Liest die Nummer wie der String-Konstruktor (Nicht-Ziffern werden ignoriert), ohne Zwischen-Strings.
+	 *
+	 * @return false, wenn keine Nummer gelesen werden konnte (keine Ziffern, zu lang fuer einen long oder zu kurze
+	 * bzw. mit 0 beginnende Postkontonummer); es wird dann {@link #NO_NUMBER} gespeichert
+	 */
+	public boolean add(@Nonnull final CharSequence nummer) {
+		return add(nummer, 0, nummer.length());
+	}
+
+	/**
+	 * Wie {@link #add(CharSequence)} fuer den Bereich {@code start} bis {@code end} (exklusiv).
+	 */
+	public boolean add(@Nonnull final CharSequence nummer, final int start, final int end) {
+		add(typ.text.parse(nummer, start, end));
+		return values[size - 1] != NO_NUMBER;
+	}
+
+	/**
+	 * Fuegt alle Eingaben wie {@link #add(CharSequence)} hinzu.
+	 *
+	 * @return Anzahl nicht lesbarer Eingaben
+	 */
+	public int addAll(@Nonnull final Iterable<? extends CharSequence> nummern) {
+		int failed = 0;
+		for (CharSequence nummer : nummern) {
+			if (!add(nummer)) {
+				failed++;
+			}
+		}
+		return failed;
+	}
+
+	/**
+	 * Fuegt alle Nummern hinzu, die Gueltigkeit wird mit {@code validateAll} des Typs in einem Durchgang berechnet.
+	 */
+	public void addAll(@Nonnull final long[] nummern) {
+		ensureCapacity(size + nummern.length);
+		for (int i = 0; i < nummern.length; i++) {
+			values[size + i] = typ.normalize.applyAsLong(nummern[i]);
+		}
+		if (validity != null) {
+			// validateAll fuellt Postkontonummern selbst auf, die Eingabe kann direkt geprueft werden
+			BitSet valid = new BitSet(nummern.length);
+			typ.validateAll.accept(nummern, valid);
+			for (int i = valid.nextSetBit(0); i >= 0; i = valid.nextSetBit(i + 1)) {
+				validity.set(size + i);
+			}
+		}
+		size += nummern.length;
+	}
+
+	/**
+	 * @return die gespeicherte Nummer oder {@link #NO_NUMBER}
+	 */
+	public long getLong(final int index) {
+		checkIndex(index);
+		return values[index];
+	}
+
+	/**
+	 * Erstellt die Instanz. Gueltige Eintraege ({@link #isValid(int)}) werden ohne erneute Pruefung
+	 * ({@code ofTrusted}) erstellt, alle anderen mit dem pruefenden Konstruktor, es entstehen also nie Instanzen, die
+	 * dieser ablehnen wuerde.
+	 *
+	 * @throws IllegalStateException wenn an dieser Stelle eine nicht lesbare Eingabe steht
+	 * @throws IllegalArgumentException wenn die Nummer ausserhalb des Bereichs des Typs liegt
+	 */
+	@Nonnull
+	public T get(final int index) {
+		long value = getLong(index);
+		if (value == NO_NUMBER) {
+			throw new IllegalStateException("Keine Nummer an Index " + index);
+		}
+		return isValid(index) ? typ.trusted.apply(value) : typ.checked.apply(value);
+	}
+
+	/**
+	 * Aus dem gespeicherten {@link BitSet} oder, ohne Gueltigkeit, neu berechnet.
+	 */
+	public boolean isValid(final int index) {
+		checkIndex(index);
+		return validity != null ? validity.get(index) : typ.valid.test(values[index]);
+	}
+
+	/**
+	 * @return Kopie der Gueltigkeit (Bit i gesetzt, wenn Eintrag i gueltig ist) oder null, wenn diese nicht gefuehrt
+	 * wird
+	 */
+	@Nullable
+	public BitSet getValidity() {
+		return validity == null ? null : (BitSet) validity.clone();
+	}
+
+	/**
+	 * @return Anzahl gueltiger Eintraege
+	 */
+	public int countValid() {
+		if (validity != null) {
+			return validity.cardinality();
+		}
+		int count = 0;
+		for (int i = 0; i < size; i++) {
+			if (typ.valid.test(values[i])) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Alle gespeicherten Werte in Reihenfolge, inklusive {@link #NO_NUMBER}.
+	 */
+	public void forEach(@Nonnull final LongConsumer consumer) {
+		for (int i = 0; i < size; i++) {
+			consumer.accept(values[i]);
+		}
+	}
+
+	/**
+	 * Nur die gueltigen Nummern, in Reihenfolge.
+	 */
+	public void forEachValid(@Nonnull final LongConsumer consumer) {
+		if (validity != null) {
+			for (int i = validity.nextSetBit(0); i >= 0; i = validity.nextSetBit(i + 1)) {
+				consumer.accept(values[i]);
+			}
+			return;
+		}
+		for (int i = 0; i < size; i++) {
+			if (typ.valid.test(values[i])) {
+				consumer.accept(values[i]);
+			}
+		}
+	}
+
+	/**
+	 * Sortiert in der Reihenfolge von {@code compareTo} des Typs (absteigend). Die Gueltigkeit wird mitgefuehrt.
+	 */
+	public void sort() {
+		SortedLongs.sort(values, 0, size, Typ.DESCENDING);
+		updateValidity();
+	}
+
+	/**
+	 * Entfernt Duplikate, die Spalte muss dazu sortiert sein ({@link #sort()}).
+	 */
+	public void distinct() {
+		size = SortedLongs.distinct(values, 0, size);
+		updateValidity();
+	}
+
+	/**
+	 * @return neue Spalte mit allen Nummern aus dieser oder {@code other}; beide muessen sortiert und ohne Duplikate
+	 * sein
+	 */
+	@Nonnull
+	public PruefzifferNummerColumn<T> union(@Nonnull final PruefzifferNummerColumn<T> other) {
+		return derived(SortedLongs.union(toArray(), other.toArray(), Typ.DESCENDING));
+	}
+
+	/**
+	 * @return neue Spalte mit den Nummern, die in dieser und {@code other} vorkommen; beide muessen sortiert und ohne
+	 * Duplikate sein
+	 */
+	@Nonnull
+	public PruefzifferNummerColumn<T> intersection(@Nonnull final PruefzifferNummerColumn<T> other) {
+		return derived(SortedLongs.intersection(toArray(), other.toArray(), Typ.DESCENDING));
+	}
+
+	/**
+	 * @return neue Spalte mit den Nummern dieser Spalte, die nicht in {@code other} vorkommen; beide muessen
+	 * sortiert und ohne Duplikate sein
+	 */
+	@Nonnull
+	public PruefzifferNummerColumn<T> difference(@Nonnull final PruefzifferNummerColumn<T> other) {
+		return derived(SortedLongs.difference(toArray(), other.toArray(), Typ.DESCENDING));
+	}
+
+	@Nonnull
+	private PruefzifferNummerColumn<T> derived(@Nonnull final long[] result) {
+		return new PruefzifferNummerColumn<>(typ, validity != null, result);
+	}
+
+	/**
+	 * Berechnet die Gueltigkeit nach einer Umordnung neu.
+	 */
+	private void updateValidity() {
+		if (validity == null) {
+			return;
+		}
+		validity.clear();
+		typ.validateAll.accept(size == values.length ? values : Arrays.copyOf(values, size), validity);
+	}
+
+	@Nonnull
+	public long[] toArray() {
+		return Arrays.copyOf(values, size);
+	}
+
+	public void clear() {
+		size = 0;
+		if (validity != null) {
+			validity.clear();
+		}
+	}
+
+	/**
+	 * Reduziert den Speicher auf die aktuelle Groesse.
+	 */
+	public void trimToSize() {
+		if (values.length > size) {
+			values = Arrays.copyOf(values, size);
+		}
+	}
+
+	private void ensureCapacity(final int required) {
+		if (required < 0 || required > MAX_CAPACITY) {
+			throw new IllegalStateException("Zu viele Eintraege: " + required);
+		}
+		if (required > values.length) {
+			long grown = Math.max(DEFAULT_CAPACITY, values.length + (values.length >> 1));
+			values = Arrays.copyOf(values, (int) Math.min(MAX_CAPACITY, Math.max(required, grown)));
+		}
+	}
+
+	private void checkIndex(final int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + " bei Groesse " + size);
+		}
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "PruefzifferNummerColumn[type=" + typ.type.getSimpleName() + ",size=" + size + ']';
+	}
+
+	@FunctionalInterface
+	private interface TextParser {
+		/**
+		 * @return die Nummer oder {@link #NO_NUMBER}
+		 */
+		long parse(@Nonnull CharSequence nummer, int start, int end);
+	}
+
+	/**
+	 * Typ-spezifisches Verhalten der unterstuetzten Nummern.
+	 */
+	private static final class Typ<T extends AbstractPruefzifferNummer> {
+
+		/**
+		 * Alle unterstuetzten Typen sortieren in {@code compareTo} absteigend.
+		 */
+		private static final boolean DESCENDING = true;
+
+		private static final Typ<SozialversicherungsNummer> AHV = new Typ<>(SozialversicherungsNummer.class,
+			LongUnaryOperator.identity(),
+			AbstractPruefzifferNummer::digitsOf,
+			SozialversicherungsNummer::isValid,
+			SozialversicherungsNummer::validateAll,
+			SozialversicherungsNummer::ofTrusted,
+			SozialversicherungsNummer::new);
+		private static final Typ<ZpvNummer> ZPV = new Typ<>(ZpvNummer.class,
+			LongUnaryOperator.identity(),
+			AbstractPruefzifferNummer::digitsOf,
+			ZpvNummer::isValid,
+			ZpvNummer::validateAll,
+			ZpvNummer::ofTrusted,
+			ZpvNummer::new);
+		private static final Typ<PostkontoNummer> POSTKONTO = new Typ<>(PostkontoNummer.class,
+			PostkontoNummer::pad,
+			PostkontoNummer::digitsOfText,
+			PostkontoNummer::isValid,
+			PostkontoNummer::validateAll,
+			PostkontoNummer::ofTrusted,
+			PostkontoNummer::new);
+
+		@Nonnull
+		private final Class<T> type;
+		@Nonnull
+		private final LongUnaryOperator normalize;
+		/**
+		 * Liest die Nummer aus Text, wie der String-Konstruktor.
+		 */
+		@Nonnull
+		private final TextParser text;
+		@Nonnull
+		private final LongPredicate valid;
+		@Nonnull
+		private final BiConsumer<long[], BitSet> validateAll;
+		/**
+		 * {@code ofTrusted}, nur fuer gueltige Werte.
+		 */
+		@Nonnull
+		private final LongFunction<T> trusted;
+		/**
+		 * Der pruefende Konstruktor.
+		 */
+		@Nonnull
+		private final LongFunction<T> checked;
+
+		private Typ(
+			@Nonnull final Class<T> type,
+			@Nonnull final LongUnaryOperator normalize,
+			@Nonnull final TextParser text,
+			@Nonnull final LongPredicate valid,
+			@Nonnull final BiConsumer<long[], BitSet> validateAll,
+			@Nonnull final LongFunction<T> trusted,
+			@Nonnull final LongFunction<T> checked) {
+
+			this.type = type;
+			this.normalize = normalize;
+			this.text = text;
+			this.valid = valid;
+			this.validateAll = validateAll;
+			this.trusted = trusted;
+			this.checked = checked;
+		}
+
+		@Nonnull
+		@SuppressWarnings("unchecked")
+		static <T extends AbstractPruefzifferNummer> Typ<T> of(@Nonnull final Class<T> type) {
+			if (type == SozialversicherungsNummer.class) {
+				return (Typ<T>) AHV;
+			}
+			if (type == ZpvNummer.class) {
+				return (Typ<T>) ZPV;
+			}
+			if (type == PostkontoNummer.class) {
+				return (Typ<T>) POSTKONTO;
+			}
+			throw new IllegalArgumentException("Nicht unterstuetzter Typ: " + type.getName());
+		}
+	}
+}
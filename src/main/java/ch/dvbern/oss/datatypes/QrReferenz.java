@@ -0,0 +1,188 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Datentyp QR-Referenz (27-stellig, Modulo 10 rekursiv), wie sie zusammen mit einer QR-IBAN auf der
+ * QR-Rechnung verwendet wird.
+ *
+ * @see IBAN#isQrIBAN()
+ */
+public class QrReferenz implements Serializable, Comparable<QrReferenz> {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Anzahl Ziffern inklusive Pruefziffer.
+	 */
+	public static final int LENGTH = 27;
+
+	private static final GroupFormatter FORMATTER = GroupFormatter.everyFromRight(' ', 5);
+
+	@Nonnull
+	private final String referenz;
+
+	// Serializable Class requires a no-arg constructor
+	public QrReferenz() {
+		referenz = "";
+	}
+
+	/**
+	 * Konstruktor einer QR-Referenz anhand eines Strings. Leerzeichen werden entfernt, die Gueltigkeit wird
+	 * nicht geprueft (siehe {@link #isValid()}).
+	 */
+	public QrReferenz(@Nonnull final String referenz) {
+		char[] chars = new char[referenz.length()];
+		int length = 0;
+		for (int i = 0; i < chars.length; i++) {
+			char c = referenz.charAt(i);
+			if (!Character.isWhitespace(c)) {
+				chars[length++] = c;
+			}
+		}
+		this.referenz = new String(chars, 0, length);
+	}
+
+	/**
+	 * Erstellt eine gueltige QR-Referenz: die Ziffern werden links mit 0 auf 26 Stellen aufgefuellt und die
+	 * Pruefziffer angehaengt.
+	 *
+	 * @param ohnePruefziffer 1 bis 26 Ziffern
+	 * @throws IllegalArgumentException wenn die Eingabe nicht aus 1 bis 26 Ziffern besteht
+	 */
+	@Nonnull
+	public static QrReferenz of(@Nonnull final CharSequence ohnePruefziffer) {
+		int length = ohnePruefziffer.length();
+		if (length == 0 || length >= LENGTH) {
+			throw new IllegalArgumentException("QR-Referenz muss 1 bis 26 Ziffern haben: " + ohnePruefziffer);
+		}
+		char[] chars = new char[LENGTH];
+		int padding = LENGTH - 1 - length;
+		int uebertrag = 0;
+		for (int i = 0; i < LENGTH - 1; i++) {
+			char c = i < padding ? '0' : ohnePruefziffer.charAt(i - padding);
+			if (c < '0' || c > '9') {
+				throw new IllegalArgumentException("QR-Referenz darf nur Ziffern enthalten: " + ohnePruefziffer);
+			}
+			chars[i] = c;
+			uebertrag = Mod10Rekursiv.next(uebertrag, c - '0');
+		}
+		//noinspection NumericCastThatLosesPrecision
+		chars[LENGTH - 1] = (char) ('0' + Mod10Rekursiv.pruefzifferAusUebertrag(uebertrag));
+		return new QrReferenz(new String(chars));
+	}
+
+	/**
+	 * @return die Referenz ohne Leerzeichen
+	 */
+	@Nonnull
+	public String getReferenz() {
+		return referenz;
+	}
+
+	/**
+	 * @return true, wenn die Referenz aus 27 Ziffern besteht und die letzte der Pruefziffer entspricht
+	 */
+	public boolean isValid() {
+		return isValid(referenz);
+	}
+
+	/**
+	 * Validiert eine QR-Referenz direkt auf den Zeichen, ohne Objekte zu erzeugen. Leerzeichen werden
+	 * ignoriert, alle anderen Zeichen ausser Ziffern machen die Referenz ungueltig.
+	 *
+	 * @return true, wenn die Referenz aus 27 Ziffern besteht und die letzte der Pruefziffer entspricht
+	 */
+	public static boolean isValid(@Nullable final CharSequence referenz) {
+		if (referenz == null) {
+			return false;
+		}
+		int uebertrag = 0;
+		int digits = 0;
+		int last = 0;
+		for (int i = 0; i < referenz.length(); i++) {
+			char c = referenz.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (digits > 0) {
+					// die vorherige Ziffer war nicht die letzte
+					uebertrag = Mod10Rekursiv.next(uebertrag, last);
+				}
+				if (++digits > LENGTH) {
+					return false;
+				}
+				last = c - '0';
+			} else if (!Character.isWhitespace(c)) {
+				return false;
+			}
+		}
+		return digits == LENGTH && Mod10Rekursiv.pruefzifferAusUebertrag(uebertrag) == last;
+	}
+
+	public int compareTo(@Nonnull final QrReferenz other) {
+		return referenz.compareTo(other.referenz);
+	}
+
+	/**
+	 * @return die Referenz in 5er-Gruppen von rechts, z.B. "21 00000 00003 13947 14300 09017"
+	 */
+	@Override
+	@Nonnull
+	public String toString() {
+		return FORMATTER.toString(referenz);
+	}
+
+	/**
+	 * Schreibt die Referenz in 5er-Gruppen (wie {@link #toString()}) ohne Zwischen-Strings.
+	 */
+	public void formatTo(@Nonnull final Appendable out) throws IOException {
+		FORMATTER.format(referenz, out);
+	}
+
+	/**
+	 * Schreibt die Referenz in 5er-Gruppen (wie {@link #toString()}) ab {@code offset} in {@code dest}.
+	 *
+	 * @return Position nach dem letzten geschriebenen Zeichen
+	 * @throws IndexOutOfBoundsException wenn {@code dest} zu klein ist, es wird dann nichts geschrieben
+	 */
+	public int formatTo(@Nonnull final char[] dest, final int offset) {
+		return FORMATTER.format(referenz, dest, offset);
+	}
+
+	@Override
+	public boolean equals(@Nullable final Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		QrReferenz that = (QrReferenz) o;
+
+		return referenz.equals(that.referenz);
+	}
+
+	@Override
+	public int hashCode() {
+		return referenz.hashCode();
+	}
+}
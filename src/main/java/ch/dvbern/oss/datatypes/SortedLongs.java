@@ -0,0 +1,298 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Sortieren und Mengenoperationen auf long-Arrays, z.B. fuer den Abgleich von Nummernlisten ueber
+ * {@link AbstractPruefzifferNummer#getNummerAsLong()}, ohne Objekte und ohne Boxing.
+ * <p>
+ * Die Reihenfolge wird mit {@code descending} gewaehlt: die Nummern-Typen sortieren in {@code compareTo}
+ * absteigend, siehe {@link PruefzifferNummerColumn#sort()}. Die Mengenoperationen erwarten sortierte Eingaben ohne
+ * Duplikate (siehe {@link #distinct(long[], int, int)}) in dieser Reihenfolge und liefern wieder solche.
+ */
+public final class SortedLongs {
+
+	private static final int RADIX_BITS = 8;
+	private static final int BUCKETS = 1 << RADIX_BITS;
+	private static final int DIGITS = Long.SIZE / RADIX_BITS;
+	/**
+	 * Kleinere Bereiche werden mit {@link Arrays#sort(long[], int, int)} sortiert.
+	 */
+	static final int RADIX_THRESHOLD = 1 << 12;
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+	private SortedLongs() {
+		// utility
+	}
+
+	/**
+	 * @see #sort(long[], int, int, boolean) fuer das ganze Array
+	 */
+	public static void sort(@Nonnull final long[] values, final boolean descending) {
+		sort(values, 0, values.length, descending);
+	}
+
+	/**
+	 * Stabiles LSD-Radix-Sort mit 8 Bit pro Durchgang. Grosse Bereiche werden in Stuecke aufgeteilt, deren
+	 * Histogramme und Verteilung im {@link ForkJoinPool#commonPool()} parallel laufen. Durchgaenge, in denen alle
+	 * Werte dasselbe Byte haben (z.B. die oberen Bytes von 13-stelligen Nummern), werden uebersprungen.
+	 */
+	public static void sort(@Nonnull final long[] values, final int from, final int to, final boolean descending) {
+		int chunks = Math.min(ForkJoinPool.getCommonPoolParallelism(), (to - from) / MIN_CHUNK_SIZE);
+		sort(values, from, to, descending, Math.max(1, chunks));
+	}
+
+	/**
+	 * @param chunks Anzahl parallel verarbeiteter Stuecke
+	 */
+	static void sort(
+		@Nonnull final long[] values,
+		final int from,
+		final int to,
+		final boolean descending,
+		final int chunks) {
+
+		checkRange(values, from, to);
+		int length = to - from;
+		if (length < RADIX_THRESHOLD) {
+			Arrays.sort(values, from, to);
+			if (descending) {
+				reverse(values, from, to);
+			}
+			return;
+		}
+		// Vorzeichen (aufsteigend) bzw. alle anderen Bits (absteigend) kippen: dann sortieren die Schluessel
+		// vorzeichenlos in der gewuenschten Reihenfolge
+		long flip = descending ? Long.MAX_VALUE : Long.MIN_VALUE;
+		int chunkSize = (length + chunks - 1) / chunks;
+
+		long[] source = from == 0 && to == values.length ? values : Arrays.copyOfRange(values, from, to);
+		long[] target = new long[length];
+		int[] totals = histogram(source, flip);
+		for (int digit = 0; digit < DIGITS; digit++) {
+			if (isConstant(totals, digit, length)) {
+				continue;
+			}
+			scatter(source, target, flip, digit, chunks, chunkSize);
+			long[] swap = source;
+			source = target;
+			target = swap;
+		}
+		if (source != values) {
+			System.arraycopy(source, 0, values, from, length);
+		}
+	}
+
+	/**
+	 * Histogramme aller Bytes ueber das ganze Array, um konstante Bytes zu erkennen.
+	 */
+	@Nonnull
+	private static int[] histogram(@Nonnull final long[] values, final long flip) {
+		int[] totals = new int[DIGITS * BUCKETS];
+		for (long value : values) {
+			long key = value ^ flip;
+			for (int digit = 0; digit < DIGITS; digit++) {
+				//noinspection NumericCastThatLosesPrecision
+				totals[digit * BUCKETS + (int) (key >>> digit * RADIX_BITS & BUCKETS - 1)]++;
+			}
+		}
+		return totals;
+	}
+
+	private static boolean isConstant(@Nonnull final int[] totals, final int digit, final int length) {
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			int count = totals[digit * BUCKETS + bucket];
+			if (count != 0) {
+				return count == length;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Ein Durchgang: Histogramm pro Stueck, Startpositionen (Bucket vor Stueck, damit stabil), dann parallel
+	 * verteilen.
+	 */
+	private static void scatter(
+		@Nonnull final long[] source,
+		@Nonnull final long[] target,
+		final long flip,
+		final int digit,
+		final int chunks,
+		final int chunkSize) {
+
+		int shift = digit * RADIX_BITS;
+		int[][] offsets = new int[chunks][BUCKETS];
+		forEachChunk(chunks, chunk -> {
+			int[] counts = offsets[chunk];
+			int end = Math.min(source.length, (chunk + 1) * chunkSize);
+			for (int i = chunk * chunkSize; i < end; i++) {
+				//noinspection NumericCastThatLosesPrecision
+				counts[(int) ((source[i] ^ flip) >>> shift & BUCKETS - 1)]++;
+			}
+		});
+		int position = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			for (int chunk = 0; chunk < chunks; chunk++) {
+				int count = offsets[chunk][bucket];
+				offsets[chunk][bucket] = position;
+				position += count;
+			}
+		}
+		forEachChunk(chunks, chunk -> {
+			int[] next = offsets[chunk];
+			int end = Math.min(source.length, (chunk + 1) * chunkSize);
+			for (int i = chunk * chunkSize; i < end; i++) {
+				long value = source[i];
+				//noinspection NumericCastThatLosesPrecision
+				target[next[(int) ((value ^ flip) >>> shift & BUCKETS - 1)]++] = value;
+			}
+		});
+	}
+
+	private static void forEachChunk(final int chunks, @Nonnull final IntConsumer action) {
+		if (chunks == 1) {
+			action.accept(0);
+		} else {
+			IntStream.range(0, chunks).parallel().forEach(action);
+		}
+	}
+
+	/**
+	 * Entfernt aufeinanderfolgende Duplikate (in einem sortierten Bereich also alle) und schiebt die restlichen
+	 * Werte nach vorne.
+	 *
+	 * @return das neue Ende des Bereichs
+	 */
+	public static int distinct(@Nonnull final long[] values, final int from, final int to) {
+		checkRange(values, from, to);
+		if (to - from < 2) {
+			return to;
+		}
+		int end = from + 1;
+		for (int i = from + 1; i < to; i++) {
+			if (values[i] != values[end - 1]) {
+				values[end++] = values[i];
+			}
+		}
+		return end;
+	}
+
+	/**
+	 * @return alle Werte aus {@code a} oder {@code b}
+	 */
+	@Nonnull
+	public static long[] union(@Nonnull final long[] a, @Nonnull final long[] b, final boolean descending) {
+		long[] result = new long[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length && j < b.length) {
+			int cmp = compare(a[i], b[j], descending);
+			if (cmp < 0) {
+				result[n++] = a[i++];
+			} else if (cmp > 0) {
+				result[n++] = b[j++];
+			} else {
+				result[n++] = a[i++];
+				j++;
+			}
+		}
+		System.arraycopy(a, i, result, n, a.length - i);
+		n += a.length - i;
+		System.arraycopy(b, j, result, n, b.length - j);
+		n += b.length - j;
+		return trim(result, n);
+	}
+
+	/**
+	 * @return alle Werte, die in {@code a} und {@code b} vorkommen
+	 */
+	@Nonnull
+	public static long[] intersection(@Nonnull final long[] a, @Nonnull final long[] b, final boolean descending) {
+		long[] result = new long[Math.min(a.length, b.length)];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length && j < b.length) {
+			int cmp = compare(a[i], b[j], descending);
+			if (cmp < 0) {
+				i++;
+			} else if (cmp > 0) {
+				j++;
+			} else {
+				result[n++] = a[i++];
+				j++;
+			}
+		}
+		return trim(result, n);
+	}
+
+	/**
+	 * @return alle Werte aus {@code a}, die nicht in {@code b} vorkommen
+	 */
+	@Nonnull
+	public static long[] difference(@Nonnull final long[] a, @Nonnull final long[] b, final boolean descending) {
+		long[] result = new long[a.length];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length && j < b.length) {
+			int cmp = compare(a[i], b[j], descending);
+			if (cmp < 0) {
+				result[n++] = a[i++];
+			} else if (cmp > 0) {
+				j++;
+			} else {
+				i++;
+				j++;
+			}
+		}
+		System.arraycopy(a, i, result, n, a.length - i);
+		n += a.length - i;
+		return trim(result, n);
+	}
+
+	private static int compare(final long x, final long y, final boolean descending) {
+		return descending ? Long.compare(y, x) : Long.compare(x, y);
+	}
+
+	@Nonnull
+	private static long[] trim(@Nonnull final long[] values, final int length) {
+		return length == values.length ? values : Arrays.copyOf(values, length);
+	}
+
+	private static void reverse(@Nonnull final long[] values, final int from, final int to) {
+		for (int i = from, j = to - 1; i < j; i++, j--) {
+			long swap = values[i];
+			values[i] = values[j];
+			values[j] = swap;
+		}
+	}
+
+	private static void checkRange(@Nonnull final long[] values, final int from, final int to) {
+		if (from < 0 || to > values.length || from > to) {
+			throw new IndexOutOfBoundsException("Bereich " + from + '-' + to + " bei Laenge " + values.length);
+		}
+	}
+}
@@ -14,6 +14,8 @@
  */
 package ch.dvbern.oss.datatypes;
 
+import java.util.BitSet;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -28,8 +30,9 @@ public class SozialversicherungsNummer extends AbstractPruefzifferNummer
 
 	private static final long serialVersionUID = 923267806499518804L;
 
-	private static final long MAX_VALUE = 9999999999999L;
-	private static final long MIN_VALUE = 1000000000000L;
+	static final long MAX_VALUE = 9999999999999L;
+	static final long MIN_VALUE = 1000000000000L;
+	private static final GroupFormatter FORMATTER = GroupFormatter.fromLeft('.', 3, 4, 4);
 
 	public SozialversicherungsNummer() {
 		// Serializable Class requires a no-arg constructor
@@ -51,52 +54,80 @@ public class SozialversicherungsNummer extends AbstractPruefzifferNummer
 		super(nummer, MIN_VALUE, MAX_VALUE);
 	}
 
+	/**
+	 * Erstellt eine bereits gepruefte Nummer (z.B. aus der Datenbank) ohne Bereichspruefung. Die
+	 * Pruefziffer wird erst bei Bedarf berechnet.
+	 */
+	@Nonnull
+	public static SozialversicherungsNummer ofTrusted(final long nummer) {
+		return new SozialversicherungsNummer(nummer, PRUEFZIFFER_UNBEKANNT);
+	}
+
+	private SozialversicherungsNummer(final long nummer, final int pruefziffer) {
+		super(nummer, pruefziffer);
+	}
+
+	/**
+	 * Wie {@code new SozialversicherungsNummer(nummer).isValid()}, aber ohne Exception ausserhalb des Bereichs
+	 * und ohne Objekte zu erzeugen.
+	 */
+	public static boolean isValid(final long nummer) {
+		return nummer >= MIN_VALUE && nummer <= MAX_VALUE && nummer % 10 == pruefzifferVon(nummer);
+	}
+
+	/**
+	 * Wie {@code new SozialversicherungsNummer(nummer).isValid()} (Nicht-Ziffern werden ignoriert), aber ohne
+	 * Exception und ohne Objekte zu erzeugen.
+	 */
+	public static boolean isValid(@Nonnull final CharSequence nummer) {
+		return isValid(digitsOf(nummer));
+	}
+
+	/**
+	 * Prueft alle Nummern wie {@link #isValid(long)}: Bit i in {@code out} ist danach genau dann gesetzt, wenn
+	 * {@code in[i]} gueltig ist.
+	 */
+	public static void validateAll(@Nonnull final long[] in, @Nonnull final BitSet out) {
+		out.clear(0, in.length);
+		for (int i = 0; i < in.length; i++) {
+			if (isValid(in[i])) {
+				out.set(i);
+			}
+		}
+	}
+
 	/**
 	 * Berechnet die Pruefziffer.
 	 */
 	@Override
 	protected int berechnePruefziffer(final long nummerToCalculate) {
-		// Entferne die Pruefziffer (ignoriere sie für die Pruefziffer Berechnung)
-		long n = nummerToCalculate / 10;
-		int pruefziffer = 0;
-		int z = 1;
-		while (n > 0) {
-			long ziffer = n % 10;
-			//noinspection NumericCastThatLosesPrecision
-			pruefziffer = incrementPruefziffer(pruefziffer, (int) ziffer, z);
-			z++;
-			n /= 10;
-		}
-		int returnValue = 0;
-		if (pruefziffer % 10 != 0) {
-			returnValue = 10 - pruefziffer % 10;
-		}
-		return returnValue;
+		return pruefzifferVon(nummerToCalculate);
 	}
 
-	private int incrementPruefziffer(final int pruefziffer, final int ziffer, final int z) {
-
-		int increment = ziffer;
-		if (z % 2 != 0) {
-			increment *= 3;
-		}
-		return pruefziffer + increment;
+	/**
+	 * Wie {@link #berechnePruefziffer(long)}, ohne Instanz.
+	 */
+	static int pruefzifferVon(final long nummerToCalculate) {
+		// Entferne die Pruefziffer (ignoriere sie für die Pruefziffer Berechnung)
+		return Mod10Gewichtet.ean(nummerToCalculate / 10);
 	}
 
 	@Nonnull
 	@Override
 	public String toString() {
 
-		StringBuilder sb = new StringBuilder(Long.toString(getNummerAsLong()));
-		sb.insert(3, '.');
-		sb.insert(8, '.');
-		sb.insert(13, '.');
-		return sb.toString();
+		return FORMATTER.toString(getNummerAsLong());
+	}
+
+	@Nonnull
+	@Override
+	GroupFormatter getFormatter() {
+		return FORMATTER;
 	}
 
 	public int compareTo(@Nonnull final SozialversicherungsNummer o) {
 		// invers!
-		return Long.valueOf(o.getNummerAsLong()).compareTo(getNummerAsLong());
+		return Long.compare(o.getNummerAsLong(), getNummerAsLong());
 	}
 
 	@SuppressWarnings("EmptyMethod")
@@ -110,4 +141,13 @@ public class SozialversicherungsNummer extends AbstractPruefzifferNummer
 	public int hashCode() {
 		return super.hashCode();
 	}
+
+	/**
+	 * Serialisiert nur die Nummer als Varint ({@link DatatypeCodec}). Bestehende Streams im bisherigen Format
+	 * bleiben lesbar, Unterklassen verwenden weiterhin die Standard-Serialisierung.
+	 */
+	@Nonnull
+	private Object writeReplace() {
+		return new CompactForm(this);
+	}
 }
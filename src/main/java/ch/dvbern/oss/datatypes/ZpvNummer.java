@@ -14,7 +14,8 @@
  */
 package ch.dvbern.oss.datatypes;
 
-import java.text.NumberFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.BitSet;
 import java.util.Locale;
 
 import javax.annotation.Nonnull;
@@ -57,6 +58,12 @@ public class ZpvNummer extends AbstractPruefzifferNummer implements Comparable<Z
 	private static final RangeCheck CHECK_LASTTEST_ALLOWED = new CompoundRangeCheck(CHECK_STRICT, CHECK_LASTTESTONLY);
 
 	private static final Locale PRETTYPRINT_LOCALE = new Locale("de", "CH");
+	/**
+	 * Tausender-Gruppierung wie {@code NumberFormat.getInstance(PRETTYPRINT_LOCALE)}, das Trennzeichen wird nur
+	 * einmal ermittelt.
+	 */
+	private static final GroupFormatter FORMATTER = GroupFormatter.everyFromRight(
+		DecimalFormatSymbols.getInstance(PRETTYPRINT_LOCALE).getGroupingSeparator(), 3);
 
 	public ZpvNummer() {
 		// Serializable Class requires a no-arg constructor
@@ -98,51 +105,101 @@ public class ZpvNummer extends AbstractPruefzifferNummer implements Comparable<Z
 		super(nummer, strict ? CHECK_STRICT : CHECK_LASTTEST_ALLOWED);
 	}
 
-	@Override
-	protected int berechnePruefziffer(final long nummerToCalculate) {
+	/**
+	 * Erstellt eine bereits gepruefte Nummer (z.B. aus der Datenbank) ohne Bereichspruefung. Die
+	 * Pruefziffer wird erst bei Bedarf berechnet.
+	 */
+	@Nonnull
+	public static ZpvNummer ofTrusted(final long nummer) {
+		return new ZpvNummer(nummer, PRUEFZIFFER_UNBEKANNT);
+	}
 
-		//noinspection NumericCastThatLosesPrecision
-		int restlicheNummer = (int) nummerToCalculate / 10; // bestehende Pruefziffer
-		// abschneiden
-		int pruefziffer = 0;
-		boolean ungeradePosition = true;
-		while (restlicheNummer > 0) {
-			// immer nur die letzte Stelle betrachten
-			// => 0 <= ziffer <= 9
-			int ziffer = restlicheNummer % 10;
-
-			int zifferTmp = ziffer;
-			if (ungeradePosition) {
-				// Ziffer an jeder ungeraden Position verdoppeln
-				zifferTmp = ziffer * 2;
-			}
-			ungeradePosition = !ungeradePosition;
-			// => 0 <= zifferTmp <= 18
+	private ZpvNummer(final long nummer, final int pruefziffer) {
+		super(nummer, pruefziffer);
+	}
 
-			// Mehr Zufaelligkeit
-			if (zifferTmp >= 10) {
-				zifferTmp = zifferTmp % 10 + 1;
-			}
+	/**
+	 * @see #isValid(long, boolean) mit strict = true
+	 */
+	public static boolean isValid(final long nummer) {
+		return isValid(nummer, true);
+	}
+
+	/**
+	 * Wie {@code new ZpvNummer(nummer, strict).isValid()}, aber ohne Exception ausserhalb des Bereichs und ohne
+	 * Objekte zu erzeugen.
+	 */
+	public static boolean isValid(final long nummer, final boolean strict) {
+		boolean inRange = nummer >= MIN_VALUE && nummer <= MAX_VALUE
+			|| !strict && nummer >= LASTTEST_MIN_VALUE && nummer <= LASTTEST_MAX_VALUE;
+		return inRange && nummer % 10 == pruefzifferVon(nummer);
+	}
+
+	/**
+	 * @see #isValid(CharSequence, boolean) mit strict = true
+	 */
+	public static boolean isValid(@Nonnull final CharSequence nummer) {
+		return isValid(digitsOf(nummer), true);
+	}
 
-			// Checksumme aktualisieren
-			pruefziffer += zifferTmp;
+	/**
+	 * Wie {@code new ZpvNummer(nummer, strict).isValid()} (Nicht-Ziffern werden ignoriert), aber ohne Exception
+	 * und ohne Objekte zu erzeugen.
+	 */
+	public static boolean isValid(@Nonnull final CharSequence nummer, final boolean strict) {
+		return isValid(digitsOf(nummer), strict);
+	}
 
-			// naechste Stelle
-			restlicheNummer /= 10;
+	/**
+	 * @see #validateAll(long[], BitSet, boolean) mit strict = true
+	 */
+	public static void validateAll(@Nonnull final long[] in, @Nonnull final BitSet out) {
+		validateAll(in, out, true);
+	}
+
+	/**
+	 * Prueft alle Nummern wie {@link #isValid(long, boolean)}: Bit i in {@code out} ist danach genau dann gesetzt,
+	 * wenn {@code in[i]} gueltig ist.
+	 */
+	public static void validateAll(@Nonnull final long[] in, @Nonnull final BitSet out, final boolean strict) {
+		out.clear(0, in.length);
+		for (int i = 0; i < in.length; i++) {
+			if (isValid(in[i], strict)) {
+				out.set(i);
+			}
 		}
-		// Sicherstellen, dass die Pruefziffer einstellig ist
-		return (10 - pruefziffer % 10) % 10;
+	}
+
+	@Override
+	protected int berechnePruefziffer(final long nummerToCalculate) {
+		return pruefzifferVon(nummerToCalculate);
+	}
+
+	/**
+	 * Wie {@link #berechnePruefziffer(long)}, ohne Instanz.
+	 */
+	static int pruefzifferVon(final long nummerToCalculate) {
+
+		// bestehende Pruefziffer abschneiden, wie bisher nach int gekuerzt
+		//noinspection NumericCastThatLosesPrecision
+		return Mod10Gewichtet.luhn((int) nummerToCalculate / 10);
 	}
 
 	public int compareTo(@Nonnull final ZpvNummer o) {
 		// invers
-		return Long.valueOf(o.getNummerAsLong()).compareTo(getNummerAsLong());
+		return Long.compare(o.getNummerAsLong(), getNummerAsLong());
 	}
 
 	@Override
 	public String toString() {
 
-		return NumberFormat.getInstance(PRETTYPRINT_LOCALE).format(getNummerAsLong());
+		return FORMATTER.toString(getNummerAsLong());
+	}
+
+	@Nonnull
+	@Override
+	GroupFormatter getFormatter() {
+		return FORMATTER;
 	}
 
 	@SuppressWarnings("EmptyMethod")
@@ -156,4 +213,12 @@ public class ZpvNummer extends AbstractPruefzifferNummer implements Comparable<Z
 	public int hashCode() {
 		return super.hashCode();
 	}
+
+	/**
+	 * Kompakte serialisierte Form, siehe {@link CompactForm}. Die Pruefziffer wird nicht geschrieben.
+	 */
+	@Nonnull
+	private Object writeReplace() {
+		return new CompactForm(this);
+	}
 }
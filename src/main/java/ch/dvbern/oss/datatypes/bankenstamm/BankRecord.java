@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.bankenstamm;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Eintrag des Bankenstamms zu einer Institutsidentifikation (IID, frueher Clearing-Nummer).
+ */
+public final class BankRecord implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int iid;
+	@Nonnull
+	private final String name;
+	@Nullable
+	private final String bic;
+	private final boolean qrIid;
+
+	public BankRecord(final int iid, @Nonnull final String name, @Nullable final String bic, final boolean qrIid) {
+		this.iid = iid;
+		this.name = name;
+		this.bic = bic;
+		this.qrIid = qrIid;
+	}
+
+	/**
+	 * @return die IID (Clearing-Nummer)
+	 */
+	public int getIid() {
+		return iid;
+	}
+
+	@Nonnull
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return BIC oder null, wenn das Institut keinen hat
+	 */
+	@Nullable
+	public String getBic() {
+		return bic;
+	}
+
+	/**
+	 * @return true, wenn die IID eine QR-IID ist (nur fuer QR-IBAN verwendet)
+	 */
+	public boolean isQrIid() {
+		return qrIid;
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "BankRecord[iid=" + iid + ",name=" + name + ",bic=" + bic + ",qrIid=" + qrIid + ']';
+	}
+
+	@Override
+	public boolean equals(@Nullable final Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		BankRecord that = (BankRecord) o;
+
+		return iid == that.iid
+			&& qrIid == that.qrIid
+			&& name.equals(that.name)
+			&& (bic == null ? that.bic == null : bic.equals(that.bic));
+	}
+
+	@Override
+	public int hashCode() {
+		int result = iid;
+		result = 31 * result + name.hashCode();
+		result = 31 * result + (bic == null ? 0 : bic.hashCode());
+		result = 31 * result + (qrIid ? 1 : 0);
+		return result;
+	}
+}
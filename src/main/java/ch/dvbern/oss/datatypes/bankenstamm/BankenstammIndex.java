@@ -0,0 +1,456 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.bankenstamm;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import ch.dvbern.oss.datatypes.IBAN;
+
+/**
+ * Nachschlage-Index ueber den Bankenstamm der SIX (IID/Clearing-Nummer zu Bank).
+ * <p>
+ * Die CSV-Datei der SIX wird einmalig mit {@link #build(Path, Path)} in eine Binaerdatei umgewandelt, welche
+ * danach mit {@link #open(Path)} per Memory-Mapping geoeffnet wird; beim Start muss also keine CSV-Datei mehr
+ * geparst werden. Die Binaerdatei enthaelt eine direkt ueber die IID (0-99999) indexierte Tabelle mit den
+ * Positionen der Eintraege. {@link #find(int)} braucht damit konstante Zeit und erzeugt keine Objekte; erst
+ * die Zugriffe auf einzelne Felder ({@link #getName(int)}, {@link #getBic(int)}) erzeugen Strings.
+ * <p>
+ * Eine Instanz ist unveraenderlich und kann von mehreren Threads gleichzeitig gelesen werden.
+ */
+public final class BankenstammIndex {
+
+	/**
+	 * Rueckgabewert von {@code find}, wenn es keinen Eintrag gibt.
+	 */
+	public static final int NOT_FOUND = -1;
+
+	/**
+	 * IIDs sind hoechstens 5-stellig.
+	 */
+	static final int MAX_IID = 99999;
+	private static final int MAX_IID_DIGITS = 5;
+
+	/**
+	 * Bereich der QR-IIDs, falls die CSV-Datei keine entsprechende Spalte hat.
+	 */
+	static final int QR_IID_MIN = IBAN.QR_IID_MIN;
+	static final int QR_IID_MAX = IBAN.QR_IID_MAX;
+
+	private static final int MAGIC = 0x424B5354; // "BKST"
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int TABLE_OFFSET = HEADER_SIZE;
+	private static final int RECORDS_OFFSET = TABLE_OFFSET + (MAX_IID + 1) * Integer.BYTES;
+
+	private static final int BIC_LENGTH = 11;
+	private static final int RECORD_IID = 0;
+	private static final int RECORD_FLAGS = RECORD_IID + Integer.BYTES;
+	private static final int RECORD_BIC = RECORD_FLAGS + 1;
+	private static final int RECORD_NAME_LENGTH = RECORD_BIC + BIC_LENGTH;
+	private static final int RECORD_NAME = RECORD_NAME_LENGTH + Short.BYTES;
+	private static final int FLAG_QR_IID = 1;
+
+	@Nonnull
+	private final ByteBuffer buffer;
+	private final int size;
+
+	private BankenstammIndex(@Nonnull final ByteBuffer buffer) {
+		if (buffer.capacity() < RECORDS_OFFSET
+			|| buffer.getInt(0) != MAGIC
+			|| buffer.getInt(Integer.BYTES) != VERSION) {
+			throw new IllegalArgumentException("Kein Bankenstamm-Index (Version " + VERSION + ')');
+		}
+		this.buffer = buffer;
+		this.size = buffer.getInt(2 * Integer.BYTES);
+	}
+
+	/**
+	 * Oeffnet einen mit {@link #build(Path, Path)} erstellten Index per Memory-Mapping.
+	 *
+	 * @throws IllegalArgumentException wenn die Datei kein gueltiger Index ist
+	 */
+	@Nonnull
+	public static BankenstammIndex open(@Nonnull final Path index) throws IOException {
+		try (FileChannel channel = FileChannel.open(index, StandardOpenOption.READ)) {
+			return new BankenstammIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Verwendet einen Index, der bereits im Speicher liegt (z.B. aus einer Resource). Der Index sind die Bytes
+	 * zwischen {@code position} und {@code limit}; intern wird ein {@link ByteBuffer#slice() Slice} verwendet, da
+	 * alle Offsets im Index relativ zu dessen Anfang sind. Position und Limit von {@code index} werden nicht
+	 * veraendert.
+	 */
+	@Nonnull
+	public static BankenstammIndex wrap(@Nonnull final ByteBuffer index) {
+		return new BankenstammIndex(index.slice().asReadOnlyBuffer());
+	}
+
+	/**
+	 * Erstellt aus der CSV-Datei der SIX (UTF-8) eine Index-Datei.
+	 *
+	 * @see #build(Reader, OutputStream)
+	 */
+	public static void build(@Nonnull final Path csv, @Nonnull final Path index) throws IOException {
+		build(csv, StandardCharsets.UTF_8, index);
+	}
+
+	/**
+	 * @see #build(Reader, OutputStream)
+	 */
+	public static void build(
+		@Nonnull final Path csv,
+		@Nonnull final Charset charset,
+		@Nonnull final Path index) throws IOException {
+
+		try (Reader reader = Files.newBufferedReader(csv, charset);
+			OutputStream out = new BufferedOutputStream(Files.newOutputStream(index))) {
+			build(reader, out);
+		}
+	}
+
+	/**
+	 * Liest den Bankenstamm als CSV (Trennzeichen ';' oder ',') und schreibt den Index.
+	 * <p>
+	 * Die Spalten werden anhand der Kopfzeile gesucht (Gross-/Kleinschreibung egal): die IID in "IID" (bzw.
+	 * "BC-Nr"), der Name in der ersten Spalte, deren Titel "Name" enthaelt, der BIC in "BIC" (bzw. "SWIFT")
+	 * und optional das QR-IID-Kennzeichen in einer Spalte, deren Titel "QR" enthaelt. Fehlt diese, gelten die IIDs
+	 * {@value #QR_IID_MIN}-{@value #QR_IID_MAX} als QR-IIDs. Gibt es mehrere Zeilen zur selben IID (Filialen),
+	 * gilt die erste.
+	 *
+	 * @throws IllegalArgumentException wenn Spalten fehlen oder eine IID ungueltig ist
+	 */
+	public static void build(@Nonnull final Reader csv, @Nonnull final OutputStream out) throws IOException {
+		BufferedReader reader = new BufferedReader(csv);
+		String header = reader.readLine();
+		if (header == null) {
+			throw new IllegalArgumentException("Bankenstamm ist leer");
+		}
+		if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+			header = header.substring(1);
+		}
+		char separator = count(header, ';') >= count(header, ',') ? ';' : ',';
+		List<String> columns = split(header, separator);
+		int iidColumn = findColumn(columns, "iid", "bc-nr", "bc-nr.", "bcnr");
+		int nameColumn = findColumnContaining(columns, "name");
+		int bicColumn = findColumnStartingWith(columns, "bic", "swift");
+		int qrColumn = findColumnContaining(columns, "qr");
+		if (iidColumn < 0 || nameColumn < 0) {
+			throw new IllegalArgumentException("Spalten IID und Name nicht gefunden in: " + header);
+		}
+
+		int[] table = new int[MAX_IID + 1];
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream recordOut = new DataOutputStream(records);
+		int count = 0;
+		int lineNr = 1;
+		for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+			lineNr++;
+			if (line.trim().isEmpty()) {
+				continue;
+			}
+			List<String> fields = split(line, separator);
+			String iidText = field(fields, iidColumn);
+			if (iidText.isEmpty()) {
+				continue;
+			}
+			int iid = parseIid(iidText);
+			if (iid == NOT_FOUND) {
+				throw new IllegalArgumentException("Ungueltige IID in Zeile " + lineNr + ": " + iidText);
+			}
+			if (table[iid] != 0) {
+				continue;
+			}
+			boolean qrIid = qrColumn < 0
+				? iid >= QR_IID_MIN && iid <= QR_IID_MAX
+				: isYes(field(fields, qrColumn));
+			table[iid] = RECORDS_OFFSET + recordOut.size();
+			writeRecord(recordOut, iid, field(fields, nameColumn), bicColumn < 0 ? "" : field(fields, bicColumn),
+				qrIid, lineNr);
+			count++;
+		}
+		recordOut.flush();
+
+		DataOutputStream data = new DataOutputStream(out);
+		data.writeInt(MAGIC);
+		data.writeInt(VERSION);
+		data.writeInt(count);
+		data.writeInt(0);
+		for (int offset : table) {
+			data.writeInt(offset);
+		}
+		records.writeTo(data);
+		data.flush();
+	}
+
+	private static void writeRecord(
+		@Nonnull final DataOutputStream out,
+		final int iid,
+		@Nonnull final String name,
+		@Nonnull final String bic,
+		final boolean qrIid,
+		final int lineNr) throws IOException {
+
+		if (bic.length() > BIC_LENGTH) {
+			throw new IllegalArgumentException("Ungueltiger BIC in Zeile " + lineNr + ": " + bic);
+		}
+		byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+		if (nameBytes.length > 0xFFFF) {
+			throw new IllegalArgumentException("Name zu lang in Zeile " + lineNr);
+		}
+		out.writeInt(iid);
+		out.writeByte(qrIid ? FLAG_QR_IID : 0);
+		for (int i = 0; i < BIC_LENGTH; i++) {
+			out.writeByte(i < bic.length() ? bic.charAt(i) : ' ');
+		}
+		out.writeShort(nameBytes.length);
+		out.write(nameBytes);
+	}
+
+	/**
+	 * @return Anzahl Eintraege
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @param iid Institutsidentifikation (Clearing-Nummer)
+	 * @return Position des Eintrags fuer die Zugriffsmethoden oder {@link #NOT_FOUND}
+	 */
+	public int find(final int iid) {
+		if (iid < 0 || iid > MAX_IID) {
+			return NOT_FOUND;
+		}
+		int offset = buffer.getInt(TABLE_OFFSET + iid * Integer.BYTES);
+		return offset == 0 ? NOT_FOUND : offset;
+	}
+
+	/**
+	 * @param clearingNr 1-5 Ziffern, z.B. aus {@link IBAN#extractClearingNr()}
+	 * @see #find(int)
+	 */
+	public int find(@Nonnull final CharSequence clearingNr) {
+		return find(parseIid(clearingNr));
+	}
+
+	/**
+	 * @return den Eintrag zur Clearing-Nummer einer gueltigen Schweizer oder Liechtensteiner IBAN oder
+	 * {@link #NOT_FOUND}
+	 */
+	public int find(@Nonnull final IBAN iban) {
+		if (!iban.isValid() || !iban.isSwissOrLiechtenstein()) {
+			return NOT_FOUND;
+		}
+		String clearingNr = iban.extractClearingNr();
+		return clearingNr == null ? NOT_FOUND : find(clearingNr);
+	}
+
+	/**
+	 * @return den Eintrag als Objekt oder null
+	 */
+	@Nullable
+	public BankRecord get(@Nonnull final CharSequence clearingNr) {
+		return toRecord(find(clearingNr));
+	}
+
+	/**
+	 * @return den Eintrag zur Clearing-Nummer der IBAN als Objekt oder null
+	 */
+	@Nullable
+	public BankRecord get(@Nonnull final IBAN iban) {
+		return toRecord(find(iban));
+	}
+
+	@Nullable
+	private BankRecord toRecord(final int record) {
+		if (record == NOT_FOUND) {
+			return null;
+		}
+		return new BankRecord(getIid(record), getName(record), getBic(record), isQrIid(record));
+	}
+
+	/**
+	 * @param record Rueckgabewert von {@code find}
+	 */
+	public int getIid(final int record) {
+		return buffer.getInt(record + RECORD_IID);
+	}
+
+	/**
+	 * @param record Rueckgabewert von {@code find}
+	 */
+	public boolean isQrIid(final int record) {
+		return (buffer.get(record + RECORD_FLAGS) & FLAG_QR_IID) != 0;
+	}
+
+	/**
+	 * @param record Rueckgabewert von {@code find}
+	 * @return BIC oder null, wenn das Institut keinen hat
+	 */
+	@Nullable
+	public String getBic(final int record) {
+		char[] chars = new char[BIC_LENGTH];
+		int length = 0;
+		for (int i = 0; i < BIC_LENGTH; i++) {
+			char c = (char) buffer.get(record + RECORD_BIC + i);
+			if (c != ' ') {
+				chars[length++] = c;
+			}
+		}
+		return length == 0 ? null : new String(chars, 0, length);
+	}
+
+	/**
+	 * @param record Rueckgabewert von {@code find}
+	 */
+	@Nonnull
+	public String getName(final int record) {
+		int length = buffer.getShort(record + RECORD_NAME_LENGTH) & 0xFFFF;
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = buffer.get(record + RECORD_NAME + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * @return die IID oder {@link #NOT_FOUND}, wenn der Text nicht aus 1-5 Ziffern (umgeben von Leerzeichen)
+	 * besteht. Fuehrende Nullen zaehlen mit, "000001" wird also abgelehnt.
+	 */
+	static int parseIid(@Nonnull final CharSequence text) {
+		int value = 0;
+		int digits = 0;
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > MAX_IID_DIGITS) {
+					return NOT_FOUND;
+				}
+				value = value * 10 + c - '0';
+			} else if (c != ' ') {
+				return NOT_FOUND;
+			}
+		}
+		return digits == 0 ? NOT_FOUND : value;
+	}
+
+	private static boolean isYes(@Nonnull final String value) {
+		String v = value.trim().toLowerCase(Locale.ENGLISH);
+		return "y".equals(v) || "yes".equals(v) || "j".equals(v) || "ja".equals(v) || "x".equals(v)
+			|| "1".equals(v) || "true".equals(v);
+	}
+
+	private static int count(@Nonnull final String text, final char c) {
+		int count = 0;
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) == c) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Nonnull
+	private static String field(@Nonnull final List<String> fields, final int column) {
+		return column < fields.size() ? fields.get(column).trim() : "";
+	}
+
+	private static int findColumn(@Nonnull final List<String> columns, @Nonnull final String... names) {
+		for (int i = 0; i < columns.size(); i++) {
+			String column = columns.get(i).trim().toLowerCase(Locale.ENGLISH);
+			for (String name : names) {
+				if (column.equals(name)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static int findColumnStartingWith(@Nonnull final List<String> columns, @Nonnull final String... prefixes) {
+		for (int i = 0; i < columns.size(); i++) {
+			String column = columns.get(i).trim().toLowerCase(Locale.ENGLISH);
+			for (String prefix : prefixes) {
+				if (column.startsWith(prefix)) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	private static int findColumnContaining(@Nonnull final List<String> columns, @Nonnull final String part) {
+		for (int i = 0; i < columns.size(); i++) {
+			if (columns.get(i).toLowerCase(Locale.ENGLISH).contains(part)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Trennt eine CSV-Zeile; Felder duerfen in doppelten Anfuehrungszeichen stehen ("" fuer ein ").
+	 */
+	@Nonnull
+	static List<String> split(@Nonnull final String line, final char separator) {
+		List<String> fields = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else if (c == '"') {
+					quoted = false;
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == separator) {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
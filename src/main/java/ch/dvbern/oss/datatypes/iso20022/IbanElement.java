@@ -0,0 +1,105 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.iso20022;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import ch.dvbern.oss.datatypes.IBAN;
+import ch.dvbern.oss.datatypes.IbanStatus;
+
+/**
+ * Ein {@code <IBAN>}-Element aus einer ISO 20022 Nachricht samt Ergebnis der Validierung.
+ */
+public final class IbanElement {
+
+	private final long index;
+	private final int lineNumber;
+	@Nonnull
+	private final String text;
+	@Nullable
+	private final String accountElement;
+	@Nonnull
+	private final IbanStatus status;
+
+	IbanElement(
+		final long index,
+		final int lineNumber,
+		@Nonnull final String text,
+		@Nullable final String accountElement,
+		@Nonnull final IbanStatus status) {
+
+		this.index = index;
+		this.lineNumber = lineNumber;
+		this.text = text;
+		this.accountElement = accountElement;
+		this.status = status;
+	}
+
+	/**
+	 * @return fortlaufende Nummer des Elements in der Nachricht, ab 0
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * @return Zeile des Elements in der Datei oder -1, wenn unbekannt
+	 */
+	public int getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * @return der Inhalt des Elements, unveraendert
+	 */
+	@Nonnull
+	public String getText() {
+		return text;
+	}
+
+	/**
+	 * @return Name des Konto-Elements, in dem die IBAN steht (z.B. "DbtrAcct", "CdtrAcct" oder "Acct"), d.h.
+	 * das Element ueber {@code <Id>}
+	 */
+	@Nullable
+	public String getAccountElement() {
+		return accountElement;
+	}
+
+	@Nonnull
+	public IbanStatus getStatus() {
+		return status;
+	}
+
+	public boolean isValid() {
+		return status == IbanStatus.VALID;
+	}
+
+	/**
+	 * @return eine neue {@link IBAN}-Instanz, nur erzeugen, wenn der Wert behalten werden soll
+	 */
+	@Nonnull
+	public IBAN toIBAN() {
+		return new IBAN(text);
+	}
+
+	@Override
+	@Nonnull
+	public String toString() {
+		return "IbanElement[" + index + ",line=" + lineNumber + ',' + accountElement + ',' + text + ',' + status + ']';
+	}
+}
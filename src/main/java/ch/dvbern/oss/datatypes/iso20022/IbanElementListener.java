@@ -0,0 +1,30 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.iso20022;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Empfaengt die {@code <IBAN>}-Elemente von {@link Iso20022IbanScanner}.
+ */
+@FunctionalInterface
+public interface IbanElementListener {
+
+	/**
+	 * Wird im parallelen Modus aus mehreren Threads aufgerufen, muss dann also thread-safe sein.
+	 */
+	void onIban(@Nonnull IbanElement element);
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.iso20022;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import ch.dvbern.oss.datatypes.IBAN;
+
+/**
+ * Liest alle {@code <IBAN>}-Elemente aus ISO 20022 Nachrichten (z.B. pain.001, camt.053) per StAX, validiert
+ * sie und gibt sie an einen {@link IbanElementListener} weiter. Der Speicherbedarf haengt nicht von der
+ * Groesse der Datei ab, nur von der Verschachtelungstiefe und (im parallelen Modus) der Queue-Groesse.
+ * <p>
+ * Elemente werden anhand des lokalen Namens erkannt, unabhaengig vom Namespace bzw. der Version der
+ * Nachricht. DTDs und externe Entities sind deaktiviert (XXE).
+ */
+public final class Iso20022IbanScanner {
+
+	private static final String IBAN_ELEMENT = "IBAN";
+
+	/**
+	 * Markiert im parallelen Modus das Ende der Queue, eines pro Worker.
+	 */
+	private static final Pending END = new Pending(-1, -1, "", null);
+
+	private Iso20022IbanScanner() {
+		// utility
+	}
+
+	/**
+	 * Liest und validiert alle IBANs im aufrufenden Thread, in der Reihenfolge der Datei.
+	 *
+	 * @return Anzahl gefundener IBAN-Elemente
+	 */
+	public static long scan(@Nonnull final InputStream in, @Nonnull final IbanElementListener listener)
+		throws XMLStreamException {
+
+		try {
+			return parse(in, pending -> {
+				listener.onIban(pending.validate());
+				return true;
+			});
+		} catch (InterruptedException e) {
+			// kommt ohne Queue nicht vor
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Liest die Datei im aufrufenden Thread und validiert die IBANs parallel in {@code threads} Workern. Die
+	 * Queue dazwischen ist auf {@code queueCapacity} Elemente beschraenkt; ist sie voll, wartet der Parser.
+	 * Der Listener wird aus den Workern aufgerufen, die Reihenfolge ist nicht garantiert (siehe
+	 * {@link IbanElement#getIndex()}).
+	 * <p>
+	 * Wirft der Listener eine Exception, wird das Parsen abgebrochen und die Exception nach dem Beenden der
+	 * Worker geworfen.
+	 *
+	 * @return Anzahl gefundener IBAN-Elemente
+	 */
+	public static long scan(
+		@Nonnull final InputStream in,
+		@Nonnull final IbanElementListener listener,
+		final int threads,
+		final int queueCapacity) throws XMLStreamException, InterruptedException {
+
+		if (threads <= 0 || queueCapacity <= 0) {
+			throw new IllegalArgumentException("threads und queueCapacity muessen positiv sein: " + threads + ", "
+				+ queueCapacity);
+		}
+		BlockingQueue<Pending> queue = new ArrayBlockingQueue<>(queueCapacity);
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		ExecutorService workers = Executors.newFixedThreadPool(threads);
+		for (int i = 0; i < threads; i++) {
+			workers.execute(() -> work(queue, listener, failure));
+		}
+		long count;
+		try {
+			count = parse(in, pending -> {
+				if (failure.get() != null) {
+					return false;
+				}
+				queue.put(pending);
+				return true;
+			});
+		} finally {
+			finish(queue, workers, threads);
+		}
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException) {
+			throw (RuntimeException) t;
+		}
+		if (t instanceof Error) {
+			throw (Error) t;
+		}
+		return count;
+	}
+
+	/**
+	 * Schickt jedem Worker {@link #END} und wartet auf deren Ende. Ein Interrupt darf das nicht abbrechen, sonst
+	 * warten die Worker ewig auf die Queue; er wird deshalb erst am Schluss wieder gesetzt.
+	 */
+	private static void finish(
+		@Nonnull final BlockingQueue<Pending> queue,
+		@Nonnull final ExecutorService workers,
+		final int threads) {
+
+		boolean interrupted = false;
+		for (int i = 0; i < threads; i++) {
+			while (true) {
+				try {
+					queue.put(END);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		}
+		workers.shutdown();
+		while (true) {
+			try {
+				if (workers.awaitTermination(1, TimeUnit.MINUTES)) {
+					break;
+				}
+				// Worker arbeiten die Queue noch ab
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Worker: validiert, bis {@link #END} kommt. Nach einem Fehler wird die Queue nur noch geleert, damit der
+	 * Parser nicht blockiert.
+	 */
+	private static void work(
+		@Nonnull final BlockingQueue<Pending> queue,
+		@Nonnull final IbanElementListener listener,
+		@Nonnull final AtomicReference<Throwable> failure) {
+
+		try {
+			for (Pending pending = queue.take(); pending != END; pending = queue.take()) {
+				if (failure.get() == null) {
+					try {
+						listener.onIban(pending.validate());
+					} catch (RuntimeException | Error e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static long parse(@Nonnull final InputStream in, @Nonnull final Sink sink)
+		throws XMLStreamException, InterruptedException {
+
+		XMLStreamReader reader = createInputFactory().createXMLStreamReader(in);
+		try {
+			List<String> path = new ArrayList<>();
+			long count = 0;
+			while (reader.hasNext()) {
+				int event = reader.next();
+				if (event == XMLStreamConstants.START_ELEMENT) {
+					String name = reader.getLocalName();
+					if (!IBAN_ELEMENT.equals(name)) {
+						path.add(name);
+						continue;
+					}
+					int line = reader.getLocation().getLineNumber();
+					// liest bis und mit END_ELEMENT von <IBAN>
+					String text = reader.getElementText();
+					String account = path.size() >= 2 ? path.get(path.size() - 2) : null;
+					if (!sink.accept(new Pending(count, line, text, account))) {
+						break;
+					}
+					count++;
+				} else if (event == XMLStreamConstants.END_ELEMENT) {
+					path.remove(path.size() - 1);
+				}
+			}
+			return count;
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Nonnull
+	private static XMLInputFactory createInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		return factory;
+	}
+
+	@FunctionalInterface
+	private interface Sink {
+		/**
+		 * @return false, um das Parsen abzubrechen
+		 */
+		boolean accept(@Nonnull Pending pending) throws InterruptedException;
+	}
+
+	/**
+	 * Gelesenes, aber noch nicht validiertes Element.
+	 */
+	private static final class Pending {
+		private final long index;
+		private final int lineNumber;
+		@Nonnull
+		private final String text;
+		@Nullable
+		private final String accountElement;
+
+		private Pending(final long index, final int lineNumber, @Nonnull final String text,
+			@Nullable final String accountElement) {
+			this.index = index;
+			this.lineNumber = lineNumber;
+			this.text = text;
+			this.accountElement = accountElement;
+		}
+
+		@Nonnull
+		private IbanElement validate() {
+			return new IbanElement(index, lineNumber, text, accountElement, IBAN.check(text));
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BbanFormatTest {
+
+	@Test
+	public void testCompile() {
+		BbanFormat gb = BbanFormat.compile("4!a6!n8!n");
+
+		assertEquals(18, gb.getLength());
+		// NWBK60161331926819: Buchstaben an den Positionen 0-3
+		assertTrue(gb.matches(18, 0b1111));
+		assertFalse(gb.matches(18, 0b0111));
+		assertFalse(gb.matches(18, 0b11111));
+	}
+
+	@Test
+	public void testAlphanumeric() {
+		BbanFormat ch = BbanFormat.compile("5!n12!c");
+
+		assertTrue(ch.matches(17, 0));
+		assertTrue(ch.matches(17, 1 << 16 | 1 << 5));
+		assertFalse(ch.matches(17, 1 << 4));
+	}
+
+	@Test
+	public void testAny() {
+		assertSame(BbanFormat.ANY, BbanFormat.compile(""));
+		assertTrue(BbanFormat.ANY.matches(20, 0xFFFFF));
+		assertTrue(BbanFormat.ANY.matches(20, 0));
+	}
+
+	@Test
+	public void testInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> BbanFormat.compile("5!x"));
+		assertThrows(IllegalArgumentException.class, () -> BbanFormat.compile("n"));
+		assertThrows(IllegalArgumentException.class, () -> BbanFormat.compile("5!n12"));
+		assertThrows(IllegalArgumentException.class, () -> BbanFormat.compile("20!n11!n"));
+	}
+}
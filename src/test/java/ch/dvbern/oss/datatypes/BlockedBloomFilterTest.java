@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockedBloomFilterTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testMightContain() {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(100, 0.01);
+		filter.putIban("CH63 0900 0000 2500 9779 8");
+		filter.put(new IBAN("DE89 3704 0044 0532 0130 00"));
+		filter.put(new SozialversicherungsNummer("756.9217.0769.85"));
+		filter.put(ZpvNummer.class, 17742883);
+
+		assertTrue(filter.mightContainIban("ch6309000000250097798"));
+		assertTrue(filter.mightContain(new IBAN("CH63-0900-0000-2500-9779-8")));
+		assertTrue(filter.mightContainIban("DE89370400440532013000"));
+		assertTrue(filter.mightContain(SozialversicherungsNummer.class, 7569217076985L));
+		assertTrue(filter.mightContain(new ZpvNummer(17742883)));
+
+		assertFalse(filter.mightContainIban(""));
+		assertFalse(filter.mightContainIban("CH63_0900"));
+		assertThrows(IllegalArgumentException.class, () -> filter.putIban(" - "));
+	}
+
+	@Test
+	public void testFalsePositiveRate() {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(10_000, 0.01);
+		for (long i = 0; i < 10_000; i++) {
+			filter.put(ZpvNummer.class, i);
+		}
+		int falsePositives = 0;
+		for (long i = 0; i < 10_000; i++) {
+			assertTrue(filter.mightContain(ZpvNummer.class, i));
+			if (filter.mightContain(ZpvNummer.class, 1_000_000 + i)) {
+				falsePositives++;
+			}
+			if (filter.mightContain(SozialversicherungsNummer.class, i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(400);
+		assertThat(filter.getLoad()).isBetween(0.3, 0.7);
+	}
+
+	@Test
+	public void testWriteOpen() throws IOException {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(1000, 0.001);
+		filter.putIban("GB29 NWBK 6016 1331 9268 19");
+		Path file = tempDir.resolve("filter.bin");
+		filter.write(file);
+
+		BlockedBloomFilter mapped = BlockedBloomFilter.open(file);
+		assertEquals(filter.getBlockCount(), mapped.getBlockCount());
+		assertEquals(filter.getHashCount(), mapped.getHashCount());
+		assertTrue(mapped.mightContainIban("GB29NWBK60161331926819"));
+		assertThrows(ReadOnlyBufferException.class, () -> mapped.putIban("CH6309000000250097798"));
+
+		BlockedBloomFilter wrapped = BlockedBloomFilter.wrap(ByteBuffer.wrap(Files.readAllBytes(file)));
+		assertTrue(wrapped.mightContainIban("GB29NWBK60161331926819"));
+
+		assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.wrap(ByteBuffer.allocate(64)));
+	}
+
+	@Test
+	public void testSerializable() throws IOException, ClassNotFoundException {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(100, 0.01);
+		filter.put(new PostkontoNummer("30-38121-1"));
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(filter);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			BlockedBloomFilter copy = (BlockedBloomFilter) in.readObject();
+			assertTrue(copy.mightContain(new PostkontoNummer("30-38121-1")));
+			assertEquals(filter.getBlockCount(), copy.getBlockCount());
+		}
+	}
+
+	@Test
+	public void testSubclass() {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(100, 0.01);
+		filter.put(new PostkontoNummer("30-38121-1"));
+
+		assertTrue(filter.mightContain(new PostkontoNummer("30-38121-1") {
+			private static final long serialVersionUID = 1L;
+		}));
+		assertTrue(filter.mightContain(PostkontoNummer.class, new PostkontoNummer("30-38121-1").getNummerAsLong()));
+	}
+
+	@Test
+	public void testDeserializeCorrupt() throws IOException {
+		BlockedBloomFilter filter = BlockedBloomFilter.create(100, 0.01);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(filter);
+		}
+		byte[] corrupt = bytes.toByteArray();
+		// Laenge des Buffers direkt vor den Daten
+		int lengthOffset = corrupt.length - (64 + filter.getBlockCount() * 64) - 4;
+		corrupt[lengthOffset] = 0x7F;
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(corrupt))) {
+			assertThrows(InvalidObjectException.class, in::readObject);
+		}
+	}
+
+	@Test
+	public void testCreateInvalid() {
+		assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.create(0, 0.01));
+		assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.create(100, 1));
+		assertThrows(IllegalArgumentException.class, () -> BlockedBloomFilter.create(Long.MAX_VALUE, 0.01));
+	}
+}
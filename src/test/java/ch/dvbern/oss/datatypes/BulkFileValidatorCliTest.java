@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkFileValidatorCliTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testCommandLine() throws IOException {
+		Path file = tempDir.resolve("input.csv");
+		Files.write(file, "IBAN\tName\nCH6309000000250097798\tPost\nCH6309000000250097799\tFalsch\n"
+			.getBytes(StandardCharsets.UTF_8));
+		Path output = tempDir.resolve("rejects.txt");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		int exitCode = BulkFileValidatorCli.run(new String[] {
+			"iban", file.toString(), "--column", "1", "--separator", "tab", "--header", "--threads", "2",
+			"--output", output.toString() }, new PrintStream(out), new PrintStream(err));
+
+		assertEquals(1, exitCode);
+		assertEquals("3;INVALID_CHECK_DIGITS\n", new String(Files.readAllBytes(output), StandardCharsets.US_ASCII));
+		assertEquals(0, out.size());
+
+		exitCode = BulkFileValidatorCli.run(new String[] { "AHV", file.toString(), "--column" },
+			new PrintStream(out), new PrintStream(err));
+		assertEquals(2, exitCode);
+		exitCode = BulkFileValidatorCli.run(new String[] { "FOO", file.toString() }, new PrintStream(out),
+			new PrintStream(err));
+		assertEquals(2, exitCode);
+	}
+
+	@Test
+	public void testInvalidOptions() throws IOException {
+		Path file = tempDir.resolve("input.csv");
+		Files.write(file, "CH6309000000250097798\n".getBytes(StandardCharsets.UTF_8));
+		String name = file.toString();
+
+		assertUsage("--column muss mindestens 1 sein", new String[] { "IBAN", name, "--column", "0" });
+		assertUsage("schliessen sich aus", new String[] { "IBAN", name, "--column", "1", "--fixed", "1:21" });
+		assertUsage("schliessen sich aus", new String[] { "IBAN", name, "--fixed", "1:21", "--column", "2" });
+		assertUsage("nur zusammen mit --column", new String[] { "IBAN", name, "--separator", "," });
+		assertUsage("ASCII-Zeichen", new String[] { "IBAN", name, "--column", "1", "--separator", ",;" });
+		assertUsage("START:LENGTH", new String[] { "IBAN", name, "--fixed", "21" });
+		assertUsage("--fixed muss mindestens 1 sein", new String[] { "IBAN", name, "--fixed", "0:21" });
+		assertUsage("--threads muss mindestens 1 sein", new String[] { "IBAN", name, "--threads", "0" });
+	}
+
+	private static void assertUsage(final String message, final String[] args) {
+		ByteArrayOutputStream err = new ByteArrayOutputStream();
+
+		assertEquals(2, BulkFileValidatorCli.run(args, new PrintStream(new ByteArrayOutputStream()),
+			new PrintStream(err)));
+		String text = new String(err.toByteArray(), StandardCharsets.UTF_8);
+		assertTrue(text.contains(message), text);
+		assertTrue(text.contains(BulkFileValidatorCli.USAGE), text);
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import ch.dvbern.oss.datatypes.BulkFileValidator.Datatype;
+import ch.dvbern.oss.datatypes.BulkFileValidator.Reason;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BulkFileValidatorTest {
+
+	@TempDir
+	Path tempDir;
+
+	private Path write(final String content) throws IOException {
+		Path file = tempDir.resolve("input.csv");
+		Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void testIbanColumn() throws IOException {
+		Path file = write("Name;IBAN\r\n"
+			+ "Post;CH63 0900 0000 2500 9779 8\r\n"
+			+ "Falsch;CH63 0900 0000 2500 9779 9\r\n"
+			+ "Ohne\r\n"
+			+ "DE;\"DE89 3704 0044 0532 0130 00\"\r\n"
+			+ "Leer; \r\n"
+			+ "Land;XY12 3456");
+		StringBuilder rejects = new StringBuilder();
+
+		BulkFileResult result = new BulkFileValidator(Datatype.IBAN)
+			.withColumn(1, ';')
+			.withHeader(true)
+			.validate(file, rejects);
+
+		assertEquals("3;INVALID_CHECK_DIGITS\n4;MISSING_FIELD\n6;MISSING_FIELD\n7;UNKNOWN_COUNTRY\n", rejects.toString());
+		assertEquals(6, result.getLines());
+		assertEquals(4, result.getRejected());
+		assertEquals(2, result.getValid());
+		assertEquals(2, result.getCount(Reason.MISSING_FIELD));
+	}
+
+	@Test
+	public void testNumbers() throws IOException {
+		Path ahv = write("756.9217.0769.85\n756.9217.0769.84\n756.9217.0769\n756.9217.0769.8a\n0756921707698\n"
+			+ "0756.9217.0769.85\n756.A9217.0769.85\n-\n99999999999999999999\n");
+		StringBuilder rejects = new StringBuilder();
+		new BulkFileValidator(Datatype.AHV).validate(ahv, rejects);
+		assertEquals("2;INVALID_CHECK_DIGITS\n3;OUT_OF_RANGE\n4;OUT_OF_RANGE\n5;OUT_OF_RANGE\n8;INVALID_LENGTH\n"
+			+ "9;INVALID_LENGTH\n", rejects.toString());
+		assertTrue(SozialversicherungsNummer.isValid("0756.9217.0769.85"));
+		assertTrue(SozialversicherungsNummer.isValid("756.A9217.0769.85"));
+
+		Path zpv = write("17742883\n243911690\n17742884\n1234\n");
+		rejects.setLength(0);
+		new BulkFileValidator(Datatype.ZPV).validate(zpv, rejects);
+		assertEquals("3;INVALID_CHECK_DIGITS\n4;OUT_OF_RANGE\n", rejects.toString());
+
+		Path postkonto = write("30-104596-8\n10-15000-6\n10150006\n301045978\n01-1-1\n10-3\n1000000000\n");
+		rejects.setLength(0);
+		new BulkFileValidator(Datatype.POSTKONTO).validate(postkonto, rejects);
+		assertEquals("4;INVALID_CHECK_DIGITS\n5;OUT_OF_RANGE\n6;INVALID_LENGTH\n7;OUT_OF_RANGE\n",
+			rejects.toString());
+		assertFalse(PostkontoNummer.isValid("10-3"));
+	}
+
+	@Test
+	public void testFixedWidth() throws IOException {
+		Path file = write("0001CH6309000000250097798   X\n0002CH6309000000250097799   X\n0003\n");
+		StringBuilder rejects = new StringBuilder();
+
+		BulkFileResult result = new BulkFileValidator(Datatype.IBAN)
+			.withFixedWidth(4, 24)
+			.validate(file, rejects);
+
+		assertEquals("2;INVALID_CHECK_DIGITS\n3;MISSING_FIELD\n", rejects.toString());
+		assertEquals(3, result.getLines());
+	}
+
+	@Test
+	public void testManyChunksKeepLineOrder() throws IOException {
+		StringBuilder content = new StringBuilder();
+		StringBuilder expected = new StringBuilder();
+		int n = 5000;
+		for (int i = 1; i <= n; i++) {
+			boolean invalid = i % 7 == 0;
+			content.append(i).append(',').append(invalid ? "17742884" : "17742883").append('\n');
+			if (invalid) {
+				expected.append(i).append(";INVALID_CHECK_DIGITS\n");
+			}
+		}
+		Path file = write(content.toString());
+		StringBuilder rejects = new StringBuilder();
+
+		BulkFileResult result = new BulkFileValidator(Datatype.ZPV)
+			.withColumn(1, ',')
+			.withThreads(4)
+			.withChunkSize(1000)
+			.validate(file, rejects);
+
+		assertEquals(expected.toString(), rejects.toString());
+		assertEquals(n, result.getLines());
+		assertEquals(n / 7, result.getRejected());
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		BulkFileResult result = new BulkFileValidator(Datatype.IBAN).withHeader(true).validate(write(""),
+			new StringBuilder());
+
+		assertEquals(0, result.getLines());
+		assertEquals(0, result.getRejected());
+	}
+}
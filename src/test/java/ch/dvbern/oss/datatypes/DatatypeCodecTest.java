@@ -0,0 +1,280 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DatatypeCodecTest {
+
+	/**
+	 * Mit der bisherigen Standard-Serialisierung geschrieben: 756.9217.0769.85 und CH9300762011623852957.
+	 */
+	private static final String LEGACY_AHV = "aced00057372003163682e64766265726e2e6f73732e6461746174797065732e536f7a69"
+		+ "616c766572736963686572756e67734e756d6d65720cd01b2da6f539540200007872003163682e64766265726e2e6f73732e646174"
+		+ "6174797065732e416273747261637450727565667a69666665724e756d6d6572226d27fe96b5e34e0300024a00066e756d6d657249"
+		+ "000b70727565667a69666665727870000006e2587ebef90000000578";
+	private static final String LEGACY_IBAN = "aced00057372001c63682e64766265726e2e6f73732e6461746174797065732e4942414e"
+		+ "00000000000000010200014c000a6962616e6e756d6d65727400124c6a6176612f6c616e672f537472696e673b78707400154348"
+		+ "39333030373632303131363233383532393537";
+
+	private static final List<AbstractPruefzifferNummer> NUMMERN = Arrays.asList(
+		new SozialversicherungsNummer("756.9217.0769.85"),
+		SozialversicherungsNummer.ofTrusted(7569227076983L),
+		new ZpvNummer(12345674),
+		ZpvNummer.ofTrusted(0),
+		new PostkontoNummer("30-38150-4"),
+		PostkontoNummer.ofTrusted(-1));
+
+	private static final List<IBAN> IBANS = Arrays.asList(
+		new IBAN("CH93 0076 2011 6238 5295 7"),
+		new IBAN("GB82 WEST 1234 5698 7654 32"),
+		new IBAN("MT84MALT011000012345MTLCAST001S"),
+		new IBAN("ZZ00" + "9Z9Z9Z9Z9Z9Z9Z9Z9Z9Z9Z9Z9Z9Z"),
+		new IBAN("AA001"),
+		new IBAN("ch9300762011623852957"),
+		new IBAN("CH"),
+		new IBAN("CH93_0076_Ü"),
+		new IBAN());
+
+	@Test
+	public void testNummerRoundTrip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			for (AbstractPruefzifferNummer nummer : NUMMERN) {
+				int before = bytes.size();
+				DatatypeCodec.writeNummer(out, nummer);
+				DatatypeCodec.putNummer(buffer, nummer);
+				out.flush();
+				assertEquals(DatatypeCodec.encodedLength(nummer), bytes.size() - before);
+			}
+		}
+		assertEquals(bytes.size(), buffer.position());
+		assertArrayEquals(bytes.toByteArray(), Arrays.copyOf(buffer.array(), buffer.position()));
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		buffer.flip();
+		for (AbstractPruefzifferNummer nummer : NUMMERN) {
+			AbstractPruefzifferNummer read = DatatypeCodec.readNummer(in);
+			assertEquals(nummer, read);
+			assertEquals(nummer.getPruefziffer(), read.getPruefziffer());
+			assertEquals(nummer, DatatypeCodec.getNummer(buffer));
+		}
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void testNummerLaenge() {
+		// AHV-Nummern brauchen 43 Bit: Typ-Byte und 7 Bytes statt 8 Bytes long plus int Pruefziffer
+		assertEquals(8, DatatypeCodec.encodedLength(new SozialversicherungsNummer("756.9217.0769.85")));
+		assertEquals(5, DatatypeCodec.encodedLength(new ZpvNummer(12345674)));
+		assertEquals(2, DatatypeCodec.encodedLength(ZpvNummer.ofTrusted(0)));
+		assertEquals(11, DatatypeCodec.encodedLength(PostkontoNummer.ofTrusted(-1)));
+	}
+
+	@Test
+	public void testReadNummerTyp() throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(16);
+		DatatypeCodec.putNummer(buffer, new ZpvNummer(12345674));
+		buffer.flip();
+		assertEquals(new ZpvNummer(12345674), DatatypeCodec.getNummer(buffer.duplicate(), ZpvNummer.class));
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getNummer(buffer.duplicate(), SozialversicherungsNummer.class));
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(buffer.array(), 0, buffer.limit()));
+		assertThrows(StreamCorruptedException.class, () -> DatatypeCodec.readNummer(in, PostkontoNummer.class));
+	}
+
+	@Test
+	public void testUnterklassenNichtUnterstuetzt() {
+		AbstractPruefzifferNummer unterklasse = new SozialversicherungsNummer(7569217076985L) {
+			private static final long serialVersionUID = 1L;
+		};
+		assertThrows(IllegalArgumentException.class, () -> DatatypeCodec.encodedLength(unterklasse));
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.putNummer(ByteBuffer.allocate(16), unterklasse));
+	}
+
+	@Test
+	public void testIbanRoundTrip() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(1024);
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			for (IBAN iban : IBANS) {
+				int before = bytes.size();
+				DatatypeCodec.writeIban(out, iban);
+				DatatypeCodec.putIban(buffer, iban);
+				out.flush();
+				assertEquals(DatatypeCodec.encodedLength(iban), bytes.size() - before, iban.getIbannummer());
+			}
+		}
+		assertArrayEquals(bytes.toByteArray(), Arrays.copyOf(buffer.array(), buffer.position()));
+
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		buffer.flip();
+		for (IBAN iban : IBANS) {
+			assertEquals(iban, DatatypeCodec.readIban(in));
+			assertEquals(iban, DatatypeCodec.getIban(buffer));
+		}
+		assertEquals(0, buffer.remaining());
+	}
+
+	@Test
+	public void testIbanGepackt() {
+		assertTrue(DatatypeCodec.isPackable("CH9300762011623852957"));
+		assertFalse(DatatypeCodec.isPackable("ch9300762011623852957"));
+		assertFalse(DatatypeCodec.isPackable("CH93"));
+		assertFalse(DatatypeCodec.isPackable("CH9A00762011623852957"));
+		assertFalse(DatatypeCodec.isPackable("CH93_0076"));
+
+		// Typ-Byte, 3 Bytes Kopf, 17 BBAN-Zeichen zu 6 Bit
+		assertEquals(17, DatatypeCodec.encodedLength(new IBAN("CH9300762011623852957")));
+		// Typ-Byte, Laenge, UTF-8
+		assertEquals(23, DatatypeCodec.encodedLength(new IBAN("ch9300762011623852957")));
+		assertEquals(2, DatatypeCodec.encodedLength(new IBAN()));
+	}
+
+	@Test
+	public void testFehler() {
+		ByteBuffer small = ByteBuffer.allocate(10);
+		assertThrows(BufferOverflowException.class,
+			() -> DatatypeCodec.putIban(small, new IBAN("CH9300762011623852957")));
+		assertEquals(0, small.position());
+
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getIban(ByteBuffer.wrap(new byte[] { DatatypeCodec.TAG_AHV, 1 })));
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getNummer(ByteBuffer.wrap(new byte[] { DatatypeCodec.TAG_IBAN_STRING, 0 })));
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getNummer(ByteBuffer.wrap(new byte[] { 0 })));
+		// Laendercode ausserhalb von AA-ZZ
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getIban(ByteBuffer.wrap(new byte[] { DatatypeCodec.TAG_IBAN_PACKED, -1, -1, 0, 0 })));
+		// BBAN-Zeichen 63
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.getIban(ByteBuffer.wrap(new byte[] { DatatypeCodec.TAG_IBAN_PACKED, 0, 0, 0, -1 })));
+
+		// Laenge 2^31-1 darf nicht alloziert werden
+		byte[] riesig = { DatatypeCodec.TAG_IBAN_STRING, -1, -1, -1, -1, 7 };
+		assertThrows(IllegalArgumentException.class, () -> DatatypeCodec.getIban(ByteBuffer.wrap(riesig)));
+		assertThrows(StreamCorruptedException.class,
+			() -> DatatypeCodec.readIban(new DataInputStream(new ByteArrayInputStream(riesig))));
+		byte[] knapp = { DatatypeCodec.TAG_IBAN_STRING, (byte) 0x81, 0x02 };
+		assertThrows(IllegalArgumentException.class, () -> DatatypeCodec.getIban(ByteBuffer.wrap(knapp)));
+
+		StringBuilder lang = new StringBuilder();
+		for (int i = 0; i <= DatatypeCodec.MAX_STRING_BYTES; i++) {
+			lang.append('x');
+		}
+		assertThrows(IllegalArgumentException.class, () -> DatatypeCodec.encodedLength(new IBAN(lang.toString())));
+		lang.setLength(DatatypeCodec.MAX_STRING_BYTES);
+		IBAN maximal = new IBAN(lang.toString());
+		ByteBuffer buffer = ByteBuffer.allocate(DatatypeCodec.encodedLength(maximal));
+		DatatypeCodec.putIban(buffer, maximal);
+		buffer.flip();
+		assertEquals(maximal, DatatypeCodec.getIban(buffer));
+
+		DataInputStream truncated = new DataInputStream(new ByteArrayInputStream(new byte[] { DatatypeCodec.TAG_AHV, -1 }));
+		assertThrows(IOException.class, () -> DatatypeCodec.readNummer(truncated));
+	}
+
+	@Test
+	public void testSerializable() throws IOException, ClassNotFoundException {
+		for (Object value : NUMMERN) {
+			assertEquals(value, serializeAndRead(value));
+		}
+		for (Object value : IBANS) {
+			assertEquals(value, serializeAndRead(value));
+		}
+		assertThat(serialize(new SozialversicherungsNummer("756.9217.0769.85")).length)
+			.isLessThan(LEGACY_AHV.length() / 2);
+		assertThat(serialize(new IBAN("CH9300762011623852957")).length)
+			.isLessThan(LEGACY_IBAN.length() / 2);
+	}
+
+	@Test
+	public void testSerializableZuLang() throws IOException, ClassNotFoundException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 300; i++) {
+			text.append((char) ('A' + i % 26));
+		}
+		IBAN lang = new IBAN(text.toString());
+		assertThrows(IllegalArgumentException.class,
+			() -> DatatypeCodec.writeIban(new DataOutputStream(new ByteArrayOutputStream()), lang));
+
+		assertEquals(lang, serializeAndRead(lang));
+	}
+
+	@Test
+	public void testBisherigesFormatLesbar() throws IOException, ClassNotFoundException {
+		SozialversicherungsNummer ahv = (SozialversicherungsNummer) read(hex(LEGACY_AHV));
+		assertEquals(new SozialversicherungsNummer("756.9217.0769.85"), ahv);
+		assertTrue(ahv.isValid());
+
+		IBAN iban = (IBAN) read(hex(LEGACY_IBAN));
+		assertEquals(new IBAN("CH9300762011623852957"), iban);
+		assertTrue(iban.isValid());
+	}
+
+	@Nonnull
+	private static Object serializeAndRead(@Nonnull final Object value) throws IOException, ClassNotFoundException {
+		return read(serialize(value));
+	}
+
+	@Nonnull
+	private static byte[] serialize(@Nonnull final Object value) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(value);
+		}
+		return bytes.toByteArray();
+	}
+
+	@Nonnull
+	private static Object read(@Nonnull final byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+
+	@Nonnull
+	private static byte[] hex(@Nonnull final String hex) {
+		byte[] bytes = new byte[hex.length() / 2];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GroupFormatterTest {
+
+	@Test
+	public void testFromLeft() {
+		GroupFormatter formatter = GroupFormatter.fromLeft('.', 3, 4, 4);
+
+		assertEquals("756.9217.0769.85", formatter.toString(7569217076985L));
+		assertEquals("756.9", formatter.toString(7569));
+		assertEquals("756", formatter.toString(756));
+		assertEquals("0", formatter.toString(0));
+		assertEquals(16, formatter.formattedLength(13));
+	}
+
+	@Test
+	public void testEvery() {
+		assertEquals("1234 5678 9", GroupFormatter.everyFromLeft(' ', 4).toString("123456789"));
+		assertEquals("1234", GroupFormatter.everyFromLeft(' ', 4).toString("1234"));
+		assertEquals("", GroupFormatter.everyFromLeft(' ', 4).toString(""));
+		assertEquals("1'234'567", GroupFormatter.everyFromRight('\'', 3).toString(1234567));
+		assertEquals("123", GroupFormatter.everyFromRight('\'', 3).toString(123));
+		assertEquals("9'223'372'036'854'775'807", GroupFormatter.everyFromRight('\'', 3).toString(Long.MAX_VALUE));
+		assertEquals("-1", GroupFormatter.PLAIN.toString(-1));
+		assertEquals("-1'234", GroupFormatter.everyFromRight('\'', 3).toString(-1234));
+		assertEquals("-9'223'372'036'854'775'808", GroupFormatter.everyFromRight('\'', 3).toString(Long.MIN_VALUE));
+	}
+
+	@Test
+	public void testFormatToCharArray() {
+		char[] buffer = new char[40];
+		SozialversicherungsNummer ahv = new SozialversicherungsNummer("7569217076985");
+		PostkontoNummer pc = new PostkontoNummer(301045968);
+
+		int end = ahv.formatTo(buffer, 0);
+		buffer[end++] = ';';
+		end = pc.formatTo(buffer, end);
+
+		assertEquals("756.9217.0769.85;30-104596-8", new String(buffer, 0, end));
+		assertThrows(IndexOutOfBoundsException.class, () -> ahv.formatTo(new char[15], 0));
+		assertThrows(IndexOutOfBoundsException.class, () -> ahv.formatTo(buffer, 30));
+		assertThrows(IndexOutOfBoundsException.class, () -> ahv.formatTo(buffer, -1));
+	}
+
+	@Test
+	public void testFormatToAppendable() throws IOException {
+		StringBuilder sb = new StringBuilder();
+		new IBAN("CH6309000000250097798").formatTo(sb);
+		sb.append('|');
+		PackedIBAN.parse("CH6309000000250097798").formatTo(sb);
+		sb.append('|');
+		new PostkontoNummer(301045968).formatTo(sb);
+		sb.append('|');
+		QrReferenz.of("1234").formatTo(sb);
+
+		assertEquals("CH63 0900 0000 2500 9779 8|CH63 0900 0000 2500 9779 8|30-104596-8|"
+			+ "00 00000 00000 00000 00000 12347", sb.toString());
+	}
+
+	@Test
+	public void testMatchesToString() {
+		IBAN iban = new IBAN("DE89 3704 0044 0532 0130 00");
+		PackedIBAN packed = PackedIBAN.of(iban);
+		char[] buffer = new char[50];
+
+		assertEquals(iban.toString(), new String(buffer, 0, iban.formatTo(buffer, 0)));
+		assertEquals(iban.toString(), new String(buffer, 0, packed.formatTo(buffer, 0)));
+		assertEquals(iban.toString(), packed.toString());
+	}
+
+	@Test
+	public void testZpvLikeNumberFormat() throws IOException {
+		NumberFormat numberFormat = NumberFormat.getInstance(new Locale("de", "CH"));
+		long[] nummern = { 17742883L, 243911690L, 1L, 999L, 1000L, 9999L };
+		for (long nummer : nummern) {
+			ZpvNummer zpv = new ZpvNummer(nummer, false);
+			StringBuilder sb = new StringBuilder();
+			zpv.formatTo(sb);
+
+			assertEquals(numberFormat.format(nummer), zpv.toString());
+			assertEquals(numberFormat.format(nummer), sb.toString());
+		}
+	}
+}
@@ -15,6 +15,10 @@
 
 package ch.dvbern.oss.datatypes;
 
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -76,6 +80,36 @@ public class IBANTest {
 		assertFalse(new IBAN().isValid());
 	}
 
+	@Test
+	public void testIsValidStatic() {
+		assertTrue(IBAN.isValid(IBAN_1));
+		assertTrue(IBAN.isValid(IBAN_2_UNFORMATTED));
+		assertTrue(IBAN.isValid(new StringBuilder(IBAN_1)));
+		assertTrue(IBAN.isValid("ch63-0900-0000-2500-9779-8"));
+		assertTrue(IBAN.isValid("DE89 3704 0044 0532 0130 00"));
+		assertTrue(IBAN.isValid("GB29 NWBK 6016 1331 9268 19"));
+		assertTrue(IBAN.isValid("MT84 MALT 0110 0001 2345 MTLC AST0 01S"));
+
+		assertFalse(IBAN.isValid("CH63 0900 0000 2500 9779 9"));
+		assertFalse(IBAN.isValid("CH63 0900 0000 2500 9779"));
+		assertFalse(IBAN.isValid("CH63_0900_0000_2500_9779_8"));
+		assertFalse(IBAN.isValid("XY123456"));
+		assertFalse(IBAN.isValid("CH6"));
+		assertFalse(IBAN.isValid(""));
+		assertFalse(IBAN.isValid(null));
+	}
+
+	@Test
+	public void testIsValidBbanStructure() {
+		// Pruefziffern stimmen, aber DE erlaubt nur Ziffern bzw. GB verlangt 4 Buchstaben fuer die Bank
+		assertFalse(IBAN.isValid("DE05 3704 0044 0532 0130 0A"));
+		assertFalse(new IBAN("DE05 3704 0044 0532 0130 0A").isValid());
+		assertFalse(IBAN.isValid("GB58 1234 6016 1331 9268 19"));
+		assertFalse(PackedIBAN.parse("GB58 1234 6016 1331 9268 19").isValid());
+
+		assertTrue(IBAN.isValid("gb29 nwbk 6016 1331 9268 19"));
+	}
+
 	@Test
 	public void testExtractClearingNumber() {
 		assertEquals(CLEARING, new IBAN(IBAN_1).extractClearingNr());
@@ -94,4 +128,65 @@ public class IBANTest {
 		assertThat(ex)
 			.hasMessageContaining("InvalidNumber");
 	}
+
+	@Test
+	public void testIsQrIBAN() {
+		assertTrue(new IBAN("CH44 3199 9123 0008 8901 2").isQrIBAN());
+		assertTrue(new IBAN("ch44 3199 9123 0008 8901 2").isQrIBAN());
+		assertFalse(new IBAN("CH63 0900 0000 2500 9779 8").isQrIBAN());
+		assertFalse(new IBAN("CH44 3199 9123 0008 8901 3").isQrIBAN());
+		assertFalse(new IBAN("DE89 3704 0044 0532 0130 00").isQrIBAN());
+		assertFalse(new IBAN("").isQrIBAN());
+	}
+
+	@Test
+	public void testIsSwissOrLiechtenstein() {
+		assertTrue(new IBAN("CH63 0900 0000 2500 9779 8").isSwissOrLiechtenstein());
+		assertTrue(new IBAN("li21 0881 0000 2324 013A A").isSwissOrLiechtenstein());
+		assertFalse(new IBAN("DE89 3704 0044 0532 0130 00").isSwissOrLiechtenstein());
+		assertFalse(new IBAN("C").isSwissOrLiechtenstein());
+	}
+
+	@Test
+	public void testCheckAscii() {
+		String[] samples = {
+			"CH63 0900 0000 2500 9779 8",
+			"CH63 0900 0000 2500 9779 9",
+			"DE05 3704 0044 0532 0130 0A",
+			"GB29 NWBK 6016 1331 9268 19",
+			"CH63_0900",
+			"XY12 3456",
+			"CH6"
+		};
+		for (String sample : samples) {
+			byte[] line = (";;" + sample + ";").getBytes(StandardCharsets.US_ASCII);
+			int length = sample.length();
+			ByteBuffer direct = ByteBuffer.allocateDirect(line.length);
+			direct.put(line);
+
+			IbanStatus expected = IBAN.check(sample);
+			assertEquals(expected, IBAN.checkAscii(line, 2, length), sample);
+			assertEquals(expected, IBAN.checkAscii(ByteBuffer.wrap(line, 2, length)), sample);
+			assertEquals(expected, IBAN.checkAscii(ByteBuffer.wrap(line, 1, length + 1).slice(), 1, length), sample);
+			assertEquals(expected, IBAN.checkAscii(direct, 2, length), sample);
+			assertEquals(expected.isValid(), IBAN.isValidAscii(line, 2, length), sample);
+			assertEquals(new IBAN(sample), IBAN.fromAscii(line, 2, length));
+			assertEquals(new IBAN(sample), IBAN.fromAscii(ByteBuffer.wrap(line, 2, length)));
+		}
+	}
+
+	@Test
+	public void testAsciiBuffers() {
+		byte[] ascii = "CH63\t0900-0000-2500-9779-8\u00e4".getBytes(StandardCharsets.ISO_8859_1);
+		ByteBuffer direct = ByteBuffer.allocateDirect(ascii.length);
+		direct.put(ascii);
+		((Buffer) direct).flip();
+
+		assertTrue(IBAN.isValidAscii(ascii, 0, ascii.length));
+		assertTrue(IBAN.isValidAscii(direct));
+		assertEquals(0, direct.position());
+		assertEquals("CH6309000000250097798", IBAN.fromAscii(direct).getIbannummer());
+		assertThrows(IndexOutOfBoundsException.class, () -> IBAN.checkAscii(ascii, 1, ascii.length));
+		assertThrows(IndexOutOfBoundsException.class, () -> IBAN.checkAscii(direct, -1, 2));
+	}
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanBulkValidatorTest {
+
+	private static final String[] SAMPLES = {
+		"CH63 0900 0000 2500 9779 8",
+		"CH63 0900 0000 2500 9779 9",
+		"DE89 3704 0044 0532 0130 00",
+		"XY12 3456",
+		"CH6",
+		"DE05 3704 0044 0532 0130 0A",
+		"CH63 0900 0000 2500 9779",
+		"CH63_0900"
+	};
+
+	@Test
+	public void testStatus() {
+		assertEquals(IbanStatus.VALID, IBAN.check(SAMPLES[0]));
+		assertEquals(IbanStatus.INVALID_CHECK_DIGITS, IBAN.check(SAMPLES[1]));
+		assertEquals(IbanStatus.UNKNOWN_COUNTRY, IBAN.check(SAMPLES[3]));
+		assertEquals(IbanStatus.TOO_SHORT, IBAN.check(SAMPLES[4]));
+		assertEquals(IbanStatus.INVALID_BBAN_FORMAT, IBAN.check(SAMPLES[5]));
+		assertEquals(IbanStatus.INVALID_LENGTH, IBAN.check(SAMPLES[6]));
+		assertEquals(IbanStatus.INVALID_CHARACTER, IBAN.check(SAMPLES[7]));
+		assertEquals(IbanStatus.INVALID_CHECK_DIGITS, IBAN.check("CHX3 0900 0000 2500 9779 8"));
+		assertEquals(IbanStatus.TOO_SHORT, IBAN.check(null));
+		assertEquals(IbanStatus.INVALID_CHARACTER, IBAN.check("C_"));
+	}
+
+	@Test
+	public void testValidateLargeList() {
+		List<String> ibans = new ArrayList<>();
+		int n = 3 * IbanBulkValidator.BLOCK_SIZE + 17;
+		for (int i = 0; i < n; i++) {
+			ibans.add(SAMPLES[i % SAMPLES.length]);
+		}
+
+		IbanBulkResult result = IbanBulkValidator.validate(ibans, new ForkJoinPool(4));
+
+		assertEquals(n, result.size());
+		for (int i = 0; i < n; i++) {
+			assertEquals(IBAN.isValid(ibans.get(i)), result.isValid(i), "Position " + i);
+		}
+		int perSample = n / SAMPLES.length;
+		assertEquals(2 * perSample + 1, result.getValidCount());
+		assertEquals(n - result.getValidCount(), result.getInvalidCount());
+		assertEquals(perSample, result.getCount(IbanStatus.INVALID_CHECK_DIGITS));
+		assertEquals(perSample, result.getCount(IbanStatus.UNKNOWN_COUNTRY));
+		assertEquals(result.getValidCount(), result.getValid().cardinality());
+		assertEquals(1, result.nextInvalid(0));
+		assertFalse(result.isAllValid());
+	}
+
+	@Test
+	public void testValidateArrayAndStream() {
+		IbanBulkResult fromArray = IbanBulkValidator.validate(SAMPLES);
+		IbanBulkResult fromStream = IbanBulkValidator.validate(Stream.of(SAMPLES));
+		IbanBulkResult fromLinkedList = IbanBulkValidator.validate(new LinkedList<>(Arrays.asList(SAMPLES)));
+
+		assertEquals(fromArray.getValid(), fromStream.getValid());
+		assertEquals(fromArray.getValid(), fromLinkedList.getValid());
+		assertEquals(2, fromArray.getValidCount());
+		assertTrue(fromArray.isValid(0));
+		assertTrue(fromArray.isValid(2));
+		assertThrows(IndexOutOfBoundsException.class, () -> fromArray.isValid(SAMPLES.length));
+	}
+
+	@Test
+	public void testEmpty() {
+		IbanBulkResult result = IbanBulkValidator.validate(new CharSequence[0]);
+
+		assertEquals(0, result.size());
+		assertTrue(result.isAllValid());
+		assertEquals(-1, result.nextInvalid(0));
+	}
+}
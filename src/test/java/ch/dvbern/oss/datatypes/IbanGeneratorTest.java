@@ -0,0 +1,83 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.BitSet;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanGeneratorTest {
+
+	@Test
+	public void testComputeCheckDigits() {
+		assertEquals(63, IbanGenerator.computeCheckDigits("CH", "09000000250097798"));
+		assertEquals(89, IbanGenerator.computeCheckDigits("DE", "3704 0044 0532 0130 00"));
+		assertEquals(29, IbanGenerator.computeCheckDigits("gb", "NWBK60161331926819"));
+		assertThrows(IllegalArgumentException.class, () -> IbanGenerator.computeCheckDigits("C1", "123"));
+		assertThrows(IllegalArgumentException.class, () -> IbanGenerator.computeCheckDigits("CH", "12_3"));
+	}
+
+	@Test
+	public void testGenerate() {
+		IbanGenerator ch = IbanGenerator.forCountry("CH");
+
+		assertEquals(new IBAN("CH63 0900 0000 2500 9779 8"), ch.generate("9000", "250097798"));
+		assertEquals(new IBAN("CH63 0900 0000 2500 9779 8"), ch.generate("09000", "0002-5009-7798"));
+		assertEquals(new IBAN("CH63 0900 0000 2500 9779 8"), ch.generate("09000000250097798"));
+		assertTrue(ch.generate("230", "abc123").isValid());
+		assertEquals("CH", ch.getInfo().getCountryCode());
+		assertEquals(21, ch.getLength());
+
+		IBAN de = IbanGenerator.forCountry("DE").generate("37040044", "532013000");
+		assertEquals(new IBAN("DE89 3704 0044 0532 0130 00"), de);
+	}
+
+	@Test
+	public void testGenerateInvalid() {
+		IbanGenerator ch = IbanGenerator.forCountry("CH");
+
+		assertThrows(IllegalArgumentException.class, () -> ch.generate("123456", "1"));
+		assertThrows(IllegalArgumentException.class, () -> ch.generate("1234", "1234567890123"));
+		assertThrows(IllegalArgumentException.class, () -> ch.generate("1234", "12_4"));
+		assertThrows(IllegalArgumentException.class, () -> ch.generate("0900000025009779"));
+		// DE: nur Ziffern in der BBAN
+		assertThrows(IllegalArgumentException.class, () -> IbanGenerator.forCountry("DE").generate("37040044", "A"));
+		assertThrows(IllegalArgumentException.class, () -> IbanGenerator.forCountry("XY"));
+	}
+
+	@Test
+	public void testGenerateAll() {
+		IbanGenerator ch = IbanGenerator.forCountry("CH");
+		String[] clearingNrs = { "9000", "230", "123456", "9000" };
+		String[] accountNrs = { "250097798", "12345", "1", "250097798" };
+		char[] buffer = new char[3 * ch.getLength()];
+
+		BitSet generated = ch.generateAll(clearingNrs, accountNrs, 1, 4, buffer);
+
+		assertEquals(2, generated.cardinality());
+		assertTrue(generated.get(0));
+		assertFalse(generated.get(1));
+		assertTrue(generated.get(2));
+		assertTrue(IBAN.isValid(new String(buffer, 0, 21)));
+		assertEquals("                     ", new String(buffer, 21, 21));
+		assertEquals("CH6309000000250097798", new String(buffer, 42, 21));
+
+		assertThrows(IllegalArgumentException.class, () -> ch.generateAll(clearingNrs, accountNrs, new char[20]));
+		assertThrows(IllegalArgumentException.class, () -> ch.generateAll(clearingNrs, new String[1], buffer));
+	}
+}
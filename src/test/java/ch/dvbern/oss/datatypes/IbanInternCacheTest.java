@@ -0,0 +1,123 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanInternCacheTest {
+
+	private static final String IBAN_1 = "CH63 0900 0000 2500 9779 8";
+	private static final String IBAN_1_UNFORMATTED = IBAN_1.replaceAll(" ", "");
+
+	@Test
+	public void testIntern() {
+		IbanInternCache cache = new IbanInternCache(16);
+
+		IBAN first = cache.intern(IBAN_1);
+		assertSame(first, cache.intern(IBAN_1_UNFORMATTED));
+		assertSame(first, cache.intern(new StringBuilder(IBAN_1)));
+		assertEquals(new IBAN(IBAN_1), first);
+		assertTrue(first.isValid());
+
+		IBAN invalid = cache.intern("CH63 0900 0000 2500 9779 9");
+		assertNotSame(first, invalid);
+		assertEquals(IbanStatus.INVALID_CHECK_DIGITS, invalid.check());
+		assertNotSame(first, cache.intern("ch63 0900 0000 2500 9779 8"));
+	}
+
+	@Test
+	public void testDefaultCache() {
+		assertSame(IBAN.intern(IBAN_1), IBAN.intern(IBAN_1_UNFORMATTED));
+		assertEquals(IbanInternCache.DEFAULT_SIZE, IbanInternCache.getDefault().capacity());
+	}
+
+	@Test
+	public void testBoundedSize() {
+		IbanInternCache cache = new IbanInternCache(5);
+		assertEquals(8, cache.capacity());
+
+		List<IBAN> interned = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			interned.add(cache.intern("CH00 0000 0000 0000 " + i));
+		}
+		int cached = 0;
+		for (IBAN iban : interned) {
+			if (cache.intern(iban.getIbannummer()) == iban) {
+				cached++;
+			}
+		}
+		assertTrue(cached <= cache.capacity(), "cached: " + cached);
+	}
+
+	@Test
+	public void testClockKeepsReferencedEntries() {
+		IbanInternCache cache = new IbanInternCache(IbanInternCache.WAYS);
+		IBAN hot = cache.intern(IBAN_1);
+		for (int i = 0; i < 100; i++) {
+			assertSame(hot, cache.intern(IBAN_1));
+			cache.intern("CH00 " + i);
+		}
+		assertSame(hot, cache.intern(IBAN_1));
+	}
+
+	@Test
+	public void testValidityFollowsRegistry() {
+		IBAN iban = new IBAN(IBAN_1);
+		assertTrue(iban.isValid());
+		IbanRegistry original = IbanRegistry.getInstance();
+		try {
+			IbanRegistry.install(IbanRegistry.empty());
+			assertEquals(IbanStatus.UNKNOWN_COUNTRY, iban.check());
+		} finally {
+			IbanRegistry.install(original);
+		}
+		assertTrue(iban.isValid());
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		IbanInternCache cache = new IbanInternCache(64);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Boolean>> results = new ArrayList<>();
+			for (int t = 0; t < 4; t++) {
+				results.add(executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						String input = i % 2 == 0 ? IBAN_1 : "CH00 0000 " + i % 200;
+						IBAN iban = cache.intern(input);
+						if (!iban.equals(new IBAN(input))) {
+							return false;
+						}
+					}
+					return true;
+				}));
+			}
+			for (Future<Boolean> result : results) {
+				assertTrue(result.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanRegistryTest {
+
+	private static final String KOSOVO_IBAN = "XK05 1212 0123 4567 8906";
+
+	@Test
+	public void testDefaultRegistry() {
+		IbanInfo ch = IbanRegistry.getInstance().get("ch");
+
+		assertNotNull(ch);
+		assertEquals("CH", ch.getCountryCode());
+		assertEquals(21, ch.getAllowedLength());
+		assertEquals(5, ch.getClearingNrLength());
+		assertEquals("5!n12!c", ch.getBbanStructure());
+		assertNull(IbanRegistry.getInstance().get("XY"));
+		assertNull(IbanRegistry.getInstance().get("C"));
+		assertEquals(44, IbanRegistry.getInstance().getInfos().size());
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		IbanRegistry registry = IbanRegistry.load(new StringReader(
+			"# Kommentar\n"
+				+ "\n"
+				+ "CH;21;5;5!n12!c\n"
+				+ "fo;18;0\n"));
+
+		assertEquals(2, registry.getInfos().size());
+		assertEquals("FO", registry.getInfos().get(1).getCountryCode());
+		assertEquals("", registry.getInfos().get(1).getBbanStructure());
+	}
+
+	@Test
+	public void testLoadInvalid() {
+		IllegalArgumentException ex = assertThrows(
+			IllegalArgumentException.class,
+			() -> IbanRegistry.load(new StringReader("CH;21;5;5!n11!c\n"))
+		);
+		assertThat(ex)
+			.hasMessageContaining("Zeile 1");
+
+		assertThrows(IllegalArgumentException.class, () -> IbanRegistry.load(new StringReader("CH;21\n")));
+		assertThrows(IllegalArgumentException.class, () -> IbanRegistry.load(new StringReader("C1;21;5\n")));
+	}
+
+	@Test
+	public void testWithIsCopyOnWrite() {
+		IbanRegistry original = IbanRegistry.empty();
+		IbanRegistry extended = original.with(new IbanInfo("XK", 20, 4, "4!n10!n2!n"));
+
+		assertNull(original.get("XK"));
+		assertNotNull(extended.get("XK"));
+	}
+
+	@Test
+	public void testRegisterAndInstall() {
+		IbanRegistry original = IbanRegistry.getInstance();
+		try {
+			assertFalse(IBAN.isValid(KOSOVO_IBAN));
+
+			IbanRegistry.register(new IbanInfo("XK", 20, 4, "4!n10!n2!n"));
+			assertTrue(IBAN.isValid(KOSOVO_IBAN));
+			assertEquals("1212", new IBAN(KOSOVO_IBAN).extractClearingNr());
+
+			IbanRegistry.install(IbanRegistry.empty());
+			assertFalse(new IBAN("CH63 0900 0000 2500 9779 8").isValid());
+		} finally {
+			IbanRegistry.install(original);
+		}
+		assertTrue(new IBAN("CH63 0900 0000 2500 9779 8").isValid());
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanSetTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testContains() {
+		IbanSet set = IbanSet.of(Arrays.asList(
+			"CH63 0900 0000 2500 9779 8",
+			"ch6309000000250097798",
+			"DE89 3704 0044 0532 0130 00",
+			"GB29 NWBK 6016 1331 9268 19"));
+
+		assertEquals(3, set.size());
+		assertTrue(set.contains("CH6309000000250097798"));
+		assertTrue(set.contains("gb29-nwbk-6016-1331-9268-19"));
+		assertTrue(set.contains(new IBAN("DE89 3704 0044 0532 0130 00")));
+		assertTrue(set.contains(PackedIBAN.parse("CH63 0900 0000 2500 9779 8")));
+
+		assertFalse(set.contains("CH63 0900 0000 2500 9779 9"));
+		assertFalse(set.contains("CH63 0900 0000 2500 9779"));
+		assertFalse(set.contains("CH63 0900 0000 2500 9779 80"));
+		assertFalse(set.contains("CH63_0900"));
+		assertFalse(set.contains("CH6X"));
+		assertFalse(set.contains(""));
+		assertFalse(set.contains("CH63 0900 0000 2500 9779 8000 0000 0000 0"));
+	}
+
+	@Test
+	public void testManyEntries() {
+		IbanGenerator generator = IbanGenerator.forCountry("CH");
+		List<String> ibans = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			ibans.add(generator.generate("9000", Integer.toString(i * 7)).getIbannummer());
+		}
+
+		IbanSet set = IbanSet.of(ibans);
+
+		assertEquals(ibans.size(), set.size());
+		for (String iban : ibans) {
+			assertTrue(set.contains(iban), iban);
+		}
+		for (int i = 0; i < 20000; i++) {
+			assertFalse(set.contains(generator.generate("9000", Integer.toString(i * 7 + 1)).getIbannummer()));
+		}
+	}
+
+	@Test
+	public void testFileRoundTrip() throws IOException {
+		Path text = tempDir.resolve("sperrliste.txt");
+		Files.write(text, ("# Sperrliste\n"
+			+ "CH63 0900 0000 2500 9779 8\n"
+			+ "\n"
+			+ "  DE89 3704 0044 0532 0130 00  \n").getBytes(StandardCharsets.UTF_8));
+		IbanSet set = IbanSet.fromLines(text);
+		Path binary = tempDir.resolve("sperrliste.bin");
+
+		set.write(binary);
+		IbanSet opened = IbanSet.open(binary);
+
+		assertEquals(2, opened.size());
+		assertTrue(opened.contains("CH6309000000250097798"));
+		assertTrue(opened.contains("DE89370400440532013000"));
+		assertFalse(opened.contains("CH6309000000250097799"));
+		assertTrue(IbanSet.wrap(ByteBuffer.wrap(Files.readAllBytes(binary))).contains("CH6309000000250097798"));
+	}
+
+	@Test
+	public void testInvalid() throws IOException {
+		Path text = tempDir.resolve("falsch.txt");
+		Files.write(text, "CH63 0900\nkeine IBAN\n".getBytes(StandardCharsets.UTF_8));
+
+		IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> IbanSet.fromLines(text));
+		assertThat(ex).hasMessageContaining("Zeile 2");
+		assertThrows(IllegalArgumentException.class, () -> IbanSet.wrap(ByteBuffer.allocate(16)));
+	}
+}
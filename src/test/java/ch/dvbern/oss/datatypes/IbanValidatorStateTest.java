@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IbanValidatorStateTest {
+
+	private static final String[] SAMPLES = {
+		"CH63 0900 0000 2500 9779 8",
+		"CH63 0900 0000 2500 9779 9",
+		"ch63 0900 0000 2500 9779 8",
+		"DE89 3704 0044 0532 0130 00",
+		"DE05 3704 0044 0532 0130 0A",
+		"GB29 NWBK 6016 1331 9268 19",
+		"XY12 3456",
+		"CHX3 0900 0000 2500 9779 8",
+		"CH63 0900 0000 2500 9779 88",
+		"CH63_0900",
+		""
+	};
+
+	@Test
+	public void testStatusMatchesCheckForEveryPrefix() {
+		IbanValidatorState state = new IbanValidatorState();
+		for (String sample : SAMPLES) {
+			state.reset();
+			for (int i = 0; i < sample.length(); i++) {
+				state.append(sample.charAt(i));
+				String prefix = sample.substring(0, i + 1);
+				assertEquals(IBAN.check(prefix), state.getStatus(), prefix);
+			}
+			assertEquals(IBAN.check(sample), state.getStatus(), sample);
+		}
+	}
+
+	@Test
+	public void testChunks() {
+		IbanValidatorState state = new IbanValidatorState()
+			.append("CH63 09")
+			.append("xx00 0000 25xx", 2, 12)
+			.append("00 9779 8");
+
+		assertTrue(state.isValid());
+		assertTrue(state.isComplete());
+		assertEquals(21, state.length());
+	}
+
+	@Test
+	public void testPartialStatus() {
+		IbanValidatorState state = new IbanValidatorState();
+		assertNull(state.getError());
+		assertEquals(-1, state.getExpectedLength());
+		assertEquals(IbanStatus.TOO_SHORT, state.getStatus());
+
+		state.append("CH");
+		assertEquals(21, state.getExpectedLength());
+		assertEquals(19, state.getRemaining());
+		assertNotNull(state.getInfo());
+		assertEquals("CH", state.getInfo().getCountryCode());
+
+		state.append("63 0900 0000 2500 977");
+		assertTrue(state.isValidPrefix());
+		assertFalse(state.isComplete());
+		assertEquals(IbanStatus.INVALID_LENGTH, state.getStatus());
+		assertEquals(2, state.getRemaining());
+
+		state.append("98");
+		assertNull(state.getError());
+		assertEquals(IbanStatus.VALID, state.getStatus());
+
+		state.append('1');
+		assertEquals(IbanStatus.INVALID_LENGTH, state.getError());
+		assertEquals(-1, state.getRemaining());
+	}
+
+	@Test
+	public void testEarlyErrors() {
+		assertEquals(IbanStatus.UNKNOWN_COUNTRY, new IbanValidatorState().append("XY").getError());
+		assertEquals(IbanStatus.INVALID_CHARACTER, new IbanValidatorState().append("C_").getError());
+		assertEquals(IbanStatus.INVALID_CHECK_DIGITS, new IbanValidatorState().append("CHX").getError());
+		// DE: nur Ziffern in der BBAN
+		assertEquals(IbanStatus.INVALID_BBAN_FORMAT, new IbanValidatorState().append("DE89 37A").getError());
+		// GB: die ersten vier Zeichen der BBAN sind Buchstaben
+		assertEquals(IbanStatus.INVALID_BBAN_FORMAT, new IbanValidatorState().append("GB29 1").getError());
+		assertNull(new IbanValidatorState().append("GB29 NW").getError());
+	}
+
+	@Test
+	public void testRegistry() {
+		IbanRegistry kosovo = IbanRegistry.empty().with(new IbanInfo("XK", 20, 4, "4!n10!n2!n"));
+		IbanValidatorState state = new IbanValidatorState(kosovo).append("XK05 1212 0123 4567 8906");
+
+		assertTrue(state.isValid());
+		assertEquals(IbanStatus.UNKNOWN_COUNTRY, state.reset().append("XK05").getStatus());
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Mod10GewichtetTest {
+
+	@Test
+	public void testBekanntePruefziffern() {
+
+		assertEquals(5, SozialversicherungsNummer.pruefzifferVon(7569217076985L));
+		assertEquals(0, SozialversicherungsNummer.pruefzifferVon(7562844768650L));
+		assertEquals(3, ZpvNummer.pruefzifferVon(17742883L));
+		assertEquals(0, Mod10Gewichtet.ean(0));
+		assertEquals(0, Mod10Gewichtet.luhn(-5));
+	}
+
+	@Test
+	public void testWieBisher() {
+
+		Random random = new Random(4711);
+		for (int i = 0; i < 200_000; i++) {
+			long nummer = i < 100_000 ? i : random.nextLong() >>> random.nextInt(64);
+			assertEquals(eanBisher(nummer), SozialversicherungsNummer.pruefzifferVon(nummer), "AHV " + nummer);
+			assertEquals(luhnBisher(nummer), ZpvNummer.pruefzifferVon(nummer), "ZPV " + nummer);
+		}
+	}
+
+	/**
+	 * Bisherige Berechnung aus {@link SozialversicherungsNummer}.
+	 */
+	private static int eanBisher(final long nummer) {
+		long n = nummer / 10;
+		int pruefziffer = 0;
+		int z = 1;
+		while (n > 0) {
+			long ziffer = n % 10;
+			pruefziffer += z % 2 != 0 ? ziffer * 3 : ziffer;
+			z++;
+			n /= 10;
+		}
+		return pruefziffer % 10 != 0 ? 10 - pruefziffer % 10 : 0;
+	}
+
+	/**
+	 * Bisherige Berechnung aus {@link ZpvNummer}.
+	 */
+	private static int luhnBisher(final long nummer) {
+		//noinspection NumericCastThatLosesPrecision
+		int rest = (int) nummer / 10;
+		int pruefziffer = 0;
+		boolean ungeradePosition = true;
+		while (rest > 0) {
+			int ziffer = rest % 10;
+			if (ungeradePosition) {
+				ziffer *= 2;
+			}
+			ungeradePosition = !ungeradePosition;
+			if (ziffer >= 10) {
+				ziffer = ziffer % 10 + 1;
+			}
+			pruefziffer += ziffer;
+			rest /= 10;
+		}
+		return (10 - pruefziffer % 10) % 10;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+
+package ch.dvbern.oss.datatypes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrderedKeyTest {
+
+	private static final String WORD_CHARS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz";
+
+	@Test
+	public void testLaengen() {
+		assertEquals(26, OrderedKey.IBAN_LENGTH);
+		assertEquals(6, OrderedKey.length(SozialversicherungsNummer.class));
+		assertEquals(4, OrderedKey.length(ZpvNummer.class));
+		assertEquals(4, OrderedKey.length(PostkontoNummer.class));
+		assertEquals(6, OrderedKey.toBytes(new SozialversicherungsNummer("756.9217.0769.85")).length);
+		assertEquals(26, OrderedKey.toBytes(new IBAN("CH9300762011623852957")).length);
+	}
+
+	@Test
+	public void testIbanSortierungWieCompareTo() {
+		Random random = new Random(42);
+		List<IBAN> ibans = new ArrayList<>();
+		ibans.add(new IBAN());
+		ibans.add(new IBAN("CH9300762011623852957"));
+		ibans.add(new IBAN("CH93007620116238529"));
+		ibans.add(new IBAN("ch9300762011623852957"));
+		ibans.add(new IBAN("MT84MALT011000012345MTLCAST001S"));
+		for (int i = 0; i < 2000; i++) {
+			int length = random.nextInt(PackedIBAN.MAX_LENGTH + 1);
+			StringBuilder sb = new StringBuilder(length);
+			for (int j = 0; j < length; j++) {
+				sb.append(WORD_CHARS.charAt(random.nextInt(i % 2 == 0 ? WORD_CHARS.length() : 4)));
+			}
+			ibans.add(new IBAN(sb.toString()));
+		}
+		List<IBAN> expected = new ArrayList<>(ibans);
+		Collections.sort(expected);
+
+		List<IBAN> byKey = new ArrayList<>(ibans);
+		byKey.sort((a, b) -> OrderedKey.compare(OrderedKey.toBytes(a), OrderedKey.toBytes(b)));
+		assertEquals(expected, byKey);
+
+		for (IBAN iban : ibans) {
+			assertEquals(iban.getIbannummer(), OrderedKey.getIban(ByteBuffer.wrap(OrderedKey.toBytes(iban)))
+				.getIbannummer());
+		}
+	}
+
+	@Test
+	public void testNummerSortierungWieCompareTo() {
+		Random random = new Random(7);
+		List<SozialversicherungsNummer> ahv = new ArrayList<>();
+		List<ZpvNummer> zpv = new ArrayList<>();
+		List<PostkontoNummer> postkonto = new ArrayList<>();
+		ahv.add(SozialversicherungsNummer.ofTrusted(0));
+		ahv.add(SozialversicherungsNummer.ofTrusted(SozialversicherungsNummer.MAX_VALUE));
+		zpv.add(ZpvNummer.ofTrusted(ZpvNummer.MAX_VALUE));
+		postkonto.add(PostkontoNummer.ofTrusted(PostkontoNummer.MIN_VALUE));
+		for (int i = 0; i < 1000; i++) {
+			ahv.add(SozialversicherungsNummer.ofTrusted(7560000000000L + random.nextInt(1_000_000_000)));
+			zpv.add(ZpvNummer.ofTrusted(random.nextInt((int) ZpvNummer.MAX_VALUE + 1)));
+			postkonto.add(PostkontoNummer.ofTrusted(random.nextInt((int) PostkontoNummer.MAX_VALUE + 1)));
+		}
+		assertSortierung(ahv, SozialversicherungsNummer.class);
+		assertSortierung(zpv, ZpvNummer.class);
+		assertSortierung(postkonto, PostkontoNummer.class);
+	}
+
+	private static <T extends AbstractPruefzifferNummer & Comparable<T>> void assertSortierung(
+		List<T> nummern,
+		Class<T> type) {
+
+		List<T> expected = new ArrayList<>(nummern);
+		Collections.sort(expected);
+		List<T> byKey = new ArrayList<>(nummern);
+		byKey.sort((a, b) -> OrderedKey.compare(OrderedKey.toBytes(a), OrderedKey.toBytes(b)));
+		assertEquals(expected, byKey);
+
+		for (T nummer : nummern) {
+			T read = OrderedKey.getNummer(ByteBuffer.wrap(OrderedKey.toBytes(nummer)), type);
+			assertEquals(nummer, read);
+		}
+	}
+
+	@Test
+	public void testCompareSlices() {
+		IBAN ch = new IBAN("CH9300762011623852957");
+		IBAN de = new IBAN("DE89370400440532013000");
+		ByteBuffer store = ByteBuffer.allocateDirect(3 + 2 * OrderedKey.IBAN_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+		store.position(3);
+		OrderedKey.putIban(store, de);
+		OrderedKey.putIban(store, ch);
+
+		ByteBuffer first = sliceAt(store, 3);
+		ByteBuffer second = sliceAt(store, 3 + OrderedKey.IBAN_LENGTH);
+		assertThat(OrderedKey.compare(second, first)).isNegative();
+		assertThat(OrderedKey.compare(first, second)).isPositive();
+		assertEquals(0, OrderedKey.compare(first, ByteBuffer.wrap(OrderedKey.toBytes(de))));
+		assertEquals(3, first.position());
+		assertEquals(de, OrderedKey.getIban(first.duplicate()));
+
+		// Praefix kommt zuerst, Bytes sind vorzeichenlos
+		assertThat(OrderedKey.compare(new byte[] { 1, 2 }, new byte[] { 1, 2, 0 })).isNegative();
+		assertThat(OrderedKey.compare(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9 },
+			new byte[] { 1, 2, 3, 4, 5, 6, 7, (byte) 0x80, 9 })).isNegative();
+		assertThat(OrderedKey.compare(new byte[] { (byte) 0xFF }, new byte[] { 0x7F })).isPositive();
+	}
+
+	private static ByteBuffer sliceAt(ByteBuffer buffer, int offset) {
+		ByteBuffer slice = buffer.duplicate().order(buffer.order());
+		slice.limit(offset + OrderedKey.IBAN_LENGTH);
+		slice.position(offset);
+		return slice;
+	}
+
+	@Test
+	public void testFehler() {
+		assertThrows(IllegalArgumentException.class, () -> OrderedKey.toBytes(PostkontoNummer.ofTrusted(-1)));
+		assertThrows(IllegalArgumentException.class,
+			() -> OrderedKey.toBytes(ZpvNummer.ofTrusted(ZpvNummer.MAX_VALUE + 1)));
+		assertThrows(IllegalArgumentException.class,
+			() -> OrderedKey.getNummer(ByteBuffer.wrap(new byte[] { -1, -1, -1, -1 }), ZpvNummer.class));
+		assertThrows(IllegalArgumentException.class,
+			() -> OrderedKey.toBytes(new IBAN("CH93007620116238529570000000000000000")));
+		assertThrows(IllegalArgumentException.class, () -> OrderedKey.toBytes(IBAN.fromCompact("CH93-0076")));
+
+		byte[] luecke = new byte[OrderedKey.IBAN_LENGTH];
+		luecke[5] = 1;
+		assertThrows(IllegalArgumentException.class, () -> OrderedKey.getIban(ByteBuffer.wrap(luecke)));
+		byte[] auffuellung = new byte[OrderedKey.IBAN_LENGTH];
+		auffuellung[OrderedKey.IBAN_LENGTH - 1] = 1;
+		assertThrows(IllegalArgumentException.class, () -> OrderedKey.getIban(ByteBuffer.wrap(auffuellung)));
+	}
+}
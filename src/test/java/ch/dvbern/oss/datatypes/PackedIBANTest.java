@@ -0,0 +1,95 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PackedIBANTest {
+
+	private static final String IBAN_1 = "CH63 0900 0000 2500 9779 8";
+	private static final String IBAN_2 = "CH95 0900 0000 6076 1739 7";
+	private static final String IBAN_MT = "MT84 MALT 0110 0001 2345 MTLC AST0 01S";
+
+	@Test
+	public void testRoundTrip() {
+		PackedIBAN packed = PackedIBAN.parse(IBAN_MT);
+
+		assertEquals("MT", packed.getCountryCode());
+		assertEquals(84, packed.getCheckDigits());
+		assertEquals("MALT011000012345MTLCAST001S", packed.getBban());
+		assertEquals(31, packed.length());
+		assertEquals("MT84MALT011000012345MTLCAST001S", packed.toCompactString());
+		assertEquals(IBAN_MT, packed.toString());
+		assertEquals(new IBAN(IBAN_MT), packed.toIBAN());
+		assertEquals(packed, PackedIBAN.of(packed.toIBAN()));
+	}
+
+	@Test
+	public void testCanonicalCase() {
+		PackedIBAN upper = PackedIBAN.parse(IBAN_1);
+		PackedIBAN lower = PackedIBAN.parse(IBAN_1.toLowerCase());
+
+		assertEquals(upper, lower);
+		assertEquals(upper.hashCode(), lower.hashCode());
+		assertNotEquals(upper, PackedIBAN.parse(IBAN_2));
+	}
+
+	@Test
+	public void testIsValid() {
+		assertTrue(PackedIBAN.parse(IBAN_1).isValid());
+		assertTrue(PackedIBAN.parse(IBAN_MT).isValid());
+		assertFalse(PackedIBAN.parse("CH63 0900 0000 2500 9779 9").isValid());
+		assertFalse(PackedIBAN.parse("CH63 0900 0000 2500 9779").isValid());
+	}
+
+	@Test
+	public void testCompareToMatchesIban() {
+		String[] ibans = {
+			"CH63 0900 0000 2500 9779 8",
+			"CH63 0900 0000 2500 9779",
+			"CH63 0900 0000 2500 9779 9",
+			"CH95 0900 0000 6076 1739 7",
+			"CH95 A900 0000 6076 1739 7",
+			"DE89 3704 0044 0532 0130 00",
+			IBAN_MT
+		};
+		for (String a : ibans) {
+			for (String b : ibans) {
+				int expected = Integer.signum(new IBAN(a).compareTo(new IBAN(b)));
+				int actual = Integer.signum(PackedIBAN.parse(a).compareTo(PackedIBAN.parse(b)));
+				assertEquals(expected, actual, a + " <> " + b);
+			}
+		}
+	}
+
+	@Test
+	public void testInvalidStructure() {
+		assertThrows(IllegalArgumentException.class, () -> PackedIBAN.parse("CH63"));
+		assertThrows(IllegalArgumentException.class, () -> PackedIBAN.parse("1H63 0900"));
+		assertThrows(IllegalArgumentException.class, () -> PackedIBAN.parse("CHX3 0900"));
+		assertThrows(IllegalArgumentException.class, () -> PackedIBAN.parse("CH63_0900"));
+
+		IllegalArgumentException ex = assertThrows(
+			IllegalArgumentException.class,
+			() -> PackedIBAN.parse("CH63 0900 0000 2500 9779 8000 0000 0000 000")
+		);
+		assertThat(ex)
+			.hasMessageContaining("CH63 0900");
+	}
+}
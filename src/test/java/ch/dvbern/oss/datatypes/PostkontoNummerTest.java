@@ -15,6 +15,8 @@
 
 package ch.dvbern.oss.datatypes;
 
+import java.util.BitSet;
+
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -51,4 +53,66 @@ public class PostkontoNummerTest {
 		assertEquals(-1, n1.compareTo(n2));
 		assertEquals(1, n2.compareTo(n1));
 	}
+
+	@Test
+	public void testStaticIsValid() {
+
+		assertTrue(PostkontoNummer.isValid(301045968));
+		assertTrue(PostkontoNummer.isValid(10150006));
+		assertFalse(PostkontoNummer.isValid(301045978));
+		assertFalse(PostkontoNummer.isValid(106));
+		assertFalse(PostkontoNummer.isValid(0));
+		assertFalse(PostkontoNummer.isValid(3010459680L));
+
+		assertTrue(PostkontoNummer.isValid("30-104596-8"));
+		assertTrue(PostkontoNummer.isValid("10-15000-6"));
+		assertTrue(PostkontoNummer.isValid("10150006"));
+		assertFalse(PostkontoNummer.isValid("30-104597-8"));
+		assertFalse(PostkontoNummer.isValid("10-6"));
+		assertFalse(PostkontoNummer.isValid("30-1045968-8"));
+		assertFalse(PostkontoNummer.isValid(""));
+	}
+
+	@Test
+	public void testParse() {
+
+		assertEquals(100150006L, new PostkontoNummer(" 10-15000-6 ").getNummerAsLong());
+		assertEquals(100000016L, new PostkontoNummer("10-1-6").getNummerAsLong());
+		assertThrows(NumberFormatException.class, () -> new PostkontoNummer("10-6"));
+		assertThrows(NumberFormatException.class, () -> new PostkontoNummer(106));
+		assertThrows(NumberFormatException.class, () -> new PostkontoNummer("--"));
+		assertThrows(IllegalArgumentException.class, () -> new PostkontoNummer("30-1045968-8"));
+		assertThrows(IllegalArgumentException.class, () -> new PostkontoNummer(-301045968));
+	}
+
+	@Test
+	public void testLeadingZero() {
+
+		assertThrows(IllegalArgumentException.class, () -> new PostkontoNummer("01-23456-7"));
+		assertThrows(IllegalArgumentException.class, () -> new PostkontoNummer("012345678"));
+		assertThrows(IllegalArgumentException.class, () -> new PostkontoNummer(" 0 10-15000-6"));
+		assertFalse(PostkontoNummer.isValid("01-23456-7"));
+		assertFalse(PostkontoNummer.isValid("012345678"));
+		assertFalse(PostkontoNummer.isValid("010150006"));
+		assertTrue(PostkontoNummer.isValid("10-15000-6"));
+	}
+
+	@Test
+	public void testOfTrusted() {
+
+		PostkontoNummer trusted = PostkontoNummer.ofTrusted(301045968);
+		assertEquals(new PostkontoNummer("30-104596-8"), trusted);
+		assertEquals(new PostkontoNummer("30-104596-8").hashCode(), trusted.hashCode());
+		assertTrue(trusted.isValid());
+		assertFalse(PostkontoNummer.ofTrusted(301045978).isValid());
+	}
+
+	@Test
+	public void testValidateAll() {
+
+		long[] nummern = { 301045968, 301045978, 10150006, 106 };
+		BitSet out = new BitSet();
+		PostkontoNummer.validateAll(nummern, out);
+		assertEquals("{0, 2}", out.toString());
+	}
 }
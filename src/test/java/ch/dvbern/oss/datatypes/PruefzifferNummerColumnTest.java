@@ -0,0 +1,148 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PruefzifferNummerColumnTest {
+
+	@Test
+	public void testAddAndGet() {
+		PruefzifferNummerColumn<SozialversicherungsNummer> column =
+			PruefzifferNummerColumn.of(SozialversicherungsNummer.class);
+		assertEquals(0, column.addAll(Arrays.asList("756.9217.0769.85", "756.9227.0769.83")));
+		column.add(new SozialversicherungsNummer(7562844768650L));
+		column.add(123L);
+		assertFalse(column.add("keine Nummer"));
+
+		assertEquals(5, column.size());
+		assertEquals(new SozialversicherungsNummer("756.9217.0769.85"), column.get(0));
+		assertEquals(7569227076983L, column.getLong(1));
+		assertEquals(PruefzifferNummerColumn.NO_NUMBER, column.getLong(4));
+		assertThrows(IllegalStateException.class, () -> column.get(4));
+		// ungueltige Eintraege ueber den pruefenden Konstruktor
+		assertFalse(column.get(1).isValid());
+		assertThrows(IllegalArgumentException.class, () -> column.get(3));
+		assertThrows(IndexOutOfBoundsException.class, () -> column.getLong(5));
+
+		assertTrue(column.isValid(0));
+		assertFalse(column.isValid(1));
+		assertTrue(column.isValid(2));
+		assertFalse(column.isValid(3));
+		assertFalse(column.isValid(4));
+		assertEquals(2, column.countValid());
+		assertEquals("{0, 2}", String.valueOf(column.getValidity()));
+	}
+
+	@Test
+	public void testIteration() {
+		PruefzifferNummerColumn<ZpvNummer> column = PruefzifferNummerColumn.of(ZpvNummer.class, false);
+		for (long i = 17742880L; i < 17742890L; i++) {
+			column.add(i);
+		}
+		assertNull(column.getValidity());
+
+		List<Long> all = new ArrayList<>();
+		column.forEach(all::add);
+		assertEquals(10, all.size());
+
+		List<Long> valid = new ArrayList<>();
+		column.forEachValid(valid::add);
+		assertThat(valid).containsExactly(17742883L);
+		assertEquals(1, column.countValid());
+		assertTrue(column.isValid(3));
+	}
+
+	@Test
+	public void testPostkonto() {
+		PruefzifferNummerColumn<PostkontoNummer> column = PruefzifferNummerColumn.of(PostkontoNummer.class);
+		column.add("10-15000-6");
+		column.add("30-104596-8", 0, 11);
+		column.addAll(new long[] { 10150006, 301045978, 106 });
+		assertFalse(column.add("10-3"));
+		assertFalse(column.add("01-23456-7"));
+
+		assertThat(column.toArray()).containsExactly(100150006L, 301045968L, 100150006L, 301045978L,
+			PruefzifferNummerColumn.NO_NUMBER, PruefzifferNummerColumn.NO_NUMBER, PruefzifferNummerColumn.NO_NUMBER);
+		assertEquals("{0, 1, 2}", String.valueOf(column.getValidity()));
+		assertEquals(new PostkontoNummer("10-15000-6"), column.get(2));
+		assertEquals(new PostkontoNummer(301045978), column.get(3));
+		assertFalse(column.get(3).isValid());
+		assertThrows(IllegalStateException.class, () -> column.get(4));
+		assertThrows(IllegalStateException.class, () -> column.get(5));
+	}
+
+	@Test
+	public void testAddAllGrows() {
+		PruefzifferNummerColumn<SozialversicherungsNummer> column =
+			PruefzifferNummerColumn.of(SozialversicherungsNummer.class);
+		long[] nummern = new long[1000];
+		Arrays.fill(nummern, 7569217076985L);
+		nummern[500] = 7569227076983L;
+		column.add(7569217076985L);
+		column.addAll(nummern);
+		column.addAll(nummern);
+
+		assertEquals(2001, column.size());
+		BitSet validity = column.getValidity();
+		assertNotNull(validity);
+		assertEquals(1999, validity.cardinality());
+		assertFalse(validity.get(501));
+		assertFalse(validity.get(1501));
+
+		column.clear();
+		assertTrue(column.isEmpty());
+		assertEquals(0, column.countValid());
+	}
+
+	@Test
+	public void testUnsupportedType() {
+		assertThrows(IllegalArgumentException.class, () -> PruefzifferNummerColumn.of(AbstractPruefzifferNummer.class));
+	}
+
+	@Test
+	public void testSortDistinctMengen() {
+		PruefzifferNummerColumn<SozialversicherungsNummer> a =
+			PruefzifferNummerColumn.of(SozialversicherungsNummer.class);
+		a.addAll(new long[] { 7562844768650L, 7569217076985L, 7569227076983L, 7569217076985L });
+		a.sort();
+		assertThat(a.toArray()).containsExactly(7569227076983L, 7569217076985L, 7569217076985L, 7562844768650L);
+		assertEquals("{1, 2, 3}", String.valueOf(a.getValidity()));
+		a.distinct();
+		assertEquals(3, a.size());
+		assertEquals("{1, 2}", String.valueOf(a.getValidity()));
+
+		PruefzifferNummerColumn<SozialversicherungsNummer> b =
+			PruefzifferNummerColumn.of(SozialversicherungsNummer.class);
+		b.addAll(new long[] { 7569217076985L, 7561234567897L });
+		b.sort();
+
+		assertThat(a.union(b).toArray())
+			.containsExactly(7569227076983L, 7569217076985L, 7562844768650L, 7561234567897L);
+		assertThat(a.intersection(b).toArray()).containsExactly(7569217076985L);
+		PruefzifferNummerColumn<SozialversicherungsNummer> difference = a.difference(b);
+		assertThat(difference.toArray()).containsExactly(7569227076983L, 7562844768650L);
+		assertEquals("{1}", String.valueOf(difference.getValidity()));
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QrReferenzTest {
+
+	private static final String VALID = "210000000003139471430009017";
+
+	@Test
+	public void testIsValid() {
+		assertTrue(QrReferenz.isValid(VALID));
+		assertTrue(QrReferenz.isValid("21 00000 00003 13947 14300 09017"));
+		assertTrue(QrReferenz.isValid("000000000000000000000000000"));
+
+		assertFalse(QrReferenz.isValid("210000000003139471430009016"));
+		assertFalse(QrReferenz.isValid("21000000000313947143000901"));
+		assertFalse(QrReferenz.isValid("2100000000031394714300090170"));
+		assertFalse(QrReferenz.isValid("21-00000-00003-13947-14300-09017"));
+		assertFalse(QrReferenz.isValid(""));
+		assertFalse(QrReferenz.isValid(null));
+	}
+
+	@Test
+	public void testInstance() {
+		QrReferenz referenz = new QrReferenz("21 00000 00003 13947 14300 09017");
+
+		assertTrue(referenz.isValid());
+		assertEquals(VALID, referenz.getReferenz());
+		assertEquals("21 00000 00003 13947 14300 09017", referenz.toString());
+		assertEquals(new QrReferenz(VALID), referenz);
+		assertEquals(new QrReferenz(VALID).hashCode(), referenz.hashCode());
+		assertFalse(new QrReferenz("210000000003139471430009016").isValid());
+	}
+
+	@Test
+	public void testOf() {
+		assertEquals(new QrReferenz(VALID), QrReferenz.of("21000000000313947143000901"));
+		assertEquals("00 00000 00000 00000 00000 12347", QrReferenz.of("1234").toString());
+		assertTrue(QrReferenz.of("1234").isValid());
+
+		assertThrows(IllegalArgumentException.class, () -> QrReferenz.of(""));
+		assertThrows(IllegalArgumentException.class, () -> QrReferenz.of("12a4"));
+		assertThrows(IllegalArgumentException.class, () -> QrReferenz.of(VALID));
+	}
+
+	@Test
+	public void testOrder() {
+		QrReferenz r1 = QrReferenz.of("1");
+		QrReferenz r2 = QrReferenz.of("2");
+
+		assertTrue(r1.compareTo(r2) < 0);
+		assertEquals(0, r1.compareTo(QrReferenz.of("1")));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SortedLongsTest {
+
+	@Test
+	public void testSortWieArraysSort() {
+		Random random = new Random(42);
+		for (int length : new int[] { 0, 1, 17, SortedLongs.RADIX_THRESHOLD, 300_000 }) {
+			long[] values = new long[length];
+			for (int i = 0; i < length; i++) {
+				values[i] = i % 3 == 0 ? random.nextLong() : 7560000000000L + random.nextInt(1_000_000);
+			}
+			long[] expected = values.clone();
+			Arrays.sort(expected);
+
+			long[] ascending = values.clone();
+			SortedLongs.sort(ascending, false);
+			assertArrayEquals(expected, ascending);
+
+			long[] descending = values.clone();
+			SortedLongs.sort(descending, true);
+			for (int i = 0; i < length; i++) {
+				assertEquals(expected[length - 1 - i], descending[i]);
+			}
+		}
+	}
+
+	@Test
+	public void testSortParallel() {
+		Random random = new Random(3);
+		long[] values = new long[100_003];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = random.nextInt(50_000) - 1000;
+		}
+		long[] expected = values.clone();
+		Arrays.sort(expected);
+		SortedLongs.sort(values, 0, values.length, false, 7);
+		assertArrayEquals(expected, values);
+	}
+
+	@Test
+	public void testSortBereich() {
+		long[] values = new long[10_000];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = values.length - i;
+		}
+		SortedLongs.sort(values, 1000, 9000, false);
+		assertEquals(10_000, values[0]);
+		assertEquals(1001, values[1000]);
+		assertEquals(9000, values[8999]);
+		assertEquals(1000, values[9000]);
+		assertThrows(IndexOutOfBoundsException.class, () -> SortedLongs.sort(values, 5, 4, false));
+	}
+
+	@Test
+	public void testSortWieCompareTo() {
+		List<ZpvNummer> objekte = new ArrayList<>();
+		long[] values = new long[5000];
+		Random random = new Random(7);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = ZpvNummer.MIN_VALUE + random.nextInt(1_000_000);
+			objekte.add(new ZpvNummer(values[i]));
+		}
+		Collections.sort(objekte);
+		SortedLongs.sort(values, true);
+		for (int i = 0; i < values.length; i++) {
+			assertEquals(objekte.get(i).getNummerAsLong(), values[i]);
+		}
+	}
+
+	@Test
+	public void testDistinct() {
+		long[] values = { 9, 9, 7, 5, 5, 5, 1 };
+		assertEquals(4, SortedLongs.distinct(values, 0, values.length));
+		assertThat(Arrays.copyOf(values, 4)).containsExactly(9, 7, 5, 1);
+		assertEquals(0, SortedLongs.distinct(values, 0, 0));
+	}
+
+	@Test
+	public void testMengen() {
+		long[] a = { 9, 7, 5, 3 };
+		long[] b = { 8, 7, 3, 1 };
+		assertThat(SortedLongs.union(a, b, true)).containsExactly(9, 8, 7, 5, 3, 1);
+		assertThat(SortedLongs.intersection(a, b, true)).containsExactly(7, 3);
+		assertThat(SortedLongs.difference(a, b, true)).containsExactly(9, 5);
+		assertThat(SortedLongs.difference(b, a, true)).containsExactly(8, 1);
+		assertThat(SortedLongs.union(new long[] { 1, 2 }, new long[] { 2, 3 }, false)).containsExactly(1, 2, 3);
+		assertThat(SortedLongs.intersection(new long[0], b, true)).isEmpty();
+	}
+}
@@ -14,6 +14,13 @@
  */
 package ch.dvbern.oss.datatypes;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.BitSet;
+
 import org.junit.jupiter.api.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -110,4 +117,99 @@ public class SozialversicherungsnummerTest {
 		assertEquals(1, new SozialversicherungsNummer(7567779844851L).getPruefziffer());
 	}
 
+	@Test
+	public void testStaticIsValid() {
+
+		assertTrue(SozialversicherungsNummer.isValid(7569217076985L));
+		assertTrue(SozialversicherungsNummer.isValid(7562844768650L));
+		assertFalse(SozialversicherungsNummer.isValid(7569227076983L));
+		assertFalse(SozialversicherungsNummer.isValid(756921707698L));
+		assertFalse(SozialversicherungsNummer.isValid(-7569217076985L));
+
+		assertTrue(SozialversicherungsNummer.isValid("756.9217.0769.85"));
+		assertTrue(SozialversicherungsNummer.isValid(new StringBuilder("7569217076985")));
+		assertFalse(SozialversicherungsNummer.isValid("756.9217.0769.84"));
+		assertFalse(SozialversicherungsNummer.isValid(""));
+		assertFalse(SozialversicherungsNummer.isValid("..."));
+		assertFalse(SozialversicherungsNummer.isValid("99999999999999999999999"));
+	}
+
+	@Test
+	public void testParse() {
+
+		assertEquals(7569217076985L, AbstractPruefzifferNummer.parse("756.9217.0769.85", 0, 16));
+		assertEquals(9217L, AbstractPruefzifferNummer.parse("756.9217.0769.85", 3, 8));
+		assertEquals(Long.MAX_VALUE, AbstractPruefzifferNummer.parse("9'223'372'036'854'775'807", 0, 25));
+		assertThrows(NumberFormatException.class, () -> AbstractPruefzifferNummer.parse("9223372036854775808", 0, 19));
+		assertThrows(NumberFormatException.class, () -> AbstractPruefzifferNummer.parse("756.9217", 3, 4));
+		assertThrows(IndexOutOfBoundsException.class, () -> AbstractPruefzifferNummer.parse("756", 2, 4));
+		assertThrows(NumberFormatException.class, () -> new SozialversicherungsNummer(""));
+	}
+
+	@Test
+	public void testOfTrustedSerializable() throws IOException, ClassNotFoundException {
+
+		SozialversicherungsNummer trusted = SozialversicherungsNummer.ofTrusted(7569217076985L);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(trusted);
+		}
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(expected)) {
+			out.writeObject(new SozialversicherungsNummer(7569217076985L));
+		}
+		assertArrayEquals(expected.toByteArray(), bytes.toByteArray());
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			SozialversicherungsNummer copy = (SozialversicherungsNummer) in.readObject();
+			assertEquals(trusted, copy);
+			assertEquals(5, copy.getPruefziffer());
+		}
+	}
+
+	@Test
+	public void testUnbekanntePruefzifferSerialisiert() throws IOException, ClassNotFoundException {
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(new AhvOhneProxy(7569217076985L, AbstractPruefzifferNummer.PRUEFZIFFER_UNBEKANNT));
+		}
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(expected)) {
+			out.writeObject(new AhvOhneProxy(7569217076985L, 5));
+		}
+		assertArrayEquals(expected.toByteArray(), bytes.toByteArray());
+
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			AhvOhneProxy copy = (AhvOhneProxy) in.readObject();
+			assertEquals(5, copy.getPruefziffer());
+			assertTrue(copy.isValid());
+		}
+	}
+
+	/**
+	 * Ohne writeReplace, also mit der Standard-Serialisierung von {@link AbstractPruefzifferNummer}.
+	 */
+	private static final class AhvOhneProxy extends AbstractPruefzifferNummer {
+		private static final long serialVersionUID = 1L;
+
+		private AhvOhneProxy(final long nummer, final int pruefziffer) {
+			super(nummer, pruefziffer);
+		}
+
+		@Override
+		protected int berechnePruefziffer(final long nummerToCalculate) {
+			return SozialversicherungsNummer.pruefzifferVon(nummerToCalculate);
+		}
+	}
+
+	@Test
+	public void testValidateAll() {
+
+		long[] nummern = { 7569217076985L, 7569227076983L, 7562844768650L, -1, 756921707698L, 7561234567897L };
+		BitSet out = new BitSet();
+		out.set(100);
+		SozialversicherungsNummer.validateAll(nummern, out);
+		assertEquals("{0, 2, 5, 100}", out.toString());
+	}
 }
@@ -14,7 +14,6 @@
  */
 package ch.dvbern.oss.datatypes;
 
-
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -23,6 +22,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.BitSet;
 
 import static java.lang.Thread.currentThread;
 import static java.util.Objects.requireNonNull;
@@ -238,4 +238,57 @@ public class ZpvNummerTest {
 		assertEquals(1, new ZpvNummer(17742883L).compareTo(new ZpvNummer(17742884L)));
 		assertEquals(-1, new ZpvNummer(17742884L).compareTo(new ZpvNummer(17742883L)));
 	}
+
+	@Test
+	public void testStaticIsValid() {
+
+		assertTrue(ZpvNummer.isValid(17742883L));
+		assertFalse(ZpvNummer.isValid(17742884L));
+		assertFalse(ZpvNummer.isValid(ZpvNummer.MAX_VALUE + 1));
+		assertFalse(ZpvNummer.isValid(18L));
+		assertTrue(ZpvNummer.isValid(18L, false));
+		assertFalse(ZpvNummer.isValid(ZpvNummer.LASTTEST_MAX_VALUE + 1, false));
+		assertEquals(new ZpvNummer(18L, false).isValid(), ZpvNummer.isValid(18L, false));
+
+		assertTrue(ZpvNummer.isValid("17'742'883"));
+		assertFalse(ZpvNummer.isValid("18"));
+		assertTrue(ZpvNummer.isValid("18", false));
+		assertFalse(ZpvNummer.isValid("-"));
+		assertFalse(ZpvNummer.isValid("9223372036854775808"));
+	}
+
+	@Test
+	public void testOfTrusted() {
+
+		ZpvNummer trusted = ZpvNummer.ofTrusted(17742883L);
+		assertEquals(550029376, trusted.hashCode());
+		assertEquals(new ZpvNummer(17742883L), trusted);
+		assertEquals(trusted, new ZpvNummer(17742883L));
+		assertEquals(3, trusted.getPruefziffer());
+		assertTrue(trusted.isValid());
+
+		// keine Bereichspruefung
+		assertFalse(ZpvNummer.ofTrusted(ZpvNummer.MAX_VALUE + 10).isValid());
+	}
+
+	@Test
+	public void testNegativToString() throws IOException {
+
+		assertEquals("-5", ZpvNummer.ofTrusted(-5).toString());
+		StringBuilder out = new StringBuilder();
+		ZpvNummer.ofTrusted(-5).formatTo(out);
+		assertEquals("-5", out.toString());
+	}
+
+	@Test
+	public void testValidateAll() {
+
+		long[] nummern = { 17742883L, 17742884L, 18L, ZpvNummer.MAX_VALUE + 1 };
+		BitSet out = new BitSet();
+		out.set(1);
+		ZpvNummer.validateAll(nummern, out);
+		assertEquals("{0}", out.toString());
+		ZpvNummer.validateAll(nummern, out, false);
+		assertEquals("{0, 2}", out.toString());
+	}
 }
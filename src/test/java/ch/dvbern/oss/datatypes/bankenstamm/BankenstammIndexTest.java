@@ -0,0 +1,139 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.bankenstamm;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import ch.dvbern.oss.datatypes.IBAN;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BankenstammIndexTest {
+
+	@TempDir
+	Path tempDir;
+
+	private BankenstammIndex openSample() throws IOException, URISyntaxException {
+		Path csv = Paths.get(requireNonNull(currentThread().getContextClassLoader()
+			.getResource("bankenstamm/bankenstamm.csv")).toURI());
+		Path index = tempDir.resolve("bankenstamm.idx");
+		BankenstammIndex.build(csv, index);
+		return BankenstammIndex.open(index);
+	}
+
+	@Test
+	public void testLookup() throws Exception {
+		BankenstammIndex index = openSample();
+
+		assertEquals(5, index.size());
+
+		int record = index.find("00230");
+		assertNotEquals(BankenstammIndex.NOT_FOUND, record);
+		assertEquals(230, index.getIid(record));
+		assertEquals("UBS Switzerland AG", index.getName(record));
+		assertEquals("UBSWCHZH80A", index.getBic(record));
+		assertFalse(index.isQrIid(record));
+
+		assertEquals(new BankRecord(9000, "PostFinance AG; Bern", "POFICHBEXXX", false), index.get("09000"));
+		assertEquals(new BankRecord(8888, "Bank ohne BIC", null, false), index.get("8888"));
+		assertEquals("Schweizerische Nationalbank", requireNonNull(index.get("100")).getName());
+	}
+
+	@Test
+	public void testQrIid() throws Exception {
+		BankenstammIndex index = openSample();
+
+		assertTrue(index.isQrIid(index.find(30000)));
+		assertTrue(requireNonNull(index.get("30000")).isQrIid());
+	}
+
+	@Test
+	public void testNotFound() throws Exception {
+		BankenstammIndex index = openSample();
+
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find(1));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find(-1));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find(100000));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find("12a"));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find(""));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find("000001"));
+		assertEquals(BankenstammIndex.NOT_FOUND, index.find("429496729609000"));
+		assertNull(index.get("77777"));
+	}
+
+	@Test
+	public void testFindByIban() throws Exception {
+		BankenstammIndex index = openSample();
+
+		BankRecord postFinance = index.get(new IBAN("CH63 0900 0000 2500 9779 8"));
+		assertNotNull(postFinance);
+		assertEquals("POFICHBEXXX", postFinance.getBic());
+
+		assertNull(index.get(new IBAN("CH63 0900 0000 2500 9779 9")));
+		assertNull(index.get(new IBAN("DE89 3704 0044 0532 0130 00")));
+	}
+
+	@Test
+	public void testQrRangeWithoutColumn() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BankenstammIndex.build(new StringReader("IID,Name,BIC\n30001,QR Bank,\n1234,Normale Bank,\n"), out);
+		BankenstammIndex index = BankenstammIndex.wrap(ByteBuffer.wrap(out.toByteArray()));
+
+		assertTrue(index.isQrIid(index.find(30001)));
+		assertFalse(index.isQrIid(index.find(1234)));
+	}
+
+	@Test
+	public void testWrapAtPosition() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(new byte[] { 1, 2, 3 });
+		BankenstammIndex.build(new StringReader("IID,Name,BIC\n30001,QR Bank,\n1234,Normale Bank,\n"), out);
+		ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+		buffer.position(3);
+
+		BankenstammIndex index = BankenstammIndex.wrap(buffer);
+
+		assertTrue(index.isQrIid(index.find(30001)));
+		assertEquals(1234, index.getIid(index.find(1234)));
+		assertEquals(3, buffer.position());
+	}
+
+	@Test
+	public void testInvalid() {
+		IllegalArgumentException ex = assertThrows(
+			IllegalArgumentException.class,
+			() -> BankenstammIndex.build(new StringReader("IID;Name\nabc;Bank\n"), new ByteArrayOutputStream())
+		);
+		assertThat(ex)
+			.hasMessageContaining("Zeile 2");
+
+		assertThrows(
+			IllegalArgumentException.class,
+			() -> BankenstammIndex.build(new StringReader("Foo;Bar\n"), new ByteArrayOutputStream()));
+		assertThrows(IllegalArgumentException.class, () -> BankenstammIndex.wrap(ByteBuffer.allocate(16)));
+	}
+}
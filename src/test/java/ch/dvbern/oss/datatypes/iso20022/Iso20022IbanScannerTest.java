@@ -0,0 +1,155 @@
+/*
+ * Copyright 2017 DV Bern AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * limitations under the License.
+ */
+
+package ch.dvbern.oss.datatypes.iso20022;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.stream.XMLStreamException;
+
+import ch.dvbern.oss.datatypes.IBAN;
+import ch.dvbern.oss.datatypes.IbanStatus;
+import org.junit.jupiter.api.Test;
+
+import static java.lang.Thread.currentThread;
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class Iso20022IbanScannerTest {
+
+	private InputStream readTestResource(final String name) {
+		return requireNonNull(currentThread().getContextClassLoader().getResourceAsStream("iso20022/" + name));
+	}
+
+	@Test
+	public void testCamt053() throws IOException, XMLStreamException {
+		List<IbanElement> elements = new ArrayList<>();
+		try (InputStream in = readTestResource("camt053.xml")) {
+			assertEquals(3, Iso20022IbanScanner.scan(in, elements::add));
+		}
+
+		assertEquals(3, elements.size());
+		assertEquals("Acct", elements.get(0).getAccountElement());
+		assertTrue(elements.get(0).isValid());
+		assertEquals(12, elements.get(0).getLineNumber());
+		assertEquals(new IBAN("CH63 0900 0000 2500 9779 8"), elements.get(0).toIBAN());
+		assertEquals("DbtrAcct", elements.get(1).getAccountElement());
+		assertTrue(elements.get(1).isValid());
+		assertEquals(IbanStatus.INVALID_CHECK_DIGITS, elements.get(2).getStatus());
+		assertEquals(2, elements.get(2).getIndex());
+	}
+
+	@Test
+	public void testPain001() throws IOException, XMLStreamException {
+		List<IbanElement> elements = new ArrayList<>();
+		try (InputStream in = readTestResource("pain001.xml")) {
+			Iso20022IbanScanner.scan(in, elements::add);
+		}
+
+		assertEquals(3, elements.size());
+		assertEquals("DbtrAcct", elements.get(0).getAccountElement());
+		assertEquals("CdtrAcct", elements.get(1).getAccountElement());
+		assertTrue(elements.get(1).isValid());
+		assertTrue(elements.get(1).toIBAN().isQrIBAN());
+		assertEquals(IbanStatus.UNKNOWN_COUNTRY, elements.get(2).getStatus());
+	}
+
+	@Test
+	public void testParallel() throws IOException, XMLStreamException, InterruptedException {
+		StringBuilder xml = new StringBuilder("<Document><Stmt>");
+		int n = 1000;
+		for (int i = 0; i < n; i++) {
+			xml.append("<Ntry><DbtrAcct><Id><IBAN>")
+				.append(i % 3 == 0 ? "CH63 0900 0000 2500 9779 9" : "CH63 0900 0000 2500 9779 8")
+				.append("</IBAN></Id></DbtrAcct></Ntry>");
+		}
+		xml.append("</Stmt></Document>");
+		List<IbanElement> elements = Collections.synchronizedList(new ArrayList<>());
+
+		long count;
+		try (InputStream in = new ByteArrayInputStream(xml.toString().getBytes(StandardCharsets.UTF_8))) {
+			count = Iso20022IbanScanner.scan(in, elements::add, 4, 16);
+		}
+
+		assertEquals(n, count);
+		assertEquals(n, elements.size());
+		elements.sort(Comparator.comparingLong(IbanElement::getIndex));
+		for (int i = 0; i < n; i++) {
+			assertEquals(i, elements.get(i).getIndex());
+			assertEquals(i % 3 != 0, elements.get(i).isValid(), "Index " + i);
+		}
+	}
+
+	@Test
+	public void testParallelListenerFailure() throws IOException {
+		try (InputStream in = readTestResource("pain001.xml")) {
+			IllegalStateException ex = assertThrows(IllegalStateException.class,
+				() -> Iso20022IbanScanner.scan(in, element -> {
+					throw new IllegalStateException("Abbruch");
+				}, 2, 1));
+			assertEquals("Abbruch", ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testParallelInterrupted() throws InterruptedException {
+		String xml = "<Document><Acct><Id><IBAN>CH63 0900 0000 2500 9779 8</IBAN></Id></Acct>"
+			+ "<Acct><Id><IBAN>CH63 0900 0000 2500 9779 8</IBAN></Id></Acct></Document>";
+		Thread parser = currentThread();
+		AtomicReference<Thread> worker = new AtomicReference<>();
+
+		try {
+			Iso20022IbanScanner.scan(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), element -> {
+				if (element.getIndex() == 0) {
+					worker.set(currentThread());
+					// Queue ist mit dem zweiten Element voll, der Parser wartet beim Einreihen von END
+					long deadline = System.currentTimeMillis() + 10_000;
+					while (parser.getState() != Thread.State.WAITING && System.currentTimeMillis() < deadline) {
+						Thread.yield();
+					}
+					parser.interrupt();
+				}
+			}, 1, 1);
+			assertTrue(Thread.interrupted());
+		} catch (XMLStreamException e) {
+			fail(e);
+		} finally {
+			Thread.interrupted();
+		}
+
+		worker.get().join(10_000);
+		assertFalse(worker.get().isAlive());
+	}
+
+	@Test
+	public void testExternalEntitiesDisabled() {
+		String xml = "<?xml version=\"1.0\"?>\n"
+			+ "<!DOCTYPE Document [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n"
+			+ "<Document><Acct><Id><IBAN>&xxe;</IBAN></Id></Acct></Document>";
+		List<IbanElement> elements = new ArrayList<>();
+
+		assertThrows(XMLStreamException.class, () -> Iso20022IbanScanner.scan(
+			new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), elements::add));
+		assertTrue(elements.isEmpty());
+	}
+}